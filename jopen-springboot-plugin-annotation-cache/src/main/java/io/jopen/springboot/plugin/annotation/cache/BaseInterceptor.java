@@ -1,14 +1,14 @@
 package io.jopen.springboot.plugin.annotation.cache;
 
-import com.google.common.collect.MapMaker;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
-import java.util.Optional;
 
 /**
  * {@link HandlerMethod}
@@ -21,21 +21,49 @@ import java.util.Optional;
  * {@link Annotation}
  * 注解实例调用<code>getClass()<code/>方法的结果是一个Proxy对象 具体打印结果是com.sun.proxy.$Proxy72
  * 注解实例调用<code>annotationType()<code/>方法的结果是一个正确的Class对象  而非一个Proxy对象
- * @see MapMaker#weakValues()
- * @see MapMaker#weakKeys()
+ * @see HandlerMetadataRegistry
  * @see Annotation#annotationType()
  */
-public class BaseInterceptor implements HandlerInterceptor {
+public class BaseInterceptor implements HandlerInterceptor, ApplicationListener<ContextRefreshedEvent> {
+
+    /**
+     * 所有拦截器共享的元数据注册中心
+     */
+    protected final HandlerMetadataRegistry handlerMetadataRegistry = HandlerMetadataRegistry.getInstance();
+
+    public BaseInterceptor() {
+    }
+
+    /**
+     * @param annotationTypes 当前拦截器关心的注解类型  应用启动完成后预解析
+     */
+    @SafeVarargs
+    protected BaseInterceptor(@NonNull Class<? extends Annotation>... annotationTypes) {
+        this.handlerMetadataRegistry.register(annotationTypes);
+    }
 
     @Nullable
     public <TYPE extends Annotation> TYPE getApiServiceAnnotation(@NonNull Class<TYPE> type, @NonNull Object handler) {
-        return Optional.of(handler)
-                .filter(h -> h instanceof HandlerMethod)
-                .map(h -> (HandlerMethod) h)
-                .map(h -> {
-                    TYPE annotation = h.getMethodAnnotation(type);
-                    return Optional.ofNullable(annotation).orElse(h.getBeanType().getDeclaredAnnotation(type));
-                })
-                .orElse(null);
+        HandlerMetadata handlerMetadata = this.getHandlerMetadata(handler);
+        return handlerMetadata == null ? null : handlerMetadata.getAnnotation(type);
+    }
+
+    /**
+     * @param handler 处理器
+     * @return 处理器不是{@link HandlerMethod}时返回null
+     */
+    @Nullable
+    public HandlerMetadata getHandlerMetadata(@NonNull Object handler) {
+        return handler instanceof HandlerMethod ? handlerMetadataRegistry.get((HandlerMethod) handler) : null;
+    }
+
+    /**
+     * 应用启动完成后预解析所有{@link HandlerMethod}
+     *
+     * @param event {@link ContextRefreshedEvent}
+     */
+    @Override
+    public void onApplicationEvent(@NonNull ContextRefreshedEvent event) {
+        this.handlerMetadataRegistry.preload(event.getApplicationContext());
     }
 }
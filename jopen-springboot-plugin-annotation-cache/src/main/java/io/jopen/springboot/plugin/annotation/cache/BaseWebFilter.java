@@ -0,0 +1,157 @@
+package io.jopen.springboot.plugin.annotation.cache;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * {@link BaseInterceptor}的WebFlux版本
+ * <p>
+ * {@link WebFilter}执行时还没有解析处理器  通过{@link RequestMappingHandlerMapping#getHandler(ServerWebExchange)}
+ * 获取{@link HandlerMethod}  元数据与{@link BaseInterceptor}共享同一个{@link HandlerMetadataRegistry}
+ * <p>
+ * 拦截路径使用{@link PathPatternParser}预编译  语义与{@link org.springframework.web.servlet.config.annotation.InterceptorRegistration}一致
+ *
+ * @author maxuefeng
+ * @see BaseInterceptor
+ * @since 2020/2/26
+ */
+public abstract class BaseWebFilter implements WebFilter, Ordered, ApplicationListener<ContextRefreshedEvent> {
+
+    private static final PathPatternParser PATH_PATTERN_PARSER = new PathPatternParser();
+
+    /**
+     * 所有拦截器共享的元数据注册中心
+     */
+    protected final HandlerMetadataRegistry handlerMetadataRegistry = HandlerMetadataRegistry.getInstance();
+
+    /**
+     * 当前过滤器的顺序
+     */
+    private int order;
+
+    /**
+     * 要拦截的路径
+     */
+    private List<PathPattern> pathPatterns = Collections.singletonList(PATH_PATTERN_PARSER.parse("/**"));
+
+    /**
+     * 要排除的路径
+     */
+    private List<PathPattern> excludePathPatterns = Collections.emptyList();
+
+    /**
+     * 应用启动完成后设定
+     */
+    private volatile List<RequestMappingHandlerMapping> handlerMappings = Collections.emptyList();
+
+    /**
+     * @param annotationTypes 当前过滤器关心的注解类型  应用启动完成后预解析
+     */
+    @SafeVarargs
+    protected BaseWebFilter(@NonNull Class<? extends Annotation>... annotationTypes) {
+        this.handlerMetadataRegistry.register(annotationTypes);
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+
+    public void setOrder(int order) {
+        this.order = order;
+    }
+
+    public void setPathPatterns(@NonNull String[] pathPatterns) {
+        this.pathPatterns = parse(pathPatterns);
+    }
+
+    public void setExcludePathPatterns(@NonNull String[] excludePathPatterns) {
+        this.excludePathPatterns = parse(excludePathPatterns);
+    }
+
+    @Override
+    @NonNull
+    public final Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
+        if (!this.matches(exchange.getRequest().getPath().pathWithinApplication())) {
+            return chain.filter(exchange);
+        }
+        return this.getHandlerMetadata(exchange)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(handlerMetadata -> handlerMetadata.isPresent() ?
+                        this.filter(exchange, chain, handlerMetadata.get()) :
+                        chain.filter(exchange));
+    }
+
+    /**
+     * 请求映射到{@link HandlerMethod}时执行
+     *
+     * @param exchange        {@link ServerWebExchange}
+     * @param chain           {@link WebFilterChain}
+     * @param handlerMetadata 处理器元数据
+     * @return 拒绝访问时返回{@link Mono#error(Throwable)}
+     */
+    @NonNull
+    protected abstract Mono<Void> filter(@NonNull ServerWebExchange exchange,
+                                         @NonNull WebFilterChain chain,
+                                         @NonNull HandlerMetadata handlerMetadata);
+
+    /**
+     * @param exchange {@link ServerWebExchange}
+     * @return 请求没有映射到{@link HandlerMethod}时为空
+     */
+    @NonNull
+    public Mono<HandlerMetadata> getHandlerMetadata(@NonNull ServerWebExchange exchange) {
+        return Flux.fromIterable(this.handlerMappings)
+                .concatMap(mapping -> mapping.getHandler(exchange))
+                .next()
+                .filter(handler -> handler instanceof HandlerMethod)
+                .map(handler -> handlerMetadataRegistry.get((HandlerMethod) handler));
+    }
+
+    /**
+     * 应用启动完成后读取所有{@link RequestMappingHandlerMapping}并预解析其中的{@link HandlerMethod}
+     *
+     * @param event {@link ContextRefreshedEvent}
+     */
+    @Override
+    public void onApplicationEvent(@NonNull ContextRefreshedEvent event) {
+        List<RequestMappingHandlerMapping> mappings = new ArrayList<>(
+                event.getApplicationContext().getBeansOfType(RequestMappingHandlerMapping.class).values());
+        AnnotationAwareOrderComparator.sort(mappings);
+        mappings.forEach(mapping -> this.handlerMetadataRegistry.preload(mapping.getHandlerMethods().values()));
+        this.handlerMappings = Collections.unmodifiableList(mappings);
+    }
+
+    private boolean matches(PathContainer path) {
+        return this.pathPatterns.stream().anyMatch(pattern -> pattern.matches(path))
+                && this.excludePathPatterns.stream().noneMatch(pattern -> pattern.matches(path));
+    }
+
+    private static List<PathPattern> parse(String[] patterns) {
+        return Arrays.stream(patterns)
+                .map(PATH_PATTERN_PARSER::parse)
+                .collect(Collectors.toList());
+    }
+}
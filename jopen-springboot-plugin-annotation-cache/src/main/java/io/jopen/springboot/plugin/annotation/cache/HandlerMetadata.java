@@ -0,0 +1,99 @@
+package io.jopen.springboot.plugin.annotation.cache;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.method.HandlerMethod;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * {@link HandlerMethod}的预解析元数据
+ * <p>
+ * 注解查找结果和拦截器派生的属性(如限流Key后缀、幂等Token的Key)在首次解析后缓存  请求路径上不再反射
+ *
+ * @author maxuefeng
+ * @see HandlerMetadataRegistry
+ * @since 2020/2/25
+ */
+public final class HandlerMetadata {
+
+    /**
+     * 注解不存在时的占位对象  {@link ConcurrentHashMap}不允许null值
+     */
+    private static final Object ABSENT = new Object();
+
+    private final Method method;
+
+    private final Class<?> beanType;
+
+    /**
+     * Key为注解类型  Value为方法上的注解 方法上不存在时为类上的注解 都不存在时为{@link HandlerMetadata#ABSENT}
+     */
+    private final ConcurrentMap<Class<? extends Annotation>, Object> annotations = new ConcurrentHashMap<>();
+
+    /**
+     * 拦截器派生的属性
+     */
+    private final ConcurrentMap<String, Object> attributes = new ConcurrentHashMap<>();
+
+    HandlerMetadata(@NonNull HandlerMethod handlerMethod) {
+        this.method = handlerMethod.getMethod();
+        this.beanType = handlerMethod.getBeanType();
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public Class<?> getBeanType() {
+        return beanType;
+    }
+
+    /**
+     * 获取注解  优先获取方法上的注解  其次获取类上的注解
+     *
+     * @param type 注解类型
+     * @param <A>  注解泛型
+     * @return 注解实例 都不存在时返回null
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <A extends Annotation> A getAnnotation(@NonNull Class<A> type) {
+        Object annotation = annotations.get(type);
+        if (annotation == null) {
+            annotation = annotations.computeIfAbsent(type, this::resolve);
+        }
+        return annotation == ABSENT ? null : (A) annotation;
+    }
+
+    /**
+     * 获取派生属性  首次访问时计算并缓存
+     *
+     * @param name    属性名称  建议使用拦截器类名作为前缀
+     * @param mapping 属性计算逻辑
+     * @param <T>     属性类型
+     * @return 属性值  计算结果不能为null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getAttribute(@NonNull String name, @NonNull Function<HandlerMetadata, T> mapping) {
+        Object attribute = attributes.get(name);
+        if (attribute == null) {
+            attribute = attributes.computeIfAbsent(name, n -> mapping.apply(this));
+        }
+        return (T) attribute;
+    }
+
+    private Object resolve(Class<? extends Annotation> type) {
+        // 与HandlerMethod#getMethodAnnotation保持一致
+        Annotation annotation = AnnotatedElementUtils.findMergedAnnotation(method, type);
+        if (annotation == null) {
+            annotation = beanType.getDeclaredAnnotation(type);
+        }
+        return annotation == null ? ABSENT : annotation;
+    }
+}
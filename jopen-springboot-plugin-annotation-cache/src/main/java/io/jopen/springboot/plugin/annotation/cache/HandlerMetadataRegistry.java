@@ -0,0 +1,102 @@
+package io.jopen.springboot.plugin.annotation.cache;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.springframework.context.ApplicationContext;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link HandlerMetadata}注册中心  所有{@link BaseInterceptor}共享同一个实例
+ * <p>
+ * 应用启动完成后从{@link RequestMappingHandlerMapping}中读取所有{@link HandlerMethod}
+ * 一次性解析各拦截器关心的注解  请求路径上只有一次Map查找
+ * <p>
+ * Key使用{@link HandlerMethod#getBeanType()}和{@link Method}而非{@link HandlerMethod}  因为{@link HandlerMethod#createWithResolvedBean()}每次请求都可能创建新实例
+ * 多个Controller子类继承同一个处理方法时{@link Method}相同  类上的注解不同  所以按beanType分别缓存
+ *
+ * @author maxuefeng
+ * @see BaseInterceptor
+ * @since 2020/2/25
+ */
+public final class HandlerMetadataRegistry {
+
+    private static final HandlerMetadataRegistry INSTANCE = new HandlerMetadataRegistry();
+
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Method, HandlerMetadata>> metadata = new ConcurrentHashMap<>();
+
+    /**
+     * 需要预解析的注解类型
+     */
+    private final Set<Class<? extends Annotation>> annotationTypes = ConcurrentHashMap.newKeySet();
+
+    private HandlerMetadataRegistry() {
+    }
+
+    public static HandlerMetadataRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 注册需要预解析的注解类型
+     *
+     * @param types 注解类型
+     */
+    @SafeVarargs
+    public final void register(@NonNull Class<? extends Annotation>... types) {
+        for (Class<? extends Annotation> type : types) {
+            if (annotationTypes.add(type)) {
+                // 已经解析过的方法补充解析新注册的注解
+                metadata.values().forEach(methods -> methods.values().forEach(m -> m.getAnnotation(type)));
+            }
+        }
+    }
+
+    /**
+     * @param handlerMethod {@link HandlerMethod}
+     * @return 预解析的元数据  未预解析的方法首次访问时解析
+     */
+    @NonNull
+    public HandlerMetadata get(@NonNull HandlerMethod handlerMethod) {
+        ConcurrentMap<Method, HandlerMetadata> methods = metadata.get(handlerMethod.getBeanType());
+        if (methods == null) {
+            methods = metadata.computeIfAbsent(handlerMethod.getBeanType(), t -> new ConcurrentHashMap<>());
+        }
+        HandlerMetadata handlerMetadata = methods.get(handlerMethod.getMethod());
+        if (handlerMetadata == null) {
+            handlerMetadata = methods.computeIfAbsent(handlerMethod.getMethod(), m -> this.create(handlerMethod));
+        }
+        return handlerMetadata;
+    }
+
+    /**
+     * 预解析所有{@link RequestMappingHandlerMapping}中的{@link HandlerMethod}
+     *
+     * @param applicationContext 应用上下文
+     */
+    public void preload(@NonNull ApplicationContext applicationContext) {
+        applicationContext.getBeansOfType(RequestMappingHandlerMapping.class).values()
+                .forEach(mapping -> this.preload(mapping.getHandlerMethods().values()));
+    }
+
+    /**
+     * 预解析指定的{@link HandlerMethod}  WebFlux下由{@link BaseWebFilter}传入
+     *
+     * @param handlerMethods 处理器方法
+     */
+    public void preload(@NonNull Collection<HandlerMethod> handlerMethods) {
+        handlerMethods.forEach(this::get);
+    }
+
+    private HandlerMetadata create(HandlerMethod handlerMethod) {
+        HandlerMetadata handlerMetadata = new HandlerMetadata(handlerMethod);
+        annotationTypes.forEach(handlerMetadata::getAnnotation);
+        return handlerMetadata;
+    }
+}
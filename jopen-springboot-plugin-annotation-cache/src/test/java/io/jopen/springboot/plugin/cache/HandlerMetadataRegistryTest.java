@@ -0,0 +1,95 @@
+package io.jopen.springboot.plugin.cache;
+
+import io.jopen.springboot.plugin.annotation.cache.HandlerMetadata;
+import io.jopen.springboot.plugin.annotation.cache.HandlerMetadataRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.web.method.HandlerMethod;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @author maxuefeng
+ * @see HandlerMetadataRegistry
+ * @since 2020/2/25
+ */
+public class HandlerMetadataRegistryTest {
+
+    @Deprecated
+    public static class DemoController {
+
+        @SuppressWarnings("unused")
+        public void classLevel() {
+        }
+
+        @Deprecated
+        @SuppressWarnings("unused")
+        public void methodLevel() {
+        }
+    }
+
+    @Test
+    public void testResolveOnce() throws NoSuchMethodException {
+        DemoController controller = new DemoController();
+        HandlerMethod handlerMethod = new HandlerMethod(controller, DemoController.class.getMethod("classLevel"));
+
+        HandlerMetadataRegistry registry = HandlerMetadataRegistry.getInstance();
+        HandlerMetadata handlerMetadata = registry.get(handlerMethod);
+
+        // 同一个Method不同的HandlerMethod实例共享元数据
+        Assert.assertSame(handlerMetadata, registry.get(new HandlerMethod(controller, DemoController.class.getMethod("classLevel"))));
+        // 方法上没有注解时获取类上的注解
+        Assert.assertNotNull(handlerMetadata.getAnnotation(Deprecated.class));
+        Assert.assertNull(handlerMetadata.getAnnotation(FunctionalInterface.class));
+        // 派生属性只计算一次
+        Assert.assertSame(handlerMetadata.getAttribute("name", m -> new String(m.getMethod().getName())),
+                handlerMetadata.getAttribute("name", m -> new String(m.getMethod().getName())));
+    }
+
+    @Test
+    public void testMethodLevel() throws NoSuchMethodException {
+        HandlerMethod handlerMethod = new HandlerMethod(new DemoController(), DemoController.class.getMethod("methodLevel"));
+        HandlerMetadata handlerMetadata = HandlerMetadataRegistry.getInstance().get(handlerMethod);
+        Assert.assertNotNull(handlerMetadata.getAnnotation(Deprecated.class));
+    }
+
+    @Target(ElementType.TYPE)
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Tag {
+        String value();
+    }
+
+    public abstract static class BaseController {
+
+        @SuppressWarnings("unused")
+        public void inherited() {
+        }
+    }
+
+    @Tag("a")
+    public static class AController extends BaseController {
+    }
+
+    @Tag("b")
+    public static class BController extends BaseController {
+    }
+
+    @Test
+    public void testInheritedHandlerMethod() throws NoSuchMethodException {
+        HandlerMetadataRegistry registry = HandlerMetadataRegistry.getInstance();
+        HandlerMetadata a = registry.get(new HandlerMethod(new AController(), AController.class.getMethod("inherited")));
+        HandlerMetadata b = registry.get(new HandlerMethod(new BController(), BController.class.getMethod("inherited")));
+
+        // 两个子类共享同一个Method  类上的注解按各自的beanType解析
+        Assert.assertEquals(a.getMethod(), b.getMethod());
+        Assert.assertNotSame(a, b);
+        Assert.assertEquals("a", a.getAnnotation(Tag.class).value());
+        Assert.assertEquals("b", b.getAnnotation(Tag.class).value());
+        Assert.assertEquals("a", a.getAttribute("tag", m -> m.getAnnotation(Tag.class).value()));
+        Assert.assertEquals("b", b.getAttribute("tag", m -> m.getAnnotation(Tag.class).value()));
+        Assert.assertSame(a, registry.get(new HandlerMethod(new AController(), AController.class.getMethod("inherited"))));
+    }
+}
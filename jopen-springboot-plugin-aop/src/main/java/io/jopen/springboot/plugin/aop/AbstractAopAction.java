@@ -3,10 +3,27 @@ package io.jopen.springboot.plugin.aop;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 业务级别的Aop
+ * <p>
+ * 直接放入{@link #beforeActions}和{@link #afterActions}的函数按{@link ActionMode#SYNC}执行
+ * 通过{@link #registerBefore(ThrowingBeforeFunction, ResultHandler, ActionMode)}
+ * 和{@link #registerAfter(ThrowingBiAfterFunction, ResultHandler, ActionMode)}注册的函数可以并行或异步执行
+ * 如登录之后的审计 奖励初始化 通知等不影响返回结果的操作使用{@link ActionMode#ASYNC}  不增加接口耗时
+ * <p>
+ * 并行和异步的函数在{@link #getActionExecutor()}中执行  拿不到当前请求线程的ThreadLocal(如RequestContextHolder)
+ * 最后一个并行函数和汇合时还未开始执行的并行函数由调用线程执行  线程池中的函数嵌套调用其他切面时不会因等待排队的任务而死锁
+ * 并行执行的函数共享同一个参数数组  不应修改参数
  *
  * @author maxuefeng
  * @since 2019-05-02
@@ -22,25 +39,156 @@ public abstract class AbstractAopAction {
     // afterActions
     protected LinkedHashMap<ThrowingBiAfterFunction, ResultHandler> afterActions = new LinkedHashMap<>();
 
+    // 函数的执行方式  未注册的函数为SYNC
+    private final Map<Object, ActionMode> actionModes = new IdentityHashMap<>();
+
     /**
      * 定义切面
      */
     public abstract void pointCut();
 
+    /**
+     * @param action  前置函数
+     * @param handler 处理函数执行的结果
+     * @param mode    执行方式  不支持{@link ActionMode#ASYNC}
+     */
+    protected void registerBefore(ThrowingBeforeFunction action, ResultHandler handler, ActionMode mode) {
+        if (mode == ActionMode.ASYNC) {
+            throw new IllegalArgumentException("before action must be joined before proceed, use PARALLEL instead");
+        }
+        beforeActions.put(action, handler);
+        actionModes.put(action, mode);
+    }
+
+    /**
+     * @param action  后置函数
+     * @param handler 处理函数执行的结果  ASYNC时还处理函数抛出的异常
+     * @param mode    执行方式
+     */
+    protected void registerAfter(ThrowingBiAfterFunction action, ResultHandler handler, ActionMode mode) {
+        afterActions.put(action, handler);
+        actionModes.put(action, mode);
+    }
+
+    /**
+     * 执行PARALLEL和ASYNC函数的线程池  默认为共享的有界线程池  队列满时由调用线程执行
+     *
+     * @return 线程池
+     */
+    protected Executor getActionExecutor() {
+        return ActionExecutor.getInstance();
+    }
+
+    private ActionMode modeOf(Object action) {
+        return actionModes.getOrDefault(action, ActionMode.SYNC);
+    }
 
     protected void doBefore(Object[] args) throws Throwable {
-        for (ThrowingBeforeFunction action : beforeActions.keySet()) {
-            Object[] accept = action.accept(args);
-            beforeActions.get(action).handler(accept);
+        List<ResultHandler> handlers = new ArrayList<>(0);
+        List<Branch> branches = new ArrayList<>(0);
+        for (Map.Entry<ThrowingBeforeFunction, ResultHandler> entry : beforeActions.entrySet()) {
+            ThrowingBeforeFunction action = entry.getKey();
+            if (modeOf(action) == ActionMode.SYNC) {
+                Object[] accept = action.accept(args);
+                entry.getValue().handler(accept);
+            } else {
+                handlers.add(entry.getValue());
+                branches.add(new Branch(() -> action.accept(args)));
+            }
         }
+        join(branches, handlers);
     }
 
     protected void doAfter(Object[] args, Object result) throws Throwable {
+        List<ResultHandler> handlers = new ArrayList<>(0);
+        List<Branch> branches = new ArrayList<>(0);
+        for (Map.Entry<ThrowingBiAfterFunction, ResultHandler> entry : afterActions.entrySet()) {
+            ThrowingBiAfterFunction action = entry.getKey();
+            ResultHandler handler = entry.getValue();
+            ActionMode mode = modeOf(action);
+            if (mode == ActionMode.SYNC) {
+                Object[] accept = action.accept(args, result);
+                handler.handler(accept);
+            } else if (mode == ActionMode.PARALLEL) {
+                handlers.add(handler);
+                branches.add(new Branch(() -> action.accept(args, result)));
+            } else {
+                getActionExecutor().execute(() -> {
+                    try {
+                        handler.handler(action.accept(args, result));
+                    } catch (Throwable e) {
+                        handler.onError(e);
+                    }
+                });
+            }
+        }
+        join(branches, handlers);
+    }
 
-        for (ThrowingBiAfterFunction action : afterActions.keySet()) {
-            Object[] accept = action.accept(args, result);
-            afterActions.get(action).handler(accept);
+    /**
+     * 除最后一个函数外提交到线程池  最后一个函数和还未开始执行的函数由调用线程执行
+     * 等待所有并行函数完成后  按注册顺序处理结果  有函数失败时抛出第一个失败函数的异常
+     */
+    private void join(List<Branch> branches, List<ResultHandler> handlers) throws Throwable {
+        if (branches.isEmpty()) {
+            return;
+        }
+        Executor executor = getActionExecutor();
+        int last = branches.size() - 1;
+        for (int i = 0; i < last; i++) {
+            executor.execute(branches.get(i));
+        }
+        branches.get(last).run();
+        for (Branch branch : branches) {
+            branch.run();
+        }
+        try {
+            CompletableFuture.allOf(branches.stream().map(b -> b.result).toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException ignored) {
+            // 下面按注册顺序取出异常
+        }
+        for (int i = 0; i < branches.size(); i++) {
+            Object[] accept;
+            try {
+                accept = branches.get(i).result.join();
+            } catch (CompletionException e) {
+                throw e.getCause();
+            }
+            handlers.get(i).handler(accept);
+        }
+    }
+
+    /**
+     * 一个并行函数  由线程池或调用线程中先开始的一方执行  只执行一次
+     */
+    private static final class Branch implements Runnable {
+
+        private final ThrowingSupplier supplier;
+
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private final CompletableFuture<Object[]> result = new CompletableFuture<>();
+
+        private Branch(ThrowingSupplier supplier) {
+            this.supplier = supplier;
         }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                result.complete(supplier.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThrowingSupplier {
+        Object[] get() throws Throwable;
     }
 
     /**
@@ -0,0 +1,94 @@
+package io.jopen.springboot.plugin.aop;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 执行PARALLEL和ASYNC函数的有界线程池
+ * <p>
+ * 1 运行在Java21及以上时使用虚拟线程  否则使用固定大小的平台线程池
+ * 2 同时执行和排队的任务数有上限  超过上限时由调用线程执行  压力传导到请求线程而不是无限堆积
+ * 平台线程池的队列长度为{@link #MAX_PENDING}  队列满时按{@link ThreadPoolExecutor.CallerRunsPolicy}执行
+ *
+ * @author maxuefeng
+ * @see AbstractAopAction#getActionExecutor()
+ * @since 2020/3/27
+ */
+final class ActionExecutor implements Executor {
+
+    /**
+     * 同时执行和排队的任务上限
+     */
+    static final int MAX_PENDING = 1024;
+
+    private static final ActionExecutor INSTANCE = new ActionExecutor();
+
+    private final Executor delegate;
+
+    /**
+     * 虚拟线程没有队列  用信号量限制同时执行的任务数  平台线程池为null
+     */
+    private final Semaphore permits;
+
+    private ActionExecutor() {
+        ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+        if (virtual != null) {
+            this.delegate = virtual;
+            this.permits = new Semaphore(MAX_PENDING);
+        } else {
+            int threads = Runtime.getRuntime().availableProcessors() * 2;
+            AtomicInteger counter = new AtomicInteger();
+            this.delegate = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(MAX_PENDING),
+                    r -> {
+                        Thread thread = new Thread(r, "aop-action-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            ((ThreadPoolExecutor) this.delegate).allowCoreThreadTimeOut(true);
+            this.permits = null;
+        }
+    }
+
+    static ActionExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (permits == null) {
+            delegate.execute(command);
+            return;
+        }
+        if (!permits.tryAcquire()) {
+            command.run();
+            return;
+        }
+        try {
+            delegate.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            command.run();
+        }
+    }
+
+    /**
+     * @return Java21以下返回null
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package io.jopen.springboot.plugin.aop;
+
+/**
+ * 前置函数和后置函数的执行方式
+ *
+ * @author maxuefeng
+ * @see AbstractAopAction#registerBefore(ThrowingBeforeFunction, ResultHandler, ActionMode)
+ * @see AbstractAopAction#registerAfter(ThrowingBiAfterFunction, ResultHandler, ActionMode)
+ * @since 2020/3/27
+ */
+public enum ActionMode {
+
+    /**
+     * 在当前线程按注册顺序执行  异常直接抛出
+     */
+    SYNC,
+
+    /**
+     * 与其他PARALLEL函数并行执行  前置函数在目标方法执行之前汇合  后置函数在返回结果之前汇合
+     * 结果按注册顺序交给{@link ResultHandler}  异常在汇合时抛出
+     */
+    PARALLEL,
+
+    /**
+     * 仅用于后置函数  不等待执行完成  不增加接口耗时
+     * 函数和{@link ResultHandler}都在线程池中执行  异常交给{@link ResultHandler#onError(Throwable)}
+     */
+    ASYNC
+}
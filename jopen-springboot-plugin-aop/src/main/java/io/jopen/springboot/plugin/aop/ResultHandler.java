@@ -1,5 +1,7 @@
 package io.jopen.springboot.plugin.aop;
 
+import org.slf4j.LoggerFactory;
+
 /**
  * @author maxuefeng
  */
@@ -17,4 +19,14 @@ public interface ResultHandler {
     }
 
     void handler(Object[] args);
+
+    /**
+     * {@link ActionMode#ASYNC}函数执行失败时调用  调用方已经返回  异常无法再抛出
+     * 默认记录日志
+     *
+     * @param throwable 函数或{@link #handler(Object[])}抛出的异常
+     */
+    default void onError(Throwable throwable) {
+        LoggerFactory.getLogger(ResultHandler.class).error("async aop action failed", throwable);
+    }
 }
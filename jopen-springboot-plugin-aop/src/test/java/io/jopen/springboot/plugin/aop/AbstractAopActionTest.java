@@ -0,0 +1,198 @@
+package io.jopen.springboot.plugin.aop;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author maxuefeng
+ * @since 2020/3/27
+ */
+public class AbstractAopActionTest {
+
+    /**
+     * 使用指定线程池的切面
+     */
+    private static class TestAction extends AbstractAopAction {
+
+        private final ExecutorService executor;
+
+        private TestAction(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void pointCut() {
+        }
+
+        @Override
+        protected ExecutorService getActionExecutor() {
+            return executor;
+        }
+    }
+
+    private static ThrowingBeforeFunction sleep(long millis, Object value) {
+        return args -> {
+            Thread.sleep(millis);
+            return new Object[]{value};
+        };
+    }
+
+    @Test
+    public void parallelHandlersRunInRegistrationOrder() throws Throwable {
+        TestAction action = new TestAction(Executors.newFixedThreadPool(4));
+        List<Object> handled = Collections.synchronizedList(new ArrayList<>());
+        List<Object> order = Collections.synchronizedList(new ArrayList<>());
+        action.registerBefore(args -> {
+            order.add("sync");
+            return new Object[]{"sync"};
+        }, r -> handled.add(r[0]), ActionMode.SYNC);
+        // 先注册的函数后完成
+        action.registerBefore(sleep(200, 1), r -> handled.add(r[0]), ActionMode.PARALLEL);
+        action.registerBefore(sleep(100, 2), r -> handled.add(r[0]), ActionMode.PARALLEL);
+        action.registerBefore(sleep(0, 3), r -> handled.add(r[0]), ActionMode.PARALLEL);
+
+        action.doBefore(new Object[0]);
+
+        Assert.assertEquals(Collections.singletonList("sync"), order);
+        Assert.assertEquals(Arrays.asList("sync", 1, 2, 3), handled);
+        action.executor.shutdownNow();
+    }
+
+    @Test
+    public void lastParallelActionRunsOnCaller() throws Throwable {
+        TestAction action = new TestAction(Executors.newFixedThreadPool(2));
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        action.registerBefore(sleep(0, 1), ResultHandler.ignore(), ActionMode.PARALLEL);
+        action.registerBefore(args -> {
+            thread.set(Thread.currentThread());
+            return args;
+        }, ResultHandler.ignore(), ActionMode.PARALLEL);
+
+        action.doBefore(new Object[0]);
+
+        Assert.assertSame(Thread.currentThread(), thread.get());
+        action.executor.shutdownNow();
+    }
+
+    @Test
+    public void firstFailureInRegistrationOrderIsRethrown() throws Throwable {
+        TestAction action = new TestAction(Executors.newFixedThreadPool(4));
+        List<Object> handled = Collections.synchronizedList(new ArrayList<>());
+        IllegalStateException first = new IllegalStateException("first");
+        action.registerAfter((args, result) -> {
+            Thread.sleep(100);
+            throw first;
+        }, r -> handled.add(r[0]), ActionMode.PARALLEL);
+        action.registerAfter((args, result) -> {
+            throw new IllegalArgumentException("second");
+        }, r -> handled.add(r[0]), ActionMode.PARALLEL);
+        action.registerAfter((args, result) -> new Object[]{result}, r -> handled.add(r[0]), ActionMode.PARALLEL);
+
+        try {
+            action.doAfter(new Object[0], "result");
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertSame(first, e);
+        }
+        Assert.assertTrue(handled.isEmpty());
+        action.executor.shutdownNow();
+    }
+
+    @Test
+    public void asyncFailureGoesToOnError() throws Throwable {
+        TestAction action = new TestAction(Executors.newFixedThreadPool(1));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        AtomicReference<Throwable> actionError = new AtomicReference<>();
+        AtomicReference<Throwable> handlerError = new AtomicReference<>();
+        IllegalStateException fromAction = new IllegalStateException("action");
+        IllegalStateException fromHandler = new IllegalStateException("handler");
+        action.registerAfter((args, result) -> {
+            release.await();
+            throw fromAction;
+        }, new ResultHandler() {
+            @Override
+            public void handler(Object[] args) {
+                Assert.fail();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                actionError.set(throwable);
+                done.countDown();
+            }
+        }, ActionMode.ASYNC);
+        action.registerAfter((args, result) -> new Object[]{result}, new ResultHandler() {
+            @Override
+            public void handler(Object[] args) {
+                throw fromHandler;
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                handlerError.set(throwable);
+                done.countDown();
+            }
+        }, ActionMode.ASYNC);
+
+        // 不等待异步函数
+        action.doAfter(new Object[0], "result");
+        release.countDown();
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertSame(fromAction, actionError.get());
+        Assert.assertSame(fromHandler, handlerError.get());
+        action.executor.shutdownNow();
+    }
+
+    @Test
+    public void asyncIsRejectedForBeforeActions() {
+        TestAction action = new TestAction(Executors.newFixedThreadPool(1));
+        try {
+            action.registerBefore(args -> args, ResultHandler.ignore(), ActionMode.ASYNC);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+            // ok
+        }
+        action.executor.shutdownNow();
+    }
+
+    @Test
+    public void nestedParallelActionsDoNotDeadlock() throws Exception {
+        // 只有一个线程  外层的并行函数占用线程后  内层的并行函数只能由调用线程执行
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        TestAction inner = new TestAction(executor);
+        inner.registerBefore(sleep(0, 1), ResultHandler.ignore(), ActionMode.PARALLEL);
+        inner.registerBefore(sleep(0, 2), ResultHandler.ignore(), ActionMode.PARALLEL);
+        TestAction outer = new TestAction(executor);
+        for (int i = 0; i < 3; i++) {
+            outer.registerBefore(args -> {
+                inner.doBefore(args);
+                return args;
+            }, ResultHandler.ignore(), ActionMode.PARALLEL);
+        }
+
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        Future<?> future = caller.submit(() -> {
+            try {
+                outer.doBefore(new Object[0]);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        future.get(5, TimeUnit.SECONDS);
+        caller.shutdownNow();
+        executor.shutdownNow();
+    }
+}
@@ -31,7 +31,7 @@ public abstract class AbstractBeBasedOnCookieCredentialFunction extends Abstract
         return Stream.of(cookies)
                 .filter(cookie -> cookieName.equals(cookie.getName()))
                 .findFirst()
-                .map(cookie -> this.mapCookieToCredential(request, cookie))
+                .map(cookie -> this.loadCredential(cookie.getValue(), token -> this.mapCookieToCredential(request, cookie)))
                 .orElse(Credential.INVALID_CREDENTIAL);
     }
 
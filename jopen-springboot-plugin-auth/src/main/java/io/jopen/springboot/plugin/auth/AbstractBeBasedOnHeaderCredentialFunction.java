@@ -30,7 +30,7 @@ public abstract class AbstractBeBasedOnHeaderCredentialFunction extends Abstract
     protected Credential verify(@NonNull HttpServletRequest request) {
         String headerValue = request.getHeader(this.headerKey);
         if (Strings.isNullOrEmpty(headerValue)) return Credential.INVALID_CREDENTIAL;
-        return mapHeaderValueToCredential(request, headerValue);
+        return loadCredential(headerValue, token -> mapHeaderValueToCredential(request, token));
     }
 
     /**
@@ -23,12 +23,14 @@ public abstract class AbstractBeBasedOnURLCredentialFunction extends AbstractCre
 
     @NonNull
     protected Credential verify(@NonNull HttpServletRequest request) {
-        String queryString = request.getQueryString();
-        return mapCookieToCredential(request, queryString);
+        // 以Token为缓存的Key  其他URL参数不影响缓存命中
+        String urlParamValue = request.getParameter(this.urlParamName);
+        if (Strings.isNullOrEmpty(urlParamValue)) return Credential.INVALID_CREDENTIAL;
+        return loadCredential(urlParamValue, token -> mapCookieToCredential(request, token));
     }
 
     /**
-     * @param urlParamValue base on url param {@link HttpServletRequest#getQueryString()}
+     * @param urlParamValue base on url param {@link HttpServletRequest#getParameter(String)} of urlParamName
      */
     @NonNull
     protected abstract Credential mapCookieToCredential(@NonNull HttpServletRequest request, @NonNull String urlParamValue);
@@ -3,6 +3,7 @@ package io.jopen.springboot.plugin.auth;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.function.Function;
 
 /**
  * @author maxuefeng
@@ -10,6 +11,21 @@ import javax.servlet.http.HttpServletRequest;
  */
 public abstract class AbstractCredentialFunction implements CredentialFunction {
 
+    /**
+     * 身份凭证缓存  默认不缓存
+     *
+     * @see LocalCredentialCache
+     */
+    private CredentialCache credentialCache = new CredentialCache.EmptyCredentialCache();
+
+    public CredentialCache getCredentialCache() {
+        return credentialCache;
+    }
+
+    public void setCredentialCache(@NonNull CredentialCache credentialCache) {
+        this.credentialCache = credentialCache;
+    }
+
     @Override
     public @NonNull Credential apply(@NonNull HttpServletRequest request) {
         return verify(request);
@@ -17,4 +33,15 @@ public abstract class AbstractCredentialFunction implements CredentialFunction {
 
     @NonNull
     protected abstract Credential verify(@NonNull HttpServletRequest request);
+
+    /**
+     * @param token  请求中提取的Token
+     * @param mapper 未命中缓存时将Token解析为身份凭证
+     * @return 身份凭证
+     * @see CredentialCache#get(String, Function)
+     */
+    @NonNull
+    protected Credential loadCredential(@NonNull String token, @NonNull Function<String, Credential> mapper) {
+        return this.credentialCache.get(token, mapper);
+    }
 }
@@ -1,6 +1,7 @@
 package io.jopen.springboot.plugin.auth;
 
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -21,4 +22,12 @@ public class AuthContext {
     public void setCredential(HttpServletRequest request, Credential credential) {
         request.setAttribute(CREDENTIAL_KEY, credential);
     }
+
+    public Credential getCredential(ServerWebExchange exchange) {
+        return exchange.getAttribute(CREDENTIAL_KEY);
+    }
+
+    public void setCredential(ServerWebExchange exchange, Credential credential) {
+        exchange.getAttributes().put(CREDENTIAL_KEY, credential);
+    }
 }
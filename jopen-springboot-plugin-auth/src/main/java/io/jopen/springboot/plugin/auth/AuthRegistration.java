@@ -36,6 +36,13 @@ public final class AuthRegistration {
      */
     private CredentialFunction credentialFunction;
 
+    /**
+     * WebFlux认证身份凭证生产者
+     *
+     * @see ReactiveAuthenticationFilter
+     */
+    private ReactiveCredentialFunction reactiveCredentialFunction;
+
     private AuthRegistration() {
     }
 
@@ -47,6 +54,10 @@ public final class AuthRegistration {
         return this.credentialFunction;
     }
 
+    public ReactiveCredentialFunction getReactiveCredentialFunction() {
+        return this.reactiveCredentialFunction;
+    }
+
     public String getGroup() {
         return this.group;
     }
@@ -96,6 +107,17 @@ public final class AuthRegistration {
             return this;
         }
 
+        /**
+         * 设定WebFlux检测规则
+         *
+         * @param reactiveCredentialFunction {@link ReactiveCredentialFunction}
+         * @return {@link Builder}
+         */
+        public Builder setupReactiveCredentialFunction(@NonNull ReactiveCredentialFunction reactiveCredentialFunction) {
+            this.authRegistration.reactiveCredentialFunction = reactiveCredentialFunction;
+            return this;
+        }
+
         /**
          * @return {@link AuthRegistration}
          * @see org.springframework.web.util.pattern.PathPattern
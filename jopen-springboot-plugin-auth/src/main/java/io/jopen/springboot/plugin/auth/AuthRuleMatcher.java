@@ -0,0 +1,146 @@
+package io.jopen.springboot.plugin.auth;
+
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import org.springframework.web.util.pattern.PatternParseException;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * 同一分组认证规则的编译结果
+ * <p>
+ * 1 每个路径规则按开头的字面量路径段挂到前缀树上  请求路径沿前缀树向下  只需校验途经节点上的规则  复杂度与路径深度相关
+ * 2 路径规则使用{@link PathPatternParser}预编译  中间出现**等{@link PathPatternParser}语义不同或不支持的规则退回{@link AntPathMatcher}
+ * 3 请求路径到匹配规则的结果放入有界缓存
+ * <p>
+ * 多个规则同时匹配时与之前一致  返回注册顺序最靠前的{@link AuthRegistration}
+ *
+ * @author maxuefeng
+ * @see AuthenticationInterceptor#findAuthRule(Verify, String)
+ * @since 2020/2/27
+ */
+final class AuthRuleMatcher {
+
+    /**
+     * 请求路径缓存的最大数量  路径变量会产生大量不同的请求路径
+     */
+    static final int CACHE_SIZE = 4096;
+
+    private static final Splitter PATH_SPLITTER = Splitter.on('/').omitEmptyStrings();
+
+    private static final PathMatcher ANT_PATH_MATCHER = new AntPathMatcher("/");
+
+    private final Node root = new Node();
+
+    private final Cache<String, Optional<AuthRegistration>> cache = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .build();
+
+    private AuthRuleMatcher() {
+    }
+
+    /**
+     * @param authRules 同一分组的认证规则  按注册顺序
+     * @return 编译后的规则
+     */
+    static AuthRuleMatcher compile(@NonNull List<AuthRegistration> authRules) {
+        PathPatternParser parser = new PathPatternParser();
+        // 与AntPathMatcher保持一致  /a/b不匹配/a/b/
+        parser.setMatchOptionalTrailingSeparator(false);
+
+        AuthRuleMatcher matcher = new AuthRuleMatcher();
+        for (int i = 0; i < authRules.size(); i++) {
+            AuthRegistration authRule = authRules.get(i);
+            for (String pathPattern : authRule.getPathPatterns()) {
+                Node node = matcher.root;
+                for (String segment : PATH_SPLITTER.split(pathPattern)) {
+                    if (!isLiteral(segment)) break;
+                    node = node.children.computeIfAbsent(segment, s -> new Node());
+                }
+                node.entries.add(new Entry(i, authRule, compile(parser, pathPattern)));
+            }
+        }
+        return matcher;
+    }
+
+    /**
+     * @param lookupPath 请求路径
+     * @return 请求路径匹配的认证规则  没有匹配的规则时返回null
+     */
+    @Nullable
+    AuthRegistration match(@NonNull String lookupPath) {
+        Optional<AuthRegistration> cached = cache.getIfPresent(lookupPath);
+        if (cached == null) {
+            cached = Optional.ofNullable(this.lookup(lookupPath));
+            cache.put(lookupPath, cached);
+        }
+        return cached.orElse(null);
+    }
+
+    @Nullable
+    private AuthRegistration lookup(String lookupPath) {
+        PathContainer pathContainer = PathContainer.parsePath(lookupPath);
+        Entry best = null;
+        Node node = root;
+        Iterator<String> segments = PATH_SPLITTER.split(lookupPath).iterator();
+        while (node != null) {
+            for (Entry entry : node.entries) {
+                if ((best == null || entry.order < best.order) && entry.matcher.test(pathContainer)) {
+                    best = entry;
+                }
+            }
+            node = segments.hasNext() ? node.children.get(segments.next()) : null;
+        }
+        return best == null ? null : best.authRule;
+    }
+
+    private static boolean isLiteral(String segment) {
+        return segment.indexOf('*') < 0 && segment.indexOf('?') < 0 && segment.indexOf('{') < 0;
+    }
+
+    /**
+     * @return 请求路径的匹配函数  输入为{@link PathContainer}
+     */
+    private static Predicate<PathContainer> compile(PathPatternParser parser, String pathPattern) {
+        // PathPattern中间位置的**只匹配一个路径段  与AntPathMatcher语义不同
+        int doubleWildcard = pathPattern.indexOf("**");
+        if (doubleWildcard >= 0 && doubleWildcard != pathPattern.length() - 2) {
+            return path -> ANT_PATH_MATCHER.match(pathPattern, path.value());
+        }
+        try {
+            PathPattern compiled = parser.parse(pathPattern);
+            return compiled::matches;
+        } catch (PatternParseException e) {
+            return path -> ANT_PATH_MATCHER.match(pathPattern, path.value());
+        }
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<Entry> entries = new ArrayList<>();
+    }
+
+    private static final class Entry {
+        /**
+         * 认证规则的注册顺序
+         */
+        private final int order;
+        private final AuthRegistration authRule;
+        private final Predicate<PathContainer> matcher;
+
+        private Entry(int order, AuthRegistration authRule, Predicate<PathContainer> matcher) {
+            this.order = order;
+            this.authRule = authRule;
+            this.matcher = matcher;
+        }
+    }
+}
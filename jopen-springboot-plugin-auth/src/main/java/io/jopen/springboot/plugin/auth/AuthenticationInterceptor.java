@@ -1,19 +1,21 @@
 package io.jopen.springboot.plugin.auth;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import io.jopen.springboot.plugin.annotation.cache.BaseInterceptor;
+import io.jopen.springboot.plugin.annotation.cache.HandlerMetadata;
 import lombok.extern.slf4j.Slf4j;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
-import org.springframework.util.PathMatcher;
 import org.springframework.web.util.UrlPathHelper;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static org.springframework.web.servlet.HandlerMapping.LOOKUP_PATH;
@@ -28,12 +30,6 @@ import static org.springframework.web.servlet.HandlerMapping.LOOKUP_PATH;
 @Component
 public class AuthenticationInterceptor extends BaseInterceptor implements CommandLineRunner {
 
-    /**
-     * @see PathMatcher
-     * {@link AntPathMatcher}
-     */
-    private final PathMatcher pathMatcher = new AntPathMatcher("/");
-
     /**
      * 当前拦截器的顺序
      */
@@ -56,9 +52,16 @@ public class AuthenticationInterceptor extends BaseInterceptor implements Comman
 
     /**
      * {@link ImmutableMap#entry(Object, Object)}
-     * key表示group
+     * key表示group  value为启动时编译的分组认证规则
+     *
+     * @see AuthRuleMatcher
      */
-    private ImmutableMap<String, List<AuthRegistration>> authGroup;
+    private ImmutableMap<String, AuthRuleMatcher> authGroup;
+
+    /**
+     * {@link HandlerMetadata#getAttribute(String, java.util.function.Function)} 接口要求的角色位图
+     */
+    private static final String ROLE_MASK_ATTRIBUTE = AuthenticationInterceptor.class.getName() + ".roleMask";
 
     /**
      *
@@ -69,6 +72,10 @@ public class AuthenticationInterceptor extends BaseInterceptor implements Comman
     @Autowired
     private AuthMetadata authMetadata;
 
+    public AuthenticationInterceptor() {
+        super(Verify.class);
+    }
+
     public int getOrder() {
         return order;
     }
@@ -101,23 +108,15 @@ public class AuthenticationInterceptor extends BaseInterceptor implements Comman
      * @see org.springframework.web.util.pattern.PathPattern
      */
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
-        Verify verify = super.getApiServiceAnnotation(Verify.class, handler);
+        HandlerMetadata handlerMetadata = super.getHandlerMetadata(handler);
+        Verify verify = handlerMetadata == null ? null : handlerMetadata.getAnnotation(Verify.class);
         if (verify != null) {
             boolean require = verify.require();
-            List<AuthRegistration> authRules = this.authGroup.get(verify.group());
-
-            if (authRules == null || authRules.isEmpty()) {
-                throw new RuntimeException(String.format("Server config Error Please setup auth rules of group %s", verify.group()));
-            }
 
             // 获取请求路径
             String lookupPath = this.urlPathHelper.getLookupPathForRequest(request, LOOKUP_PATH);
 
-            AuthRegistration rule = authRules.stream()
-                    .filter(authRule -> authRule.getPathPatterns().stream().anyMatch(pathPattern -> this.matches(pathPattern, lookupPath)))
-                    .findFirst()
-                    .orElse(null);
-
+            AuthRegistration rule = this.findAuthRule(verify, lookupPath);
 
             if (rule == null) {
                 log.error("Server config error Please setup AuthRegistration of lookup path {} group {}  ", lookupPath, verify.group());
@@ -133,58 +132,72 @@ public class AuthenticationInterceptor extends BaseInterceptor implements Comman
 
             Credential credential = credentialFunction.apply(request);
 
-            checkupCredential(credential, verify, credentialFunction, require);
+            checkupCredential(credential, requiredRoles(handlerMetadata, verify), credentialFunction::ifErrorThrowing, require);
 
             authContext.setCredential(request, credential);
         }
         return true;
     }
 
-    private void checkupCredential(Credential credential,
-                                   Verify verify,
-                                   CredentialFunction credentialFunction,
-                                   boolean require
+    /**
+     * @param verify     认证注解
+     * @param lookupPath 请求路径
+     * @return 请求路径匹配的认证规则  没有匹配的规则时返回null
+     */
+    @Nullable
+    AuthRegistration findAuthRule(@NonNull Verify verify, @NonNull String lookupPath) {
+        AuthRuleMatcher authRuleMatcher = this.authGroup.get(verify.group());
+
+        if (authRuleMatcher == null) {
+            throw new RuntimeException(String.format("Server config Error Please setup auth rules of group %s", verify.group()));
+        }
+
+        return authRuleMatcher.match(lookupPath);
+    }
+
+    /**
+     * @param handlerMetadata 接口元数据
+     * @param verify          认证注解
+     * @return 接口要求的角色位图  每个接口只计算一次
+     */
+    static RoleMask requiredRoles(@NonNull HandlerMetadata handlerMetadata, @NonNull Verify verify) {
+        return handlerMetadata.getAttribute(ROLE_MASK_ATTRIBUTE, m -> RoleRegistry.getInstance().mask(verify));
+    }
+
+    /**
+     * @param credential    身份凭证
+     * @param requiredRoles 接口要求的角色位图
+     * @param errorSupplier 认证失败的异常
+     * @param require       是否必须认证
+     */
+    static void checkupCredential(Credential credential,
+                                  RoleMask requiredRoles,
+                                  Supplier<RuntimeException> errorSupplier,
+                                  boolean require
     ) {
         if (!credential.getValid()) {
             if (require) {
-                throw credentialFunction.ifErrorThrowing();
+                throw errorSupplier.get();
             }
             return;
         }
 
         // 没有设定角色 || 或者设定了*号  任何角色都可以访问
-        String[] requireAllowRoles = verify.role();
-
-        if (requireAllowRoles.length == 0 || "*".equals(requireAllowRoles[0])) return;
-
-        // 用户角色
-        String[] roles = credential.getRoles();
-        // 求两个数组的交集
-        List<String> requireAllowRoleList = Arrays.asList(requireAllowRoles);
-        if (Arrays.stream(roles).anyMatch(requireAllowRoleList::contains)) return;
+        // 用户角色与接口要求的角色求交集
+        if (requiredRoles.intersects(credential.getRoleMask())) return;
 
         if (require)
-            throw credentialFunction.ifErrorThrowing();
-    }
-
-    /**
-     * Determine a match for the given lookup path.
-     *
-     * @param pathPattern setup pathPattern
-     * @param lookupPath  the current request path
-     * @return {@code true} if the interceptor applies to the given request path
-     */
-    private boolean matches(String pathPattern, @NonNull String lookupPath) {
-        return this.pathMatcher.match(pathPattern, lookupPath);
+            throw errorSupplier.get();
     }
 
     @Override
     public void run(String... args) {
         Collection<AuthRegistration> authRules = this.authMetadata.setupAuthRules();
 
-        this.authGroup = ImmutableMap.copyOf(
-                authRules.stream()
-                        .collect(Collectors.groupingBy(AuthRegistration::getGroup)));
+        // 按分组编译认证规则  分组内保持注册顺序
+        Map<String, List<AuthRegistration>> groups = authRules.stream()
+                .collect(Collectors.groupingBy(AuthRegistration::getGroup, LinkedHashMap::new, Collectors.toList()));
+        this.authGroup = ImmutableMap.copyOf(Maps.transformValues(groups, AuthRuleMatcher::compile));
 
         if (!authGroup.containsKey("Default")) {
             throw new RuntimeException("Server auth config error please setup Default auth rule");
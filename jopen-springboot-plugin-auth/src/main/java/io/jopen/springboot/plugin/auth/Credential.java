@@ -41,6 +41,20 @@ public final class Credential implements java.io.Serializable {
      */
     private Object userInfo;
 
+    /**
+     * 凭证的过期时间 单位为Ms  0表示未知或不过期
+     *
+     * @see CredentialCache
+     */
+    private long expireAt;
+
+    /**
+     * 角色位图  比特位只在当前JVM内有效  反序列化后重新计算
+     *
+     * @see RoleRegistry
+     */
+    private transient volatile RoleMask roleMask;
+
     private Credential(boolean valid) {
         this.valid = valid;
     }
@@ -65,6 +79,22 @@ public final class Credential implements java.io.Serializable {
         return userInfo;
     }
 
+    public long getExpireAt() {
+        return expireAt;
+    }
+
+    /**
+     * @return 角色位图
+     */
+    public RoleMask getRoleMask() {
+        RoleMask mask = this.roleMask;
+        if (mask == null) {
+            mask = RoleRegistry.getInstance().mask(this.roles);
+            this.roleMask = mask;
+        }
+        return mask;
+    }
+
     public static Builder builder(boolean valid) {
         return new Builder(valid);
     }
@@ -96,11 +126,20 @@ public final class Credential implements java.io.Serializable {
             return this;
         }
 
+        /**
+         * @param expireAt 凭证的过期时间 单位为Ms  缓存的凭证不会超过此时间
+         */
+        public Builder expireAt(long expireAt) {
+            this.credential.expireAt = expireAt;
+            return this;
+        }
+
         public Credential build() {
             // 如果表示当前对象为空 则不做任何校验
             if (this.credential.valid) {
                 Verify.verify(this.credential.roles != null, "user must has an roles");
             }
+            this.credential.roleMask = RoleRegistry.getInstance().mask(this.credential.roles);
             return this.credential;
         }
     }
@@ -0,0 +1,101 @@
+package io.jopen.springboot.plugin.auth;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.Serializable;
+import java.util.function.Function;
+
+/**
+ * 身份凭证缓存  以请求中提取的Token为Key  避免相同Token重复解析JWT或查询会话
+ * <p>
+ * 由{@link AbstractCredentialFunction#setCredentialCache(CredentialCache)}设置  默认不缓存
+ * 缓存的{@link Credential}被多个请求共享  不应修改其状态
+ * 设置了{@link Credential#getExpireAt()}的凭证过期后不再命中缓存
+ *
+ * @author maxuefeng
+ * @see LocalCredentialCache
+ * @see AbstractCredentialFunction
+ * @since 2020/2/28
+ */
+public interface CredentialCache {
+
+    /**
+     * @param token 请求中提取的Token
+     * @return 缓存的身份凭证  未缓存 缓存已过期或凭证已过期时返回null
+     */
+    @Nullable
+    Credential getIfPresent(@NonNull String token);
+
+    /**
+     * @param token      请求中提取的Token
+     * @param credential 身份凭证  无效的凭证同样缓存  抵御无效Token的暴力请求
+     */
+    void put(@NonNull String token, @NonNull Credential credential);
+
+    /**
+     * 撤销单个Token  如用户退出登录
+     *
+     * @param token 请求中提取的Token
+     */
+    void revoke(@NonNull String token);
+
+    /**
+     * 撤销某个用户的全部Token  如修改密码或禁用账号
+     *
+     * @param identity {@link Credential#getIdentity()}
+     */
+    void revokeIdentity(@NonNull Serializable identity);
+
+    /**
+     * 撤销全部Token
+     */
+    void revokeAll();
+
+    /**
+     * @param token  请求中提取的Token
+     * @param mapper 未命中缓存时解析Token
+     * @return 身份凭证
+     */
+    @NonNull
+    default Credential get(@NonNull String token, @NonNull Function<String, Credential> mapper) {
+        Credential credential = this.getIfPresent(token);
+        if (credential == null) {
+            credential = mapper.apply(token);
+            this.put(token, credential);
+        }
+        return credential;
+    }
+
+    /**
+     * 默认的空对象实现  不缓存
+     */
+    class EmptyCredentialCache implements CredentialCache {
+
+        @Override
+        public @Nullable Credential getIfPresent(@NonNull String token) {
+            return null;
+        }
+
+        @Override
+        public void put(@NonNull String token, @NonNull Credential credential) {
+        }
+
+        @Override
+        public void revoke(@NonNull String token) {
+        }
+
+        @Override
+        public void revokeIdentity(@NonNull Serializable identity) {
+        }
+
+        @Override
+        public void revokeAll() {
+        }
+
+        @Override
+        public @NonNull Credential get(@NonNull String token, @NonNull Function<String, Credential> mapper) {
+            return mapper.apply(token);
+        }
+    }
+}
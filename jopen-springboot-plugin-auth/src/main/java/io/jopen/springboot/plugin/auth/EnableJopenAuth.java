@@ -14,7 +14,9 @@ import java.lang.annotation.*;
 @Inherited
 @Import({AuthenticationInterceptor.class,
         AuthPluginConfiguration.class,
-        AuthContext.class
+        AuthContext.class,
+        // WebFlux应用中生效  需要配置spring.main.web-application-type=reactive
+        ReactiveAuthPluginConfiguration.class
 })
 public @interface EnableJopenAuth {
 
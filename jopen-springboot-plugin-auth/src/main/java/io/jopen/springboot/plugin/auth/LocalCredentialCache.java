@@ -0,0 +1,127 @@
+package io.jopen.springboot.plugin.auth;
+
+import com.google.common.base.Ticker;
+import com.google.common.base.Verify;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Guava Cache的本地身份凭证缓存
+ * <p>
+ * 1 有效凭证和无效凭证分开存放  无效凭证的有效期较短  既能抵御无效Token的暴力请求  又不会长时间拒绝新签发的Token
+ * 2 两类凭证各自按数量上限淘汰  无效Token的洪水不会挤掉有效凭证
+ * 3 凭证带有过期时间{@link Credential#getExpireAt()}时  缓存时间不超过凭证的剩余有效期
+ * 4 撤销只作用于当前节点  集群部署时需要开发者自行广播
+ *
+ * @author maxuefeng
+ * @see CredentialCache
+ * @since 2020/2/28
+ */
+public class LocalCredentialCache implements CredentialCache {
+
+    private final Cache<String, Entry> validCredentials;
+
+    private final Cache<String, Credential> invalidCredentials;
+
+    private final Ticker ticker;
+
+    /**
+     * @param maximumSize 有效凭证和无效凭证各自的数量上限
+     * @param ttl         有效凭证的缓存时间
+     * @param negativeTtl 无效凭证的缓存时间
+     * @param unit        时间单位
+     */
+    public LocalCredentialCache(long maximumSize, long ttl, long negativeTtl, @NonNull TimeUnit unit) {
+        this(maximumSize, ttl, negativeTtl, unit, Ticker.systemTicker());
+    }
+
+    /**
+     * @param ticker 计时器  测试时可以替换
+     */
+    LocalCredentialCache(long maximumSize, long ttl, long negativeTtl, @NonNull TimeUnit unit, @NonNull Ticker ticker) {
+        Verify.verify(maximumSize > 0, "maximumSize must be gt zero");
+        Verify.verify(ttl > 0 && negativeTtl > 0, "ttl must be gt zero");
+        this.ticker = ticker;
+        this.validCredentials = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl, unit)
+                .ticker(ticker)
+                .build();
+        this.invalidCredentials = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(negativeTtl, unit)
+                .ticker(ticker)
+                .build();
+    }
+
+    @Override
+    public @Nullable Credential getIfPresent(@NonNull String token) {
+        Entry entry = validCredentials.getIfPresent(token);
+        if (entry != null) {
+            if (!entry.isExpired(ticker.read())) {
+                return entry.credential;
+            }
+            // 凭证已过期
+            validCredentials.invalidate(token);
+        }
+        return invalidCredentials.getIfPresent(token);
+    }
+
+    @Override
+    public void put(@NonNull String token, @NonNull Credential credential) {
+        if (!credential.getValid()) {
+            invalidCredentials.put(token, credential);
+        } else if (credential.getExpireAt() <= 0L) {
+            validCredentials.put(token, new Entry(credential, false, 0L));
+        } else {
+            long remaining = credential.getExpireAt() - System.currentTimeMillis();
+            // 已过期的凭证不缓存
+            if (remaining > 0L) {
+                validCredentials.put(token, new Entry(credential, true, ticker.read() + TimeUnit.MILLISECONDS.toNanos(remaining)));
+            }
+        }
+    }
+
+    @Override
+    public void revoke(@NonNull String token) {
+        validCredentials.invalidate(token);
+        invalidCredentials.invalidate(token);
+    }
+
+    @Override
+    public void revokeIdentity(@NonNull Serializable identity) {
+        validCredentials.asMap().values().removeIf(entry -> identity.equals(entry.credential.getIdentity()));
+    }
+
+    @Override
+    public void revokeAll() {
+        validCredentials.invalidateAll();
+        invalidCredentials.invalidateAll();
+    }
+
+    private static final class Entry {
+        private final Credential credential;
+
+        private final boolean expirable;
+
+        /**
+         * 凭证在{@link #ticker}上的过期时间
+         */
+        private final long deadline;
+
+        private Entry(Credential credential, boolean expirable, long deadline) {
+            this.credential = credential;
+            this.expirable = expirable;
+            this.deadline = deadline;
+        }
+
+        private boolean isExpired(long now) {
+            return expirable && now - deadline >= 0L;
+        }
+    }
+}
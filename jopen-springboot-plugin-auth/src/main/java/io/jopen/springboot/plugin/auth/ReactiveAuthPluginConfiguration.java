@@ -0,0 +1,58 @@
+package io.jopen.springboot.plugin.auth;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportAware;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.type.AnnotationMetadata;
+
+/**
+ * WebFlux应用中注册{@link ReactiveAuthenticationFilter}  Servlet应用中不生效
+ * <p>
+ * 插件依赖spring-boot-starter-web  类路径中同时存在Spring MVC和WebFlux时SpringBoot默认创建Servlet应用
+ * WebFlux应用需要配置{@code spring.main.web-application-type=reactive}  否则此配置不会生效
+ * <p>
+ * 与{@link AuthPluginConfiguration}读取同一个{@link EnableJopenAuth}注解
+ *
+ * @author maxuefeng
+ * @see ReactiveAuthenticationFilter
+ * @since 2020/2/26
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAuthPluginConfiguration implements ImportAware {
+
+    private int order;
+
+    private String[] pathPatterns;
+
+    private String[] excludePathPatterns;
+
+    @Bean
+    public ReactiveAuthenticationFilter reactiveAuthenticationFilter(AuthenticationInterceptor authenticationInterceptor,
+                                                                     AuthContext authContext) {
+        ReactiveAuthenticationFilter filter = new ReactiveAuthenticationFilter(authenticationInterceptor, authContext);
+        filter.setOrder(this.order);
+        filter.setPathPatterns(this.pathPatterns);
+        filter.setExcludePathPatterns(this.excludePathPatterns);
+        return filter;
+    }
+
+    /**
+     * @param importMetadata 导入的元数据信息
+     */
+    @Override
+    public void setImportMetadata(AnnotationMetadata importMetadata) {
+        AnnotationAttributes enableAuth = AnnotationAttributes
+                .fromMap(importMetadata.getAnnotationAttributes(EnableJopenAuth.class.getName(), false));
+
+        if (enableAuth == null) {
+            throw new IllegalArgumentException(
+                    "@EnableJopenAuth is not present on importing class " + importMetadata.getClassName());
+        }
+        this.order = enableAuth.getNumber("order");
+        this.pathPatterns = enableAuth.getStringArray("pathPatterns");
+        this.excludePathPatterns = enableAuth.getStringArray("excludePathPattern");
+    }
+}
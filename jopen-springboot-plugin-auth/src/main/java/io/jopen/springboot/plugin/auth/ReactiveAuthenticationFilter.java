@@ -0,0 +1,68 @@
+package io.jopen.springboot.plugin.auth;
+
+import io.jopen.springboot.plugin.annotation.cache.BaseWebFilter;
+import io.jopen.springboot.plugin.annotation.cache.HandlerMetadata;
+import lombok.extern.slf4j.Slf4j;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * 身份验证 {@link AuthenticationInterceptor}的WebFlux版本
+ * <p>
+ * 认证规则与{@link AuthenticationInterceptor}共享  凭证由{@link AuthRegistration#getReactiveCredentialFunction()}生产
+ *
+ * @author maxuefeng
+ * @see AuthenticationInterceptor
+ * @see ReactiveAuthPluginConfiguration
+ * @since 2020/2/26
+ */
+@Slf4j
+public class ReactiveAuthenticationFilter extends BaseWebFilter {
+
+    private final AuthenticationInterceptor authenticationInterceptor;
+
+    private final AuthContext authContext;
+
+    public ReactiveAuthenticationFilter(@NonNull AuthenticationInterceptor authenticationInterceptor,
+                                        @NonNull AuthContext authContext) {
+        super(Verify.class);
+        this.authenticationInterceptor = authenticationInterceptor;
+        this.authContext = authContext;
+    }
+
+    @Override
+    protected @NonNull Mono<Void> filter(@NonNull ServerWebExchange exchange,
+                                         @NonNull WebFilterChain chain,
+                                         @NonNull HandlerMetadata handlerMetadata) {
+        Verify verify = handlerMetadata.getAnnotation(Verify.class);
+        if (verify == null) {
+            return chain.filter(exchange);
+        }
+        // 获取请求路径
+        String lookupPath = exchange.getRequest().getPath().pathWithinApplication().value();
+
+        AuthRegistration rule = authenticationInterceptor.findAuthRule(verify, lookupPath);
+
+        if (rule == null) {
+            log.error("Server config error Please setup AuthRegistration of lookup path {} group {}  ", lookupPath, verify.group());
+            return chain.filter(exchange);
+        }
+
+        ReactiveCredentialFunction credentialFunction = rule.getReactiveCredentialFunction();
+        if (credentialFunction == null) {
+            log.error("Server config error Please setup ReactiveCredentialFunction of lookup path {} group {}  ", lookupPath, verify.group());
+            return chain.filter(exchange);
+        }
+
+        return credentialFunction.apply(exchange)
+                .defaultIfEmpty(Credential.INVALID_CREDENTIAL)
+                .flatMap(credential -> {
+                    AuthenticationInterceptor.checkupCredential(credential, AuthenticationInterceptor.requiredRoles(handlerMetadata, verify),
+                            credentialFunction::ifErrorThrowing, verify.require());
+                    authContext.setCredential(exchange, credential);
+                    return chain.filter(exchange);
+                });
+    }
+}
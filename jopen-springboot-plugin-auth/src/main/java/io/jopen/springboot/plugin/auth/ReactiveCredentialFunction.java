@@ -0,0 +1,37 @@
+package io.jopen.springboot.plugin.auth;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * {@link CredentialFunction}的WebFlux版本  由{@link ReactiveAuthenticationFilter}调用
+ * <p>
+ * 查询用户信息等IO操作应返回非阻塞的{@link Mono}
+ *
+ * @author maxuefeng
+ * @see CredentialFunction
+ * @see AuthRegistration.Builder#setupReactiveCredentialFunction(ReactiveCredentialFunction)
+ * @since 2020/2/26
+ */
+@FunctionalInterface
+public interface ReactiveCredentialFunction extends Function<ServerWebExchange, Mono<Credential>> {
+
+    /**
+     * @param exchange {@link ServerWebExchange}
+     * @return {@link Credential#getValid()}  为空时视为{@link Credential#INVALID_CREDENTIAL}
+     */
+    @NonNull
+    Mono<Credential> apply(@NonNull ServerWebExchange exchange);
+
+    /**
+     * 自定义异常  开发者可以覆盖当前Exception
+     *
+     * @see CredentialFunction#ifErrorThrowing()
+     */
+    default RuntimeException ifErrorThrowing() {
+        return new AuthException("access deny! because you has not access this api interface grant!");
+    }
+}
@@ -0,0 +1,48 @@
+package io.jopen.springboot.plugin.auth;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * 角色位图  每个角色对应{@link RoleRegistry}中分配的一个比特位
+ * <p>
+ * 角色数量不超过64个时只有一个long  鉴权只需一次按位与  不产生任何对象
+ *
+ * @author maxuefeng
+ * @see RoleRegistry
+ * @since 2020/2/28
+ */
+public final class RoleMask {
+
+    /**
+     * 不包含任何角色
+     */
+    public static final RoleMask EMPTY = new RoleMask(new long[0]);
+
+    /**
+     * 任何角色都可以访问  对应{@link Verify#role()}为空或*
+     */
+    public static final RoleMask ANY = new RoleMask(new long[0]);
+
+    private final long[] words;
+
+    RoleMask(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * @param other 另一个角色位图
+     * @return 两个位图是否有相同的角色
+     */
+    public boolean intersects(@NonNull RoleMask other) {
+        if (this == ANY || other == ANY) {
+            return true;
+        }
+        int length = Math.min(this.words.length, other.words.length);
+        for (int i = 0; i < length; i++) {
+            if ((this.words[i] & other.words[i]) != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
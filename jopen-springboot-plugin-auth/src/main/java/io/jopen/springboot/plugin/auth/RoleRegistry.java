@@ -0,0 +1,79 @@
+package io.jopen.springboot.plugin.auth;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 角色注册中心  为每个角色名称分配一个固定的比特位
+ * <p>
+ * {@link Verify#role()}在每个接口首次访问时转换为{@link RoleMask}
+ * {@link Credential#getRoles()}在{@link Credential.Builder#build()}时转换为{@link RoleMask}
+ * 比特位只在当前JVM内有效  不随{@link Credential}序列化
+ *
+ * @author maxuefeng
+ * @see RoleMask
+ * @since 2020/2/28
+ */
+public final class RoleRegistry {
+
+    private static final RoleRegistry INSTANCE = new RoleRegistry();
+
+    private final ConcurrentMap<String, Integer> indexes = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    private RoleRegistry() {
+    }
+
+    public static RoleRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param role 角色名称
+     * @return 角色对应的比特位
+     */
+    public int intern(@NonNull String role) {
+        Integer index = indexes.get(role);
+        return index != null ? index : indexes.computeIfAbsent(role, r -> nextIndex.getAndIncrement());
+    }
+
+    /**
+     * @param roles 角色名称
+     * @return 角色位图
+     */
+    @NonNull
+    public RoleMask mask(String @Nullable ... roles) {
+        if (roles == null || roles.length == 0) {
+            return RoleMask.EMPTY;
+        }
+        int[] bits = new int[roles.length];
+        int max = 0;
+        for (int i = 0; i < roles.length; i++) {
+            bits[i] = this.intern(roles[i]);
+            max = Math.max(max, bits[i]);
+        }
+        long[] words = new long[(max >>> 6) + 1];
+        for (int bit : bits) {
+            words[bit >>> 6] |= 1L << bit;
+        }
+        return new RoleMask(words);
+    }
+
+    /**
+     * @param verify 认证注解
+     * @return 接口要求的角色位图  没有设定角色或设定了*号时返回{@link RoleMask#ANY}
+     */
+    @NonNull
+    RoleMask mask(@NonNull Verify verify) {
+        String[] roles = verify.role();
+        if (roles.length == 0 || "*".equals(roles[0])) {
+            return RoleMask.ANY;
+        }
+        return this.mask(roles);
+    }
+}
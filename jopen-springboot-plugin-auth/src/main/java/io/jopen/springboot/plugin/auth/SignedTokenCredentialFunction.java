@@ -0,0 +1,244 @@
+package io.jopen.springboot.plugin.auth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Strings;
+import com.google.common.base.Verify;
+import com.google.common.collect.ImmutableMap;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 无状态签名Token  本地验签  不需要访问会话存储
+ * <p>
+ * 1 Token为JWS紧凑格式(HS256)  即base64url(header).base64url(payload).base64url(signature)  可与其他语言的JWT库互通
+ * 2 header中的kid指定验签密钥  {@link SignedTokenCredentialFunction#rotate(Map, String)}轮换密钥期间新旧Token同时有效
+ * 3 payload中的sub exp roles分别映射为{@link Credential#getIdentity()} {@link Credential#getExpireAt()} {@link Credential#getRoles()}
+ *   完整的payload放入{@link Credential#getUserInfo()}
+ * 4 校验exp和nbf时允许{@link SignedTokenCredentialFunction#setClockSkew(long)}秒的时钟偏差
+ * <p>
+ * Java8不支持Ed25519  仅提供HMAC签名
+ * 配合{@link CredentialCache}使用时  缓存的凭证不会超过Token的过期时间
+ * <p>
+ * 使用实例：
+ * <pre>
+ * SignedTokenCredentialFunction function = new SignedTokenCredentialFunction("Authorization",
+ *         ImmutableMap.of("k1", secret1, "k2", secret2), "k2");
+ * String token = function.sign("userId", new String[]{"user"}, 2, TimeUnit.HOURS);
+ * </pre>
+ *
+ * @author maxuefeng
+ * @see AbstractBeBasedOnHeaderCredentialFunction
+ * @since 2020/2/28
+ */
+public class SignedTokenCredentialFunction extends AbstractBeBasedOnHeaderCredentialFunction {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /**
+     * {@link Mac}不是线程安全的  每个线程复用一个实例
+     */
+    private static final ThreadLocal<Mac> MAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    /**
+     * 验签密钥和签名密钥  轮换时整体替换
+     */
+    private volatile KeyRing keyRing;
+
+    /**
+     * 允许的时钟偏差 单位为秒
+     */
+    private long clockSkew;
+
+    private Clock clock = Clock.systemUTC();
+
+    /**
+     * @param headerKey    Token所在的Header  支持Bearer前缀
+     * @param keys         kid到密钥的映射  包含当前密钥和仍需验签的旧密钥
+     * @param currentKeyId 签发新Token使用的kid
+     */
+    public SignedTokenCredentialFunction(@NonNull String headerKey,
+                                         @NonNull Map<String, byte[]> keys,
+                                         @NonNull String currentKeyId) {
+        super(headerKey);
+        this.rotate(keys, currentKeyId);
+    }
+
+    public long getClockSkew() {
+        return clockSkew;
+    }
+
+    /**
+     * @param clockSkew 签发方与当前节点允许的时钟偏差 单位为秒  默认为0
+     */
+    public void setClockSkew(long clockSkew) {
+        Verify.verify(clockSkew >= 0L, "clockSkew must be ge zero");
+        this.clockSkew = clockSkew;
+    }
+
+    /**
+     * @param clock 时钟  测试时可以替换
+     */
+    void setClock(@NonNull Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * 轮换密钥  配置中心推送新密钥后调用
+     *
+     * @param keys         kid到密钥的映射  包含当前密钥和仍需验签的旧密钥
+     * @param currentKeyId 签发新Token使用的kid
+     */
+    public void rotate(@NonNull Map<String, byte[]> keys, @NonNull String currentKeyId) {
+        Verify.verify(keys.containsKey(currentKeyId), "keys must contain currentKeyId %s", currentKeyId);
+        ImmutableMap.Builder<String, SecretKeySpec> builder = ImmutableMap.builder();
+        keys.forEach((kid, key) -> {
+            Verify.verify(key != null && key.length >= 32, "HS256 key %s must be at least 32 bytes", kid);
+            builder.put(kid, new SecretKeySpec(key, ALGORITHM));
+        });
+        this.keyRing = new KeyRing(builder.build(), currentKeyId);
+    }
+
+    /**
+     * 使用当前密钥签发Token
+     *
+     * @param identity 用户身份的唯一标识符
+     * @param roles    用户角色信息
+     * @param ttl      有效期
+     * @param unit     时间单位
+     * @return 签名Token
+     */
+    @NonNull
+    public String sign(@NonNull String identity, @NonNull String[] roles, long ttl, @NonNull TimeUnit unit) {
+        KeyRing ring = this.keyRing;
+        ObjectNode header = MAPPER.createObjectNode()
+                .put("alg", "HS256")
+                .put("typ", "JWT")
+                .put("kid", ring.currentKeyId);
+        ObjectNode payload = MAPPER.createObjectNode()
+                .put("sub", identity)
+                .put("exp", TimeUnit.MILLISECONDS.toSeconds(clock.millis()) + unit.toSeconds(ttl));
+        ArrayNode roleNodes = payload.putArray("roles");
+        for (String role : roles) {
+            roleNodes.add(role);
+        }
+        String signingInput = ENCODER.encodeToString(header.toString().getBytes(StandardCharsets.UTF_8)) + "." +
+                ENCODER.encodeToString(payload.toString().getBytes(StandardCharsets.UTF_8));
+        byte[] signature = hmac(ring.keys.get(ring.currentKeyId), signingInput);
+        return signingInput + "." + ENCODER.encodeToString(signature);
+    }
+
+    @Override
+    public @NonNull Credential mapHeaderValueToCredential(@NonNull HttpServletRequest request, @NonNull String headerValue) {
+        String token = headerValue.startsWith(BEARER_PREFIX) ? headerValue.substring(BEARER_PREFIX.length()) : headerValue;
+        try {
+            JsonNode payload = this.verifyToken(token);
+            return payload == null ? Credential.INVALID_CREDENTIAL : toCredential(payload);
+        } catch (IOException | IllegalArgumentException e) {
+            // Base64或JSON格式错误
+            return Credential.INVALID_CREDENTIAL;
+        }
+    }
+
+    /**
+     * @param token 签名Token
+     * @return 验签通过且未过期时返回payload  否则返回null
+     */
+    @Nullable
+    private JsonNode verifyToken(String token) throws IOException {
+        int first = token.indexOf('.');
+        int second = token.indexOf('.', first + 1);
+        if (first <= 0 || second <= first + 1 || token.indexOf('.', second + 1) >= 0) {
+            return null;
+        }
+        JsonNode header = MAPPER.readTree(DECODER.decode(token.substring(0, first)));
+        if (!"HS256".equals(header.path("alg").asText())) {
+            return null;
+        }
+        SecretKeySpec key = this.keyRing.keys.get(header.path("kid").asText());
+        if (key == null) {
+            return null;
+        }
+        byte[] expected = hmac(key, token.substring(0, second));
+        byte[] actual = DECODER.decode(token.substring(second + 1));
+        // 常量时间比较  避免时序攻击
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return null;
+        }
+        JsonNode payload = MAPPER.readTree(DECODER.decode(token.substring(first + 1, second)));
+        long now = TimeUnit.MILLISECONDS.toSeconds(clock.millis());
+        if (!payload.path("exp").canConvertToLong() || payload.path("exp").asLong() + clockSkew <= now) {
+            return null;
+        }
+        if (payload.has("nbf") && payload.path("nbf").asLong() - clockSkew > now) {
+            return null;
+        }
+        return payload;
+    }
+
+    private static Credential toCredential(JsonNode payload) {
+        String identity = payload.path("sub").asText();
+        if (Strings.isNullOrEmpty(identity)) {
+            return Credential.INVALID_CREDENTIAL;
+        }
+        JsonNode roleNodes = payload.path("roles");
+        String[] roles = new String[roleNodes.isArray() ? roleNodes.size() : 0];
+        for (int i = 0; i < roles.length; i++) {
+            roles[i] = roleNodes.get(i).asText();
+        }
+        return Credential.builder(true)
+                .identity(identity)
+                .roles(roles)
+                .userInfo(MAPPER.convertValue(payload, Map.class))
+                .expireAt(TimeUnit.SECONDS.toMillis(payload.path("exp").asLong()))
+                .build();
+    }
+
+    private static byte[] hmac(SecretKeySpec key, String signingInput) {
+        Mac mac = MAC.get();
+        try {
+            mac.init(key);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        return mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static final class KeyRing {
+        private final Map<String, SecretKeySpec> keys;
+        private final String currentKeyId;
+
+        private KeyRing(Map<String, SecretKeySpec> keys, String currentKeyId) {
+            this.keys = keys;
+            this.currentKeyId = currentKeyId;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package io.jopen.springboot.plugin.auth;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author maxuefeng
+ * @see AbstractBeBasedOnURLCredentialFunction
+ * @since 2020/2/28
+ */
+public class AbstractBeBasedOnURLCredentialFunctionTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final AbstractBeBasedOnURLCredentialFunction function = new AbstractBeBasedOnURLCredentialFunction("token") {
+        @Override
+        protected @NonNull Credential mapCookieToCredential(@NonNull HttpServletRequest request, @NonNull String urlParamValue) {
+            loads.incrementAndGet();
+            return Credential.builder(true).identity(urlParamValue).roles("user").build();
+        }
+    };
+
+    private static MockHttpServletRequest request(String token, String page) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders");
+        if (token != null) {
+            request.addParameter("token", token);
+        }
+        request.addParameter("page", page);
+        return request;
+    }
+
+    @Test
+    public void cacheIsKeyedOnToken() {
+        function.setCredentialCache(new LocalCredentialCache(100, 60, 5, TimeUnit.SECONDS));
+
+        Assert.assertEquals("t1", function.apply(request("t1", "1")).getIdentity());
+        // 其他URL参数不同  仍然命中缓存
+        Assert.assertEquals("t1", function.apply(request("t1", "2")).getIdentity());
+        Assert.assertEquals(1, loads.get());
+
+        Assert.assertEquals("t2", function.apply(request("t2", "1")).getIdentity());
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void missingToken() {
+        Assert.assertFalse(function.apply(request(null, "1")).getValid());
+        Assert.assertEquals(0, loads.get());
+    }
+}
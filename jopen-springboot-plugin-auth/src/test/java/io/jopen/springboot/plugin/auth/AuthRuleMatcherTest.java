@@ -0,0 +1,48 @@
+package io.jopen.springboot.plugin.auth;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * @author maxuefeng
+ * @see AuthRuleMatcher
+ * @since 2020/2/27
+ */
+public class AuthRuleMatcherTest {
+
+    private final AuthRegistration user = AuthRegistration.builder().group("Default").addAuthPathPattern("/user/**").build();
+    private final AuthRegistration order = AuthRegistration.builder().group("Default").addAuthPathPattern("/order/{id}/detail", "/shop/*/item").build();
+    private final AuthRegistration nested = AuthRegistration.builder().group("Default").addAuthPathPattern("/a/**/b").build();
+    private final AuthRegistration all = AuthRegistration.builder().group("Default").addAuthPathPattern("/**").build();
+
+    private final AuthRuleMatcher matcher = AuthRuleMatcher.compile(Arrays.asList(user, order, nested, all));
+
+    @Test
+    public void testMatch() {
+        Assert.assertSame(user, matcher.match("/user"));
+        Assert.assertSame(user, matcher.match("/user/1/profile"));
+        Assert.assertSame(order, matcher.match("/order/1/detail"));
+        Assert.assertSame(order, matcher.match("/shop/3/item"));
+        Assert.assertSame(all, matcher.match("/order/1"));
+        // 与AntPathMatcher一致  中间的**匹配多个路径段
+        Assert.assertSame(nested, matcher.match("/a/c/d/b"));
+        Assert.assertSame(nested, matcher.match("/a/b"));
+    }
+
+    @Test
+    public void testRegistrationOrder() {
+        // 多个规则同时匹配时返回注册顺序最靠前的规则
+        AuthRuleMatcher reversed = AuthRuleMatcher.compile(Arrays.asList(all, user));
+        Assert.assertSame(all, reversed.match("/user/1"));
+        Assert.assertSame(all, reversed.match("/user/1"));
+    }
+
+    @Test
+    public void testNoMatch() {
+        AuthRuleMatcher matcher = AuthRuleMatcher.compile(Arrays.asList(user, order));
+        Assert.assertNull(matcher.match("/other"));
+        Assert.assertNull(matcher.match("/shop/3/item/"));
+    }
+}
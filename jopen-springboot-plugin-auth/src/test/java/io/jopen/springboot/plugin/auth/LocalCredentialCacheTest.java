@@ -0,0 +1,128 @@
+package io.jopen.springboot.plugin.auth;
+
+import com.google.common.base.Ticker;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author maxuefeng
+ * @see LocalCredentialCache
+ * @since 2020/2/28
+ */
+public class LocalCredentialCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private LocalCredentialCache cache(long maximumSize) {
+        return new LocalCredentialCache(maximumSize, 60, 5, TimeUnit.SECONDS, ticker);
+    }
+
+    private Credential load(LocalCredentialCache cache, String token, Credential credential) {
+        return cache.get(token, t -> {
+            loads.incrementAndGet();
+            return credential;
+        });
+    }
+
+    private void advance(long seconds) {
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    private static Credential valid(String identity) {
+        return Credential.builder(true).identity(identity).roles("user").build();
+    }
+
+    @Test
+    public void validCredentialExpiresAfterTtl() {
+        LocalCredentialCache cache = cache(100);
+        Credential credential = valid("u1");
+        Assert.assertSame(credential, load(cache, "t1", credential));
+        Assert.assertSame(credential, load(cache, "t1", credential));
+        Assert.assertEquals(1, loads.get());
+
+        advance(61);
+        load(cache, "t1", credential);
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void negativeCaching() {
+        LocalCredentialCache cache = cache(100);
+        Assert.assertFalse(load(cache, "bad", Credential.INVALID_CREDENTIAL).getValid());
+        Assert.assertFalse(load(cache, "bad", Credential.INVALID_CREDENTIAL).getValid());
+        Assert.assertEquals(1, loads.get());
+
+        // 无效凭证的缓存时间较短
+        advance(6);
+        load(cache, "bad", Credential.INVALID_CREDENTIAL);
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void lifetimeIsCappedAtCredentialExpiry() {
+        LocalCredentialCache cache = cache(100);
+        Credential credential = Credential.builder(true).identity("u1").roles("user")
+                .expireAt(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10)).build();
+        load(cache, "t1", credential);
+        Assert.assertSame(credential, cache.getIfPresent("t1"));
+
+        // 缓存时间未到  凭证已过期
+        advance(11);
+        Assert.assertNull(cache.getIfPresent("t1"));
+    }
+
+    @Test
+    public void expiredCredentialIsNotCached() {
+        LocalCredentialCache cache = cache(100);
+        Credential credential = Credential.builder(true).identity("u1").roles("user")
+                .expireAt(System.currentTimeMillis() - 1).build();
+        cache.put("t1", credential);
+        Assert.assertNull(cache.getIfPresent("t1"));
+    }
+
+    @Test
+    public void revoke() {
+        LocalCredentialCache cache = cache(100);
+        cache.put("t1", valid("u1"));
+        cache.put("t2", valid("u1"));
+        cache.put("t3", valid("u2"));
+        cache.put("bad", Credential.INVALID_CREDENTIAL);
+
+        cache.revoke("t1");
+        Assert.assertNull(cache.getIfPresent("t1"));
+
+        cache.revokeIdentity("u1");
+        Assert.assertNull(cache.getIfPresent("t2"));
+        Assert.assertNotNull(cache.getIfPresent("t3"));
+
+        cache.revokeAll();
+        Assert.assertNull(cache.getIfPresent("t3"));
+        Assert.assertNull(cache.getIfPresent("bad"));
+    }
+
+    @Test
+    public void invalidFloodDoesNotEvictValid() {
+        LocalCredentialCache cache = cache(10);
+        Credential credential = valid("u1");
+        cache.put("t1", credential);
+        for (int i = 0; i < 100; i++) {
+            cache.put("bad-" + i, Credential.INVALID_CREDENTIAL);
+        }
+        Assert.assertSame(credential, cache.getIfPresent("t1"));
+        // 无效凭证按自身的数量上限淘汰
+        Assert.assertNull(cache.getIfPresent("bad-0"));
+    }
+}
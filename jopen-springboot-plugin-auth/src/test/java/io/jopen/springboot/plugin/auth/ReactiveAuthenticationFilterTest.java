@@ -0,0 +1,127 @@
+package io.jopen.springboot.plugin.auth;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+import io.jopen.springboot.plugin.annotation.cache.HandlerMetadata;
+import io.jopen.springboot.plugin.annotation.cache.HandlerMetadataRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author maxuefeng
+ * @see ReactiveAuthenticationFilter
+ * @since 2020/2/26
+ */
+public class ReactiveAuthenticationFilterTest {
+
+    public static class DemoController {
+
+        @Verify(role = "admin")
+        public void admin() {
+        }
+
+        @Verify(require = false)
+        public void optional() {
+        }
+
+        public void open() {
+        }
+    }
+
+    /**
+     * 请求头token的值即为角色  没有token时为空
+     */
+    private static final ReactiveCredentialFunction HEADER_ROLE = exchange -> {
+        String token = exchange.getRequest().getHeaders().getFirst("token");
+        return Strings.isNullOrEmpty(token) ? Mono.empty() :
+                Mono.just(Credential.builder(true).identity(token).roles(token).build());
+    };
+
+    private final AtomicInteger passed = new AtomicInteger();
+
+    private final WebFilterChain chain = exchange -> {
+        passed.incrementAndGet();
+        return Mono.empty();
+    };
+
+    private final AuthContext authContext = new AuthContext();
+
+    private ReactiveAuthenticationFilter filter() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(AuthContext.class, () -> authContext);
+        context.registerBean(AuthMetadata.class, () -> () -> ImmutableSet.of(AuthRegistration.builder()
+                .addAuthPathPattern("/api/**")
+                .setupReactiveCredentialFunction(HEADER_ROLE)
+                .build()));
+        context.registerBean(AuthenticationInterceptor.class);
+        context.refresh();
+        AuthenticationInterceptor interceptor = context.getBean(AuthenticationInterceptor.class);
+        interceptor.run();
+        return new ReactiveAuthenticationFilter(interceptor, authContext);
+    }
+
+    private static HandlerMetadata metadata(String method) throws NoSuchMethodException {
+        return HandlerMetadataRegistry.getInstance().get(new HandlerMethod(new DemoController(), DemoController.class.getMethod(method)));
+    }
+
+    private static MockServerWebExchange exchange(String path, String token) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(path);
+        if (token != null) {
+            request.header("token", token);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private static boolean rejected(Mono<Void> result) {
+        try {
+            result.block();
+            return false;
+        } catch (AuthException e) {
+            return true;
+        }
+    }
+
+    @Test
+    public void credentialIsExposedToHandler() throws NoSuchMethodException {
+        ReactiveAuthenticationFilter filter = filter();
+        MockServerWebExchange exchange = exchange("/api/orders", "admin");
+        Assert.assertFalse(rejected(filter.filter(exchange, chain, metadata("admin"))));
+        Credential credential = authContext.getCredential(exchange);
+        Assert.assertNotNull(credential);
+        Assert.assertEquals("admin", credential.getIdentity());
+        Assert.assertEquals(1, passed.get());
+    }
+
+    @Test
+    public void roleMismatchIsRejected() throws NoSuchMethodException {
+        ReactiveAuthenticationFilter filter = filter();
+        Assert.assertTrue(rejected(filter.filter(exchange("/api/orders", "user"), chain, metadata("admin"))));
+        Assert.assertEquals(0, passed.get());
+    }
+
+    @Test
+    public void missingCredential() throws NoSuchMethodException {
+        ReactiveAuthenticationFilter filter = filter();
+        Assert.assertTrue(rejected(filter.filter(exchange("/api/orders", null), chain, metadata("admin"))));
+        // 不强制认证时放行
+        MockServerWebExchange exchange = exchange("/api/orders", null);
+        Assert.assertFalse(rejected(filter.filter(exchange, chain, metadata("optional"))));
+        Assert.assertFalse(authContext.getCredential(exchange).getValid());
+        Assert.assertEquals(1, passed.get());
+    }
+
+    @Test
+    public void withoutVerifyPasses() throws NoSuchMethodException {
+        ReactiveAuthenticationFilter filter = filter();
+        Assert.assertFalse(rejected(filter.filter(exchange("/api/orders", null), chain, metadata("open"))));
+        Assert.assertEquals(1, passed.get());
+    }
+}
@@ -0,0 +1,205 @@
+package io.jopen.springboot.plugin.auth;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author maxuefeng
+ * @see SignedTokenCredentialFunction
+ * @since 2020/2/28
+ */
+public class SignedTokenCredentialFunctionTest {
+
+    private static final byte[] K1 = key('1');
+
+    private static final byte[] K2 = key('2');
+
+    private static final long NOW = 1582848000L;
+
+    /**
+     * 可调整的时钟
+     */
+    private static final class MutableClock extends Clock {
+        private long millis = TimeUnit.SECONDS.toMillis(NOW);
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+    }
+
+    private final MutableClock clock = new MutableClock();
+
+    private SignedTokenCredentialFunction function() {
+        SignedTokenCredentialFunction function = new SignedTokenCredentialFunction("Authorization", ImmutableMap.of("k1", K1), "k1");
+        function.setClock(clock);
+        return function;
+    }
+
+    private static byte[] key(char c) {
+        byte[] key = new byte[32];
+        Arrays.fill(key, (byte) c);
+        return key;
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 手工签发Token
+     */
+    private static String token(String header, String payload, byte[] key) throws Exception {
+        String signingInput = encode(header) + "." + encode(payload);
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        byte[] signature = mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    private static String payload(long exp) {
+        return "{\"sub\":\"u1\",\"exp\":" + exp + ",\"roles\":[\"user\"]}";
+    }
+
+    private static Credential verify(SignedTokenCredentialFunction function, String headerValue) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders");
+        request.addHeader("Authorization", headerValue);
+        return function.apply(request);
+    }
+
+    @Test
+    public void signAndVerify() {
+        SignedTokenCredentialFunction function = function();
+        String token = function.sign("u1", new String[]{"user", "admin"}, 2, TimeUnit.HOURS);
+
+        Credential credential = verify(function, "Bearer " + token);
+        Assert.assertTrue(credential.getValid());
+        Assert.assertEquals("u1", credential.getIdentity());
+        Assert.assertArrayEquals(new String[]{"user", "admin"}, credential.getRoles());
+        // exp带入凭证  缓存不会超过Token的过期时间
+        Assert.assertEquals(TimeUnit.SECONDS.toMillis(NOW + 7200), credential.getExpireAt());
+        Assert.assertTrue(verify(function, token).getValid());
+    }
+
+    @Test
+    public void otherAlgorithmIsRejected() throws Exception {
+        SignedTokenCredentialFunction function = function();
+        Assert.assertTrue(verify(function, token("{\"alg\":\"HS256\",\"kid\":\"k1\"}", payload(NOW + 60), K1)).getValid());
+        Assert.assertFalse(verify(function, token("{\"alg\":\"HS512\",\"kid\":\"k1\"}", payload(NOW + 60), K1)).getValid());
+        Assert.assertFalse(verify(function, token("{\"alg\":\"none\",\"kid\":\"k1\"}", payload(NOW + 60), K1)).getValid());
+        Assert.assertFalse(verify(function, encode("{\"alg\":\"none\",\"kid\":\"k1\"}") + "." + encode(payload(NOW + 60)) + ".").getValid());
+    }
+
+    @Test
+    public void unknownKeyIdIsRejected() throws Exception {
+        SignedTokenCredentialFunction function = function();
+        Assert.assertFalse(verify(function, token("{\"alg\":\"HS256\",\"kid\":\"k9\"}", payload(NOW + 60), K1)).getValid());
+        Assert.assertFalse(verify(function, token("{\"alg\":\"HS256\"}", payload(NOW + 60), K1)).getValid());
+    }
+
+    @Test
+    public void tamperedTokenIsRejected() throws Exception {
+        SignedTokenCredentialFunction function = function();
+        String token = function.sign("u1", new String[]{"user"}, 1, TimeUnit.HOURS);
+        String[] parts = token.split("\\.");
+
+        // 修改payload
+        String forged = parts[0] + "." + encode("{\"sub\":\"u1\",\"exp\":" + (NOW + 3600) + ",\"roles\":[\"admin\"]}") + "." + parts[2];
+        Assert.assertFalse(verify(function, forged).getValid());
+        // 修改签名
+        char last = parts[2].charAt(0);
+        String tampered = parts[0] + "." + parts[1] + "." + (last == 'A' ? 'B' : 'A') + parts[2].substring(1);
+        Assert.assertFalse(verify(function, tampered).getValid());
+        // 使用其他密钥签名
+        Assert.assertFalse(verify(function, token("{\"alg\":\"HS256\",\"kid\":\"k1\"}", payload(NOW + 60), K2)).getValid());
+    }
+
+    @Test
+    public void malformedTokenIsRejected() {
+        SignedTokenCredentialFunction function = function();
+        String token = function.sign("u1", new String[]{"user"}, 1, TimeUnit.HOURS);
+        String[] parts = token.split("\\.");
+
+        for (String malformed : new String[]{"", "Bearer ", "abc", parts[0], parts[0] + "." + parts[1],
+                parts[0] + "." + parts[1] + ".", "." + parts[1] + "." + parts[2], parts[0] + ".." + parts[2],
+                token + ".", token + "." + parts[2], "!!!." + parts[1] + "." + parts[2], encode("not json") + "." + parts[1] + "." + parts[2]}) {
+            Assert.assertFalse(malformed, verify(function, malformed).getValid());
+        }
+    }
+
+    @Test
+    public void expiryAndNotBeforeWithClockSkew() throws Exception {
+        SignedTokenCredentialFunction function = function();
+        String header = "{\"alg\":\"HS256\",\"kid\":\"k1\"}";
+        String expired = token(header, payload(NOW - 10), K1);
+        String notYetValid = token(header, "{\"sub\":\"u1\",\"exp\":" + (NOW + 3600) + ",\"nbf\":" + (NOW + 10) + ",\"roles\":[\"user\"]}", K1);
+        String withoutExp = token(header, "{\"sub\":\"u1\",\"roles\":[\"user\"]}", K1);
+
+        Assert.assertFalse(verify(function, expired).getValid());
+        Assert.assertFalse(verify(function, notYetValid).getValid());
+        Assert.assertFalse(verify(function, withoutExp).getValid());
+
+        // 允许30秒的时钟偏差
+        function.setClockSkew(30);
+        Assert.assertTrue(verify(function, expired).getValid());
+        Assert.assertTrue(verify(function, notYetValid).getValid());
+        Assert.assertFalse(verify(function, withoutExp).getValid());
+
+        // 超过时钟偏差
+        clock.millis += TimeUnit.SECONDS.toMillis(21);
+        Assert.assertFalse(verify(function, expired).getValid());
+        clock.millis -= TimeUnit.SECONDS.toMillis(62);
+        Assert.assertFalse(verify(function, notYetValid).getValid());
+    }
+
+    @Test
+    public void keyRotation() {
+        SignedTokenCredentialFunction function = function();
+        String oldToken = function.sign("u1", new String[]{"user"}, 1, TimeUnit.HOURS);
+
+        // 轮换期间新旧Token同时有效
+        function.rotate(ImmutableMap.of("k1", K1, "k2", K2), "k2");
+        String newToken = function.sign("u1", new String[]{"user"}, 1, TimeUnit.HOURS);
+        Assert.assertNotEquals(oldToken, newToken);
+        Assert.assertTrue(verify(function, oldToken).getValid());
+        Assert.assertTrue(verify(function, newToken).getValid());
+
+        // 移除旧密钥后旧Token失效
+        function.rotate(ImmutableMap.of("k2", K2), "k2");
+        Assert.assertFalse(verify(function, oldToken).getValid());
+        Assert.assertTrue(verify(function, newToken).getValid());
+    }
+
+    @Test(expected = com.google.common.base.VerifyException.class)
+    public void rotateRequiresCurrentKey() {
+        function().rotate(ImmutableMap.of("k2", K2), "k1");
+    }
+}
@@ -1,10 +1,16 @@
 package io.jopen.springboot.plugin.common;
 
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.ImportAware;
+import org.springframework.core.annotation.AnnotationAttributes;
 import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author maxuefeng
  * @see com.google.common.eventbus.EventBus
@@ -19,16 +25,83 @@ public class CommonPluginConfiguration implements ImportAware {
 
     // private boolean printExceptionStack = false;
 
+    /**
+     * @see EnableJopenCommon#leaseNodeId()
+     */
+    private boolean leaseNodeId = false;
+
+    /**
+     * @see EnableJopenCommon#nodeIdLeaseTtl()
+     */
+    private int nodeIdLeaseTtl = 30;
+
+    /**
+     * @see EnableJopenCommon#segmentStep()
+     */
+    private int segmentStep = 0;
+
+    /**
+     * @see EnableJopenCommon#segmentTag()
+     */
+    private String segmentTag = "id";
+
+    /**
+     * {@link IDUtil}的节点ID租约  容器关闭时释放
+     *
+     * @param applicationContext 开启租约时从中获取StringRedisTemplate
+     * @return {@link NodeIdLease}
+     */
+    @Bean(destroyMethod = "close")
+    public NodeIdLease nodeIdLease(ApplicationContext applicationContext) {
+        NodeIdLease lease = this.leaseNodeId
+                ? redisNodeIdLease(applicationContext, TimeUnit.SECONDS.toMillis(this.nodeIdLeaseTtl))
+                : new NodeIdLease.LocalNodeIdLease();
+        IDUtil.setNodeIdLease(lease);
+        return lease;
+    }
+
+    /**
+     * 号段模式的ID生成器  未开启时为{@link IDUtil#getSequenceGenerator()}
+     *
+     * @param applicationContext 开启号段模式时从中获取StringRedisTemplate
+     * @param nodeIdLease        保证在节点ID确定之后创建
+     * @return {@link IDUtil}使用的ID生成器
+     */
+    @Bean
+    public IdGenerator idGenerator(ApplicationContext applicationContext, NodeIdLease nodeIdLease) {
+        if (this.segmentStep > 0) {
+            IDUtil.setIdGenerator(new SegmentIdGenerator(redisSegmentStore(applicationContext), this.segmentTag, this.segmentStep));
+        }
+        return IDUtil.getIdGenerator();
+    }
+
+    /**
+     * 单独的方法  未开启租约时不加载Redis相关的类
+     */
+    private static NodeIdLease redisNodeIdLease(ApplicationContext applicationContext, long ttl) {
+        return RedisNodeIdLease.acquire(applicationContext.getBean(StringRedisTemplate.class), ttl);
+    }
+
+    private static SegmentStore redisSegmentStore(ApplicationContext applicationContext) {
+        return new RedisSegmentStore(applicationContext.getBean(StringRedisTemplate.class));
+    }
+
     @Override
     public void setImportMetadata(AnnotationMetadata importMetadata) {
-        /*AnnotationAttributes enableCommon = AnnotationAttributes
+        AnnotationAttributes enableCommon = AnnotationAttributes
                 .fromMap(importMetadata.getAnnotationAttributes(EnableJopenCommon.class.getName(), false));
 
         if (enableCommon == null) {
             throw new IllegalArgumentException(
-                    "@EnableCommon is not present on importing class " + importMetadata.getClassName());
+                    "@EnableJopenCommon is not present on importing class " + importMetadata.getClassName());
         }
 
+        this.leaseNodeId = enableCommon.getBoolean("leaseNodeId");
+        this.nodeIdLeaseTtl = enableCommon.getNumber("nodeIdLeaseTtl");
+        this.segmentStep = enableCommon.getNumber("segmentStep");
+        this.segmentTag = enableCommon.getString("segmentTag");
+
+        /*
         // 配置是否打印全局异常
         String[] printExceptionStackEnvs = enableCommon.getStringArray("printExceptionStackInfoInEnv");
         List<String> printExceptionStackEnvList = Arrays.asList(printExceptionStackEnvs);
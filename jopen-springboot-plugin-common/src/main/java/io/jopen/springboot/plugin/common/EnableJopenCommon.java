@@ -29,4 +29,36 @@ public @interface EnableJopenCommon {
      */
    //  String[] printExceptionStackInfoInEnv() default {};
 
+    /**
+     * 是否通过Redis租用{@link IDUtil}的节点ID  需要容器中存在StringRedisTemplate
+     * 不开启时节点ID由本机MAC地址计算  多个实例之间可能重复
+     *
+     * @return
+     * @see RedisNodeIdLease
+     */
+    boolean leaseNodeId() default false;
+
+    /**
+     * 节点ID租约的有效期 单位为秒  实例宕机后节点ID在此时间之后才能被重新租用
+     *
+     * @return
+     */
+    int nodeIdLeaseTtl() default 30;
+
+    /**
+     * 大于0时{@link IDUtil}使用号段模式  每次通过Redis INCRBY分配segmentStep个ID  需要容器中存在StringRedisTemplate
+     * 应大于高峰期每秒生成的ID数量
+     *
+     * @return
+     * @see SegmentIdGenerator
+     */
+    int segmentStep() default 0;
+
+    /**
+     * 号段模式的业务标识  共享同一个标识的应用生成的ID不重复
+     *
+     * @return
+     */
+    String segmentTag() default "id";
+
 }
@@ -0,0 +1,163 @@
+package io.jopen.springboot.plugin.common;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * 一个类的字段读取函数  每个类只创建一次  按类缓存在{@link ClassValue}中
+ * <p>
+ * 1 字段包括当前类和所有父类声明的字段(包括静态字段)  当前类的字段在前  被子类同名字段隐藏的父类字段不包括在内
+ * 2 字段读取函数为{@link MethodHandle}  创建时调用一次setAccessible  读取时不再查找字段
+ * 3 {@link #forEachField(Object, BiConsumer)}和{@link #get(Object, int)}不创建对象
+ * 4 不可访问的字段(如Java9以上JDK模块中的私有字段)不包括在内
+ *
+ * @author maxuefeng
+ * @see ReflectUtil#getObjFiledValues(Object)
+ * @since 2020/3/28
+ */
+public final class FieldAccessors {
+
+    private static final ClassValue<FieldAccessors> CACHE = new ClassValue<FieldAccessors>() {
+        @Override
+        protected FieldAccessors computeValue(Class<?> type) {
+            return new FieldAccessors(type);
+        }
+    };
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final String[] names;
+
+    private final MethodHandle[] getters;
+
+    private final Map<String, Integer> indexes;
+
+    private FieldAccessors(Class<?> type) {
+        List<String> names = new ArrayList<>();
+        List<MethodHandle> getters = new ArrayList<>();
+        Map<String, Integer> indexes = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                // 被子类同名字段隐藏
+                if (!seen.add(field.getName())) {
+                    continue;
+                }
+                MethodHandle getter = getter(field);
+                if (getter != null) {
+                    indexes.put(field.getName(), names.size());
+                    names.add(field.getName());
+                    getters.add(getter);
+                }
+            }
+        }
+        this.names = names.toArray(new String[0]);
+        this.getters = getters.toArray(new MethodHandle[0]);
+        this.indexes = indexes;
+    }
+
+    /**
+     * @param type 类型
+     * @return 此类型的字段读取函数
+     */
+    @NonNull
+    public static FieldAccessors of(@NonNull Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    /**
+     * @return 字段数量
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param index 字段下标
+     * @return 字段名
+     */
+    @NonNull
+    public String name(int index) {
+        return names[index];
+    }
+
+    /**
+     * @param name 字段名
+     * @return 字段下标  不存在时返回-1
+     */
+    public int indexOf(@NonNull String name) {
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param target 对象  类型必须为创建此实例的类型或其子类
+     * @param index  字段下标
+     * @return 字段值
+     */
+    @Nullable
+    public Object get(@NonNull Object target, int index) {
+        try {
+            return (Object) getters[index].invokeExact(target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 按字段顺序遍历所有字段
+     *
+     * @param target   对象
+     * @param consumer 字段名和字段值
+     */
+    public void forEachField(@NonNull Object target, @NonNull BiConsumer<String, Object> consumer) {
+        for (int i = 0; i < names.length; i++) {
+            consumer.accept(names[i], get(target, i));
+        }
+    }
+
+    /**
+     * @param target 对象
+     * @return 字段名和字段值
+     */
+    @NonNull
+    public Map<String, Object> toMap(@NonNull Object target) {
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            values.put(names[i], get(target, i));
+        }
+        return values;
+    }
+
+    /**
+     * @return 字段不可访问时返回null
+     */
+    private static MethodHandle getter(Field field) {
+        try {
+            field.setAccessible(true);
+            MethodHandle getter = MethodHandles.lookup().unreflectGetter(field);
+            if (Modifier.isStatic(field.getModifiers())) {
+                getter = MethodHandles.dropArguments(getter, 0, Object.class);
+            }
+            return getter.asType(GETTER_TYPE);
+        } catch (IllegalAccessException | RuntimeException e) {
+            // Java9以上setAccessible可能抛出InaccessibleObjectException
+            return null;
+        }
+    }
+}
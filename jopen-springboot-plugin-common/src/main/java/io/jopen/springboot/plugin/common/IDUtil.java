@@ -1,35 +1,79 @@
 package io.jopen.springboot.plugin.common;
 
-import org.apache.commons.lang3.RandomUtils;
-
 import java.util.Date;
 
 /**
  * 全局对象
+ * <p>
+ * 所有类型的ID共用一个{@link IdGenerator}  同一实例内不同类型的ID也不重复
+ * 默认为{@link SequenceGenerator}  节点ID默认由本机MAC地址计算  开启{@link EnableJopenCommon#leaseNodeId()}后由{@link NodeIdLease}租用  集群内不重复
+ * 开启{@link EnableJopenCommon#segmentStep()}后为{@link SegmentIdGenerator}  不受每毫秒4096个ID的限制
  *
  * @author maxuefeng
  * @since 2019-04-26
  */
 public class IDUtil {
 
-    /*orderId*/
-    private static SequenceGenerator sequenceGenerator4 = new SequenceGenerator(RandomUtils.nextInt(7, 8));
+    private static volatile SequenceGenerator sequenceGenerator = new SequenceGenerator();
+
+    private static volatile IdGenerator idGenerator = sequenceGenerator;
 
-    /*流水号*/
-    private static SequenceGenerator sequenceGenerator1 = new SequenceGenerator(RandomUtils.nextInt(5, 6));
+    /**
+     * 更换节点ID  应在生成ID之前调用  如应用启动时租到节点ID之后
+     *
+     * @param nodeId 节点ID  区间范围在0-1023
+     */
+    public static void setNodeId(int nodeId) {
+        // 相同节点ID的新生成器会从当前毫秒重新计数  可能与已生成的ID重复
+        if (sequenceGenerator.getNodeId() != nodeId) {
+            replaceSequenceGenerator(new SequenceGenerator(nodeId));
+        }
+    }
+
+    /**
+     * 使用租到的节点ID  应在生成ID之前调用
+     * 租约到期或节点ID变更后原生成器抛出异常  重新租到其他节点ID时更换生成器
+     *
+     * @param lease 节点ID租约
+     */
+    public static void setNodeIdLease(NodeIdLease lease) {
+        replaceSequenceGenerator(new SequenceGenerator(lease));
+        lease.addListener(nodeId -> replaceSequenceGenerator(new SequenceGenerator(lease)));
+    }
 
-    /*用户ID*/
-    private static SequenceGenerator sequenceGenerator2 = new SequenceGenerator(RandomUtils.nextInt(3, 4));
+    private static synchronized void replaceSequenceGenerator(SequenceGenerator generator) {
+        SequenceGenerator previous = sequenceGenerator;
+        sequenceGenerator = generator;
+        if (idGenerator == previous) {
+            idGenerator = generator;
+        }
+    }
 
-    /*1-2*/
-    private static SequenceGenerator sequenceGenerator3 = new SequenceGenerator(RandomUtils.nextInt(1, 2));
+    /**
+     * 更换生成ID的生成器  如号段模式{@link SegmentIdGenerator}
+     *
+     * @param generator ID生成器
+     */
+    public static synchronized void setIdGenerator(IdGenerator generator) {
+        idGenerator = generator;
+    }
 
-    /*票据id*/
-    private static SequenceGenerator sequenceGenerator5 = new SequenceGenerator(RandomUtils.nextInt(9, 10));
+    /**
+     * @return 生成ID的生成器  用于批量生成{@link IdGenerator#nextIds(int)}
+     */
+    public static IdGenerator getIdGenerator() {
+        return idGenerator;
+    }
 
+    /**
+     * @return 雪花算法的生成器  ID中包含时间戳  不受{@link #setIdGenerator(IdGenerator)}影响
+     */
+    public static SequenceGenerator getSequenceGenerator() {
+        return sequenceGenerator;
+    }
 
     public static String id() {
-        return sequenceGenerator3.nextId() + "";
+        return idGenerator.nextId() + "";
     }
 
     public static String id(String start) {
@@ -42,7 +86,7 @@ public class IDUtil {
      * @return
      */
     public static String sn() {
-        return sequenceGenerator1.nextId() + "";
+        return idGenerator.nextId() + "";
     }
 
     /**
@@ -51,15 +95,15 @@ public class IDUtil {
      * @return
      */
     public static String uid() {
-        return sequenceGenerator2.nextId() + "";
+        return idGenerator.nextId() + "";
     }
 
     public static String orderId() {
-        return sequenceGenerator4.nextId() + "";
+        return idGenerator.nextId() + "";
     }
 
     public static String credentialId() {
-        return sequenceGenerator5.nextId() + "";
+        return idGenerator.nextId() + "";
     }
 
     public static Long now() {
@@ -0,0 +1,20 @@
+package io.jopen.springboot.plugin.common;
+
+/**
+ * ID生成器  {@link IDUtil}通过此接口生成ID
+ *
+ * @author maxuefeng
+ * @see SequenceGenerator
+ * @see SegmentIdGenerator
+ * @since 2020/3/28
+ */
+public interface IdGenerator {
+
+    long nextId();
+
+    /**
+     * @param n 数量
+     * @return n个ID
+     */
+    long[] nextIds(int n);
+}
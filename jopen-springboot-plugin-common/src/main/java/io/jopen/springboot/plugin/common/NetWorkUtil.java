@@ -1,8 +1,11 @@
 package io.jopen.springboot.plugin.common;
 
 import com.google.common.base.Strings;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 
 import javax.servlet.http.HttpServletRequest;
+import java.net.InetSocketAddress;
 import java.net.InterfaceAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
@@ -46,6 +49,23 @@ public class NetWorkUtil {
         return ip;
     }
 
+    /**
+     * 获取IP地址  WebFlux版本
+     *
+     * @see NetWorkUtil#getIpAddr(HttpServletRequest)
+     */
+    public static String getIpAddr(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        for (String header : new String[]{"x-forwarded-for", "Proxy-Client-IP", "WL-Proxy-Client-IP", "HTTP_CLIENT_IP", "HTTP_X_FORWARDED_FOR"}) {
+            String ip = headers.getFirst(header);
+            if (!Strings.isNullOrEmpty(ip) && !"unknown".equalsIgnoreCase(ip)) {
+                return ip;
+            }
+        }
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        return remoteAddress == null ? null : remoteAddress.getHostString();
+    }
+
     public static String getLocalIP() throws SocketException {
 
         Enumeration<NetworkInterface> networkInterfaces = NetworkInterface.getNetworkInterfaces();
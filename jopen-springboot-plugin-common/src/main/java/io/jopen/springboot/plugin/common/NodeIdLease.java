@@ -0,0 +1,60 @@
+package io.jopen.springboot.plugin.common;
+
+import java.util.function.IntConsumer;
+
+/**
+ * {@link SequenceGenerator}的节点ID租约  保证同一时刻集群中每个节点ID只被一个实例使用
+ * <p>
+ * 租约持有期间节点ID不变  应用关闭时调用{@link #close()}释放
+ * 租约到期或被其他实例占用后不应再使用原节点ID生成ID  重新租到其他节点ID时通知{@link #addListener(IntConsumer)}
+ *
+ * @author maxuefeng
+ * @see RedisNodeIdLease
+ * @see IDUtil#setNodeId(int)
+ * @since 2020/3/28
+ */
+public interface NodeIdLease extends AutoCloseable {
+
+    /**
+     * @return 租到的节点ID  区间范围在0-1023
+     */
+    int getNodeId();
+
+    /**
+     * @return 租约的到期时间(System.currentTimeMillis())  时间戳不小于此时间的ID不应再生成  续期时延长
+     */
+    default long getExpireAt() {
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * 租约丢失后重新租到其他节点ID时回调  在续期线程中执行
+     *
+     * @param listener 参数为新的节点ID
+     */
+    default void addListener(IntConsumer listener) {
+    }
+
+    /**
+     * 释放租约  不抛出异常
+     */
+    @Override
+    void close();
+
+    /**
+     * 默认的空对象实现  不与其他实例协调  节点ID由本机MAC地址计算  多个实例之间可能重复
+     */
+    class LocalNodeIdLease implements NodeIdLease {
+
+        private final int nodeId = SequenceGenerator.createNodeId();
+
+        @Override
+        public int getNodeId() {
+            return nodeId;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package io.jopen.springboot.plugin.common;
+
+import com.google.common.base.Verify;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * 基于Redis的节点ID租约
+ * <p>
+ * 1 每个节点ID对应一个Key  值为当前实例的标识  通过SET NX PX抢占  从随机位置开始依次尝试0-1023
+ * 2 后台线程每隔ttl/3续期一次  续期和释放通过Lua脚本校验持有者  不会误删其他实例的租约
+ * 3 实例宕机后租约在ttl之后过期  节点ID可以被其他实例重新租用
+ * 4 {@link #getExpireAt()}为最后一次成功续期前的本地时间加ttl  不晚于Redis中的Key过期  续期失败时到期后停止生成ID
+ * 5 租约丢失且节点ID已被其他实例占用时立即到期  之后租用其他空闲的节点ID并通知{@link #addListener(IntConsumer)}
+ *
+ * @author maxuefeng
+ * @see EnableJopenCommon#leaseNodeId()
+ * @since 2020/3/28
+ */
+public final class RedisNodeIdLease implements NodeIdLease {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisNodeIdLease.class);
+
+    /**
+     * 节点ID的Key前缀
+     */
+    static final String KEY_PREFIX = "sequence.node:";
+
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private volatile int nodeId;
+
+    private volatile String key;
+
+    private volatile long expireAt;
+
+    private final List<IntConsumer> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 当前实例的标识
+     */
+    private final String owner;
+
+    private final long ttl;
+
+    private final ScheduledExecutorService renewer;
+
+    private RedisNodeIdLease(StringRedisTemplate redisTemplate, int nodeId, String owner, long ttl, long expireAt) {
+        this.redisTemplate = redisTemplate;
+        this.nodeId = nodeId;
+        this.key = KEY_PREFIX + nodeId;
+        this.owner = owner;
+        this.ttl = ttl;
+        this.expireAt = expireAt;
+        this.renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sequence-node-lease-" + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.renewer.scheduleWithFixedDelay(this::renew, ttl / 3, ttl / 3, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 租用一个空闲的节点ID
+     *
+     * @param redisTemplate Redis模板
+     * @param ttl           租约有效期 单位为Ms
+     * @return 节点ID租约
+     * @throws IllegalStateException 所有节点ID都已被租用
+     */
+    @NonNull
+    public static RedisNodeIdLease acquire(@NonNull StringRedisTemplate redisTemplate, long ttl) {
+        Verify.verify(ttl >= 3L, "ttl must be ge 3 ms");
+        String owner = UUID.randomUUID().toString();
+        long now = System.currentTimeMillis();
+        int nodeId = tryAcquire(redisTemplate, owner, ttl);
+        if (nodeId < 0) {
+            throw new IllegalStateException(String.format("all %d sequence node ids are leased", SequenceGenerator.maxNodeId + 1));
+        }
+        return new RedisNodeIdLease(redisTemplate, nodeId, owner, ttl, now + ttl);
+    }
+
+    /**
+     * 从随机位置开始依次抢占空闲的节点ID
+     *
+     * @return 抢占到的节点ID  所有节点ID都已被租用时返回-1
+     */
+    private static int tryAcquire(StringRedisTemplate redisTemplate, String owner, long ttl) {
+        int nodeCount = SequenceGenerator.maxNodeId + 1;
+        int start = ThreadLocalRandom.current().nextInt(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            int nodeId = (start + i) % nodeCount;
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + nodeId, owner, ttl, TimeUnit.MILLISECONDS);
+            if (Boolean.TRUE.equals(acquired)) {
+                return nodeId;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public long getExpireAt() {
+        return expireAt;
+    }
+
+    @Override
+    public void addListener(IntConsumer listener) {
+        listeners.add(listener);
+    }
+
+    void renew() {
+        // 发出命令之前的时间  保证本地到期时间不晚于Redis中的Key过期
+        long now = System.currentTimeMillis();
+        try {
+            Long renewed = redisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(key), owner, String.valueOf(ttl));
+            if (renewed != null && renewed > 0L) {
+                this.expireAt = now + ttl;
+                return;
+            }
+            // 租约已过期(如长时间GC或网络中断)  节点ID未被其他实例占用时重新抢占
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(key, owner, ttl, TimeUnit.MILLISECONDS);
+            if (Boolean.TRUE.equals(acquired)) {
+                this.expireAt = now + ttl;
+                return;
+            }
+            // 节点ID已被其他实例占用  立即停止使用
+            this.expireAt = 0L;
+            LOGGER.error("sequence node id {} lease lost, stop generating ids with it", nodeId);
+            int leased = tryAcquire(redisTemplate, owner, ttl);
+            if (leased < 0) {
+                LOGGER.error("all sequence node ids are leased, retry in {} ms", ttl / 3);
+                return;
+            }
+            this.nodeId = leased;
+            this.key = KEY_PREFIX + leased;
+            this.expireAt = now + ttl;
+            LOGGER.warn("sequence node id {} leased instead", leased);
+            for (IntConsumer listener : listeners) {
+                listener.accept(leased);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("renew sequence node id {} lease failed, expires at {}", nodeId, expireAt, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        renewer.shutdownNow();
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(key), owner);
+        } catch (RuntimeException e) {
+            LOGGER.warn("release sequence node id {} lease failed", nodeId, e);
+        }
+    }
+}
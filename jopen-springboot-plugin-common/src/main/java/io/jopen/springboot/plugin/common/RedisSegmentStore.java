@@ -0,0 +1,34 @@
+package io.jopen.springboot.plugin.common;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * 基于Redis INCRBY的号段存储  Redis需要开启持久化  否则重启后会重新分配已使用的号段
+ *
+ * @author maxuefeng
+ * @since 2020/3/28
+ */
+public final class RedisSegmentStore implements SegmentStore {
+
+    /**
+     * 号段的Key前缀
+     */
+    static final String KEY_PREFIX = "sequence.segment:";
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisSegmentStore(@NonNull StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public long allocate(@NonNull String tag, int step) {
+        Long max = redisTemplate.opsForValue().increment(KEY_PREFIX + tag, step);
+        if (max == null) {
+            // 在Pipeline或事务中执行
+            throw new IllegalStateException("INCRBY returned null, segment store must not run in pipeline or transaction");
+        }
+        return max;
+    }
+}
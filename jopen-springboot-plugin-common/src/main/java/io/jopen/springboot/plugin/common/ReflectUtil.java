@@ -5,7 +5,6 @@ import com.google.common.collect.Lists;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.net.JarURLConnection;
 import java.net.URL;
 import java.net.URLDecoder;
@@ -25,57 +24,39 @@ import java.util.jar.JarFile;
 public class ReflectUtil {
 
     /**
+     * 包括父类的字段  字段读取函数按类缓存
+     *
      * @param obj
+     * @see FieldAccessors#toMap(Object)
      */
     @Deprecated
     public static Map<String, Object> getObjFiledValues(Object obj) {
 
         if (obj == null) return new HashMap<>();
 
-        Field[] fields = obj.getClass().getDeclaredFields();
-        Map<String, Object> fieldValues = new HashMap<>();
-        for (Field field : fields) {
-            field.setAccessible(true);
-            // 字段名
-            String filedName = field.getName();
-            // 字段值
-            Object value = null;
-            try {
-                value = field.get(obj);
-            } catch (IllegalAccessException ignored) {
-            }
-
-            fieldValues.put(filedName, value);
-        }
-
-        return fieldValues;
+        return FieldAccessors.of(obj.getClass()).toMap(obj);
     }
 
     /**
+     * 包括父类的字段  字段读取函数按类缓存
+     *
      * @param obj
      * @param fieldName
      * @return
-     * @throws IllegalAccessException
      * @throws NoSuchFieldException
+     * @see FieldAccessors#get(Object, int)
      */
     @Deprecated
     public static Object getObjFiledValue(Object obj, String fieldName) throws NoSuchFieldException {
 
         if (obj == null || Strings.isNullOrEmpty(fieldName)) return null;
 
-        Field field = obj.getClass().getDeclaredField(fieldName);
-
-        Object filedValue = null;
-
-        // 设为可访问
-        field.setAccessible(true);
-        try {
-            // 字段值
-            filedValue = field.get(obj);
-        } catch (IllegalAccessException ignored) {
+        FieldAccessors accessors = FieldAccessors.of(obj.getClass());
+        int index = accessors.indexOf(fieldName);
+        if (index < 0) {
+            throw new NoSuchFieldException(fieldName);
         }
-
-        return filedValue;
+        return accessors.get(obj, index);
     }
 
     @Deprecated
@@ -0,0 +1,189 @@
+package io.jopen.springboot.plugin.common;
+
+import com.google.common.base.Verify;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 号段模式的ID生成器  不受{@link SequenceGenerator}每毫秒4096个ID的限制
+ * <p>
+ * 1 每次从{@link SegmentStore}分配step个ID组成一个号段  当前号段使用超过{@link #PRELOAD_RATIO}时异步分配下一个号段
+ * 2 每个线程从当前号段中一次取出chunk个ID  之后在线程内递增  不与其他线程竞争
+ * 3 只有号段用完而下一个号段还未分配完成时才会阻塞
+ * <p>
+ * ID在单个线程内递增  不同线程之间不保证顺序  实例重启时未使用的ID被丢弃
+ *
+ * @author maxuefeng
+ * @see IDUtil#setIdGenerator(IdGenerator)
+ * @since 2020/3/28
+ */
+public final class SegmentIdGenerator implements IdGenerator {
+
+    /**
+     * 当前号段使用超过此比例时开始分配下一个号段
+     */
+    static final double PRELOAD_RATIO = 0.1;
+
+    /**
+     * 分配号段的线程  只在预加载时使用
+     */
+    private static final Executor LOADER = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "segment-id-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final SegmentStore store;
+
+    private final String tag;
+
+    private final int step;
+
+    private final int chunk;
+
+    private volatile Segment current;
+
+    /**
+     * 预加载的下一个号段  由持有this锁的线程切换
+     */
+    private CompletableFuture<Segment> next;
+
+    private final ThreadLocal<Range> ranges = ThreadLocal.withInitial(Range::new);
+
+    /**
+     * @param store 号段存储
+     * @param tag   业务标识  不同业务标识的ID相互独立
+     * @param step  号段长度  应大于高峰期每秒生成的ID数量  使号段存储每秒最多访问一次
+     * @param chunk 每个线程一次取出的ID数量
+     */
+    public SegmentIdGenerator(@NonNull SegmentStore store, @NonNull String tag, int step, int chunk) {
+        Verify.verify(step > 0, "step must be gt zero");
+        Verify.verify(chunk > 0 && chunk <= step, "chunk must be gt zero and le step");
+        this.store = store;
+        this.tag = tag;
+        this.step = step;
+        this.chunk = chunk;
+        this.current = allocate();
+    }
+
+    /**
+     * @param store 号段存储
+     * @param tag   业务标识
+     * @param step  号段长度  每个线程一次取出step/1000个ID
+     */
+    public SegmentIdGenerator(@NonNull SegmentStore store, @NonNull String tag, int step) {
+        this(store, tag, step, Math.max(1, step / 1000));
+    }
+
+    @Override
+    public long nextId() {
+        Range range = ranges.get();
+        if (range.next == range.end) {
+            take(range, chunk);
+        }
+        return range.next++;
+    }
+
+    /**
+     * 直接从当前号段中取出  不经过线程内的ID
+     */
+    @Override
+    public long[] nextIds(int n) {
+        Verify.verify(n > 0, "n must be gt zero");
+        long[] ids = new long[n];
+        Range range = new Range();
+        int filled = 0;
+        while (filled < n) {
+            take(range, n - filled);
+            while (range.next < range.end) {
+                ids[filled++] = range.next++;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 从当前号段中取出最多count个ID放入range  当前号段剩余不足时只取剩余的部分
+     */
+    private void take(Range range, int count) {
+        for (; ; ) {
+            Segment segment = this.current;
+            long start = segment.cursor.getAndAdd(count);
+            if (start < segment.end) {
+                range.next = start;
+                range.end = Math.min(start + count, segment.end);
+                if (start >= segment.preloadAt && segment.preloading.compareAndSet(false, true)) {
+                    preload();
+                }
+                return;
+            }
+            switchSegment(segment);
+        }
+    }
+
+    private synchronized void preload() {
+        // 上一个号段的预加载结果还未使用(号段用完时同步分配了)
+        if (this.next == null) {
+            this.next = CompletableFuture.supplyAsync(this::allocate, LOADER);
+        }
+    }
+
+    /**
+     * 当前号段用完  切换到预加载的号段  预加载失败时同步分配
+     */
+    private synchronized void switchSegment(Segment exhausted) {
+        if (this.current != exhausted) {
+            // 其他线程已经切换
+            return;
+        }
+        Segment segment = null;
+        if (this.next != null) {
+            try {
+                segment = this.next.join();
+            } catch (RuntimeException ignored) {
+                // 下面同步分配
+            }
+            this.next = null;
+        }
+        this.current = segment != null ? segment : allocate();
+    }
+
+    private Segment allocate() {
+        long max = store.allocate(tag, step);
+        return new Segment(max - step + 1, max + 1, step);
+    }
+
+    /**
+     * 一个号段  [start, end)
+     */
+    private static final class Segment {
+        private final AtomicLong cursor;
+        private final long end;
+
+        /**
+         * 取到此位置时开始预加载下一个号段
+         */
+        private final long preloadAt;
+
+        private final AtomicBoolean preloading = new AtomicBoolean();
+
+        private Segment(long start, long end, int step) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+            this.preloadAt = start + (long) (step * PRELOAD_RATIO);
+        }
+    }
+
+    /**
+     * 线程取出的ID  [next, end)
+     */
+    private static final class Range {
+        private long next;
+        private long end;
+    }
+}
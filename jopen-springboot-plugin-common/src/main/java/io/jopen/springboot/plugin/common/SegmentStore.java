@@ -0,0 +1,23 @@
+package io.jopen.springboot.plugin.common;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * {@link SegmentIdGenerator}的号段存储  持久化每个业务标识已分配的最大ID
+ *
+ * @author maxuefeng
+ * @see RedisSegmentStore
+ * @since 2020/3/28
+ */
+@FunctionalInterface
+public interface SegmentStore {
+
+    /**
+     * 原子的分配一个号段  多个实例同时分配时号段不重叠
+     *
+     * @param tag  业务标识
+     * @param step 号段长度
+     * @return 号段的最大ID(包含)  号段为(返回值-step, 返回值]
+     */
+    long allocate(@NonNull String tag, int step);
+}
@@ -2,14 +2,26 @@ package io.jopen.springboot.plugin.common;
 
 import java.net.NetworkInterface;
 import java.security.SecureRandom;
-import java.time.Instant;
 import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
+ * 无锁的ID生成器
+ * <p>
+ * 1 上一个ID的时间戳和序列号打包在一个{@link AtomicLong}中  通过CAS生成  不加锁
+ * 2 当前毫秒的序列号用完时借用下一毫秒  时钟回拨时沿用上一个时间戳  两者合计不超过maxDriftMillis
+ * 3 超过maxDriftMillis的借用等待时钟追上  超过maxDriftMillis的时钟回拨抛出异常
+ * 4 {@link #nextIds(int)}一次CAS预留一批ID
+ * 5 使用{@link NodeIdLease}创建时  租约到期或节点ID变更后抛出异常  不再生成ID
+ *
  * @author maxuefeng
+ * @see IDUtil
+ * @see NodeIdLease
  * @since 2019-05-09
  */
-public class SequenceGenerator {
+public class SequenceGenerator implements IdGenerator {
 
     // 64
     private static final int TOTAL_BITS = 64;
@@ -24,7 +36,7 @@ public class SequenceGenerator {
     private static final int SEQUENCE_BITS = 12;
 
     //
-    private static final int maxNodeId = (int) (Math.pow(2, NODE_ID_BITS) - 1);
+    static final int maxNodeId = (int) (Math.pow(2, NODE_ID_BITS) - 1);
 
     //
     private static final int maxSequence = (int) (Math.pow(2, SEQUENCE_BITS) - 1);
@@ -33,68 +45,150 @@ public class SequenceGenerator {
     // Custom Epoch (January 1, 2015 Midnight UTC = 2015-01-01T00:00:00Z)
     private static final long CUSTOM_EPOCH = 1420070400000L;
 
+    /**
+     * 默认允许的时钟回拨和借用的未来时间  单位为Ms
+     */
+    public static final long DEFAULT_MAX_DRIFT_MILLIS = 10L;
+
     private final int nodeId;
 
-    private volatile long lastTimestamp = -1L;
+    private final long maxDriftMillis;
+
+    /**
+     * 节点ID不是租用的时为null
+     */
+    private final NodeIdLease lease;
 
-    private volatile long sequence = 0L;
+    // 高位为上一个ID的时间戳  低SEQUENCE_BITS位为序列号  序列号加一溢出时自然进位到下一毫秒
+    private final AtomicLong state = new AtomicLong();
 
     // Create SequenceGenerator with a nodeId   区间范围在1-1023
     public SequenceGenerator(int nodeId) {
+        this(nodeId, DEFAULT_MAX_DRIFT_MILLIS);
+    }
+
+    /**
+     * @param nodeId         节点ID  区间范围在0-1023
+     * @param maxDriftMillis 允许的时钟回拨和借用的未来时间  单位为Ms
+     */
+    public SequenceGenerator(int nodeId, long maxDriftMillis) {
+        this(nodeId, maxDriftMillis, null);
+    }
+
+    /**
+     * @param lease 节点ID租约  生成ID时校验租约仍然有效
+     */
+    public SequenceGenerator(NodeIdLease lease) {
+        this(lease.getNodeId(), DEFAULT_MAX_DRIFT_MILLIS, lease);
+    }
 
+    private SequenceGenerator(int nodeId, long maxDriftMillis, NodeIdLease lease) {
         if (nodeId < 0 || nodeId > maxNodeId) {
             throw new IllegalArgumentException(String.format("NodeId must be between %d and %d", 0, maxNodeId));
         }
+        if (maxDriftMillis < 0) {
+            throw new IllegalArgumentException("maxDriftMillis must be ge zero");
+        }
         this.nodeId = nodeId;
+        this.maxDriftMillis = maxDriftMillis;
+        this.lease = lease;
     }
 
     // Let SequenceGenerator generate a nodeId
     public SequenceGenerator() {
-        this.nodeId = createNodeId();
+        this(createNodeId());
     }
 
+    public int getNodeId() {
+        return nodeId;
+    }
 
-    public synchronized long nextId() {
-        long currentTimestamp = timestamp();
+    @Override
+    public long nextId() {
+        return toId(reserve(1));
+    }
 
-        if (currentTimestamp < lastTimestamp) {
-            throw new IllegalStateException("Invalid System Clock!");
+    /**
+     * 批量生成ID  每次CAS最多预留一毫秒的序列号
+     *
+     * @param n 数量
+     * @return 递增的ID
+     */
+    @Override
+    public long[] nextIds(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be gt zero");
         }
+        long[] ids = new long[n];
+        int filled = 0;
+        while (filled < n) {
+            int count = Math.min(n - filled, maxSequence + 1);
+            long first = reserve(count);
+            for (int i = 0; i < count; i++) {
+                ids[filled++] = toId(first + i);
+            }
+        }
+        return ids;
+    }
 
-        if (currentTimestamp == lastTimestamp) {
-            sequence = (sequence + 1) & maxSequence;
-            if (sequence == 0) {
-                // Sequence Exhausted, wait till next millisecond.
-                currentTimestamp = waitNextMillis(currentTimestamp);
+    /**
+     * 预留count个连续的时间戳和序列号
+     *
+     * @return 第一个预留的时间戳和序列号
+     */
+    private long reserve(int count) {
+        for (; ; ) {
+            long current = state.get();
+            long currentTimestamp = timestamp();
+            long lastTimestamp = current >>> SEQUENCE_BITS;
+
+            if (lastTimestamp - currentTimestamp > maxDriftMillis) {
+                throw new IllegalStateException(String.format("Invalid System Clock! moved backwards %d ms", lastTimestamp - currentTimestamp));
+            }
+
+            // 新的一毫秒序列号从0开始  否则接着上一个序列号
+            long first = Math.max(current + 1, currentTimestamp << SEQUENCE_BITS);
+            long last = first + count - 1;
+
+            long lead = (last >>> SEQUENCE_BITS) - currentTimestamp;
+            if (lead > maxDriftMillis) {
+                // 借用的时间超过上限  等待时钟追上
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(lead - maxDriftMillis));
+                continue;
+            }
+
+            if (lease != null) {
+                checkLease(last >>> SEQUENCE_BITS);
+            }
+
+            if (state.compareAndSet(current, last)) {
+                return first;
             }
-        } else {
-            // reset sequence to start with zero for the next millisecond
-            sequence = 0;
         }
+    }
 
-        lastTimestamp = currentTimestamp;
+    /**
+     * @param lastTimestamp 预留的最后一个时间戳  可能是借用的未来时间
+     */
+    private void checkLease(long lastTimestamp) {
+        if (lastTimestamp + CUSTOM_EPOCH >= lease.getExpireAt() || lease.getNodeId() != nodeId) {
+            throw new IllegalStateException(String.format("sequence node id %d lease lost", nodeId));
+        }
+    }
 
-        long id = currentTimestamp << (TOTAL_BITS - EPOCH_BITS);
-        id |= (nodeId << (TOTAL_BITS - EPOCH_BITS - NODE_ID_BITS));
-        id |= sequence;
+    private long toId(long reserved) {
+        long id = (reserved >>> SEQUENCE_BITS) << (TOTAL_BITS - EPOCH_BITS);
+        id |= ((long) nodeId << (TOTAL_BITS - EPOCH_BITS - NODE_ID_BITS));
+        id |= reserved & maxSequence;
         return id;
     }
 
-
     // Get current timestamp in milliseconds, adjust for the custom epoch.
     private static long timestamp() {
-        return Instant.now().toEpochMilli() - CUSTOM_EPOCH;
-    }
-
-    // Block and wait till next millisecond
-    private long waitNextMillis(long currentTimestamp) {
-        while (currentTimestamp == lastTimestamp) {
-            currentTimestamp = timestamp();
-        }
-        return currentTimestamp;
+        return System.currentTimeMillis() - CUSTOM_EPOCH;
     }
 
-    private int createNodeId() {
+    static int createNodeId() {
 
         int nodeId;
         try {
@@ -0,0 +1,130 @@
+package io.jopen.springboot.plugin.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FieldAccessors}与原先每次调用都getDeclaredFields并setAccessible的反射读取的对比
+ * <p>
+ * legacy开头的方法是{@link ReflectUtil}委托给{@link FieldAccessors}之前的实现
+ * 运行{@link #main(String[])}  或打包后使用JMH命令行
+ *
+ * @author maxuefeng
+ * @see FieldAccessors
+ * @see ReflectUtil
+ * @since 2020/3/28
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FieldAccessorsBenchmark {
+
+    @SuppressWarnings("unused")
+    static class User {
+        private Long id = 1L;
+        private String name = "jack";
+        private Integer age = 18;
+        private String phone = "13800138000";
+        private String email = "jack@jopen.io";
+        private Boolean enabled = true;
+    }
+
+    private User user;
+
+    private FieldAccessors accessors;
+
+    private int nameIndex;
+
+    @Setup
+    public void setup() {
+        user = new User();
+        accessors = FieldAccessors.of(User.class);
+        nameIndex = accessors.indexOf("name");
+    }
+
+    @Benchmark
+    public Object legacyGet() throws NoSuchFieldException {
+        Field field = user.getClass().getDeclaredField("name");
+        field.setAccessible(true);
+        try {
+            return field.get(user);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public Object get() {
+        return accessors.get(user, nameIndex);
+    }
+
+    @Benchmark
+    public Object getWithLookup() {
+        FieldAccessors accessors = FieldAccessors.of(user.getClass());
+        return accessors.get(user, accessors.indexOf("name"));
+    }
+
+    @Benchmark
+    public void legacyForEachField(Blackhole blackhole) {
+        for (Field field : user.getClass().getDeclaredFields()) {
+            field.setAccessible(true);
+            blackhole.consume(field.getName());
+            try {
+                blackhole.consume(field.get(user));
+            } catch (IllegalAccessException ignored) {
+            }
+        }
+    }
+
+    @Benchmark
+    public void forEachField(Blackhole blackhole) {
+        FieldAccessors.of(user.getClass()).forEachField(user, (name, value) -> {
+            blackhole.consume(name);
+            blackhole.consume(value);
+        });
+    }
+
+    @Benchmark
+    public Map<String, Object> legacyToMap() {
+        Map<String, Object> fieldValues = new HashMap<>();
+        for (Field field : user.getClass().getDeclaredFields()) {
+            field.setAccessible(true);
+            Object value = null;
+            try {
+                value = field.get(user);
+            } catch (IllegalAccessException ignored) {
+            }
+            fieldValues.put(field.getName(), value);
+        }
+        return fieldValues;
+    }
+
+    @Benchmark
+    public Map<String, Object> toMap() {
+        return FieldAccessors.of(user.getClass()).toMap(user);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FieldAccessorsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,76 @@
+package io.jopen.springboot.plugin.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author maxuefeng
+ * @since 2020/3/28
+ */
+public class FieldAccessorsTest {
+
+    static class Base {
+        private static String TYPE = "base";
+        private Long id = 1L;
+        private String name = "base";
+    }
+
+    static class User extends Base {
+        private String name = "user";
+        private Integer age;
+    }
+
+    @Test
+    public void includeSuperclassFields() {
+        FieldAccessors accessors = FieldAccessors.of(User.class);
+        Assert.assertSame(accessors, FieldAccessors.of(User.class));
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        accessors.forEachField(new User(), values::put);
+        // 当前类的字段在前  父类中被隐藏的name不包括在内  静态字段也包括在内
+        Assert.assertEquals("{name=user, age=null, TYPE=base, id=1}", values.toString());
+        Assert.assertEquals(values, accessors.toMap(new User()));
+        Assert.assertEquals(4, accessors.size());
+    }
+
+    @Test
+    public void indexOf() {
+        FieldAccessors accessors = FieldAccessors.of(User.class);
+        Assert.assertEquals(-1, accessors.indexOf("none"));
+        int index = accessors.indexOf("id");
+        Assert.assertEquals("id", accessors.name(index));
+        Assert.assertEquals(1L, accessors.get(new User(), index));
+        Assert.assertEquals("user", accessors.get(new User(), accessors.indexOf("name")));
+    }
+
+    @Test
+    public void subclassInstanceOfSuperclassAccessors() {
+        FieldAccessors accessors = FieldAccessors.of(Base.class);
+        Assert.assertEquals("base", accessors.get(new User(), accessors.indexOf("name")));
+    }
+
+    @Test(expected = ClassCastException.class)
+    public void unrelatedTarget() {
+        FieldAccessors accessors = FieldAccessors.of(User.class);
+        accessors.get("user", accessors.indexOf("name"));
+    }
+
+    /**
+     * {@link ReflectUtil}委托给{@link FieldAccessors}
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    public void reflectUtilDelegates() throws NoSuchFieldException {
+        Assert.assertEquals(1L, ReflectUtil.getObjFiledValue(new User(), "id"));
+        Assert.assertEquals(FieldAccessors.of(User.class).toMap(new User()), ReflectUtil.getObjFiledValues(new User()));
+        try {
+            ReflectUtil.getObjFiledValue(new User(), "none");
+            Assert.fail();
+        } catch (NoSuchFieldException expected) {
+            // ok
+        }
+    }
+}
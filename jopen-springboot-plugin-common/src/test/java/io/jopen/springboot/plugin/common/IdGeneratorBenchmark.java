@@ -0,0 +1,78 @@
+package io.jopen.springboot.plugin.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 32个线程同时生成ID的吞吐量
+ * <p>
+ * 雪花算法每毫秒最多4096个ID  吞吐量的上限约为每秒4百万  超过时等待时钟
+ * 运行{@link #main(String[])}  或打包后使用JMH命令行
+ *
+ * @author maxuefeng
+ * @see SequenceGenerator
+ * @see SegmentIdGenerator
+ * @since 2020/3/28
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(32)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IdGeneratorBenchmark {
+
+    private SequenceGenerator sequenceGenerator;
+
+    private SequenceGenerator leasedSequenceGenerator;
+
+    private SegmentIdGenerator segmentIdGenerator;
+
+    @Setup
+    public void setup() {
+        sequenceGenerator = new SequenceGenerator(1);
+        leasedSequenceGenerator = new SequenceGenerator(new NodeIdLease.LocalNodeIdLease());
+        AtomicLong max = new AtomicLong();
+        segmentIdGenerator = new SegmentIdGenerator((tag, step) -> max.addAndGet(step), "benchmark", 100000);
+    }
+
+    @Benchmark
+    public long sequence() {
+        return sequenceGenerator.nextId();
+    }
+
+    @Benchmark
+    public long leasedSequence() {
+        return leasedSequenceGenerator.nextId();
+    }
+
+    @Benchmark
+    public long sequenceBatch() {
+        return sequenceGenerator.nextIds(100)[99];
+    }
+
+    @Benchmark
+    public long segment() {
+        return segmentIdGenerator.nextId();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(IdGeneratorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
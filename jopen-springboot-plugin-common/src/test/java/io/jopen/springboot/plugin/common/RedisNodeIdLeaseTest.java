@@ -0,0 +1,141 @@
+package io.jopen.springboot.plugin.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author maxuefeng
+ * @since 2020/3/28
+ */
+public class RedisNodeIdLeaseTest {
+
+    /**
+     * 内存中的Redis  只支持租约用到的SET NX和续期释放脚本  忽略过期时间
+     */
+    private static final class MemoryRedisTemplate extends StringRedisTemplate {
+        private final Map<String, String> values = new ConcurrentHashMap<>();
+        private volatile boolean broken;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            if (broken) {
+                throw new IllegalStateException("connection refused");
+            }
+            String key = keys.get(0);
+            if (!args[0].equals(values.get(key))) {
+                return (T) Long.valueOf(0L);
+            }
+            if (script.getScriptAsString().contains("'del'")) {
+                values.remove(key);
+            }
+            return (T) Long.valueOf(1L);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ValueOperations<String, String> opsForValue() {
+            return (ValueOperations<String, String>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[]{ValueOperations.class}, (proxy, method, args) -> {
+                        if (broken) {
+                            throw new IllegalStateException("connection refused");
+                        }
+                        if (method.getName().equals("setIfAbsent")) {
+                            return values.putIfAbsent((String) args[0], (String) args[1]) == null;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+
+    @Test
+    public void renewKeepsLease() {
+        MemoryRedisTemplate redis = new MemoryRedisTemplate();
+        RedisNodeIdLease lease = RedisNodeIdLease.acquire(redis, 60000);
+        long expireAt = lease.getExpireAt();
+        Assert.assertTrue(expireAt > System.currentTimeMillis());
+
+        // Key已过期但未被占用时重新抢占同一个节点ID
+        redis.values.clear();
+        lease.renew();
+        Assert.assertTrue(lease.getExpireAt() >= expireAt);
+        Assert.assertNotNull(redis.values.get(RedisNodeIdLease.KEY_PREFIX + lease.getNodeId()));
+
+        lease.close();
+        Assert.assertTrue(redis.values.isEmpty());
+    }
+
+    @Test
+    public void failedRenewLetsLeaseExpire() {
+        MemoryRedisTemplate redis = new MemoryRedisTemplate();
+        RedisNodeIdLease lease = RedisNodeIdLease.acquire(redis, 60000);
+        long expireAt = lease.getExpireAt();
+        redis.broken = true;
+        lease.renew();
+        // 续期失败时不延长  也不提前到期
+        Assert.assertEquals(expireAt, lease.getExpireAt());
+        lease.close();
+    }
+
+    @Test
+    public void lostLeaseSwitchesNodeId() {
+        MemoryRedisTemplate redis = new MemoryRedisTemplate();
+        RedisNodeIdLease lease = RedisNodeIdLease.acquire(redis, 60000);
+        int nodeId = lease.getNodeId();
+        SequenceGenerator generator = new SequenceGenerator(lease);
+        generator.nextId();
+        AtomicInteger switched = new AtomicInteger(-1);
+        lease.addListener(switched::set);
+
+        // 其他实例占用了节点ID
+        redis.values.put(RedisNodeIdLease.KEY_PREFIX + nodeId, "other");
+        lease.renew();
+
+        Assert.assertNotEquals(nodeId, lease.getNodeId());
+        Assert.assertEquals(lease.getNodeId(), switched.get());
+        Assert.assertTrue(lease.getExpireAt() > System.currentTimeMillis());
+        try {
+            generator.nextId();
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            // ok
+        }
+        Assert.assertEquals(lease.getNodeId(), (new SequenceGenerator(lease).nextId() >>> 12) & 1023);
+        lease.close();
+        Assert.assertEquals("other", redis.values.get(RedisNodeIdLease.KEY_PREFIX + nodeId));
+    }
+
+    @Test
+    public void lostLeaseExpiresWhenNoNodeIdIsFree() {
+        MemoryRedisTemplate redis = new MemoryRedisTemplate();
+        RedisNodeIdLease lease = RedisNodeIdLease.acquire(redis, 60000);
+        SequenceGenerator generator = new SequenceGenerator(lease);
+        for (int i = 0; i <= SequenceGenerator.maxNodeId; i++) {
+            redis.values.put(RedisNodeIdLease.KEY_PREFIX + i, "other");
+        }
+        lease.renew();
+
+        Assert.assertTrue(lease.getExpireAt() <= System.currentTimeMillis());
+        try {
+            generator.nextId();
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            // ok
+        }
+
+        // 下一次续期时节点ID已空闲
+        redis.values.remove(RedisNodeIdLease.KEY_PREFIX + lease.getNodeId());
+        lease.renew();
+        generator.nextId();
+        lease.close();
+    }
+}
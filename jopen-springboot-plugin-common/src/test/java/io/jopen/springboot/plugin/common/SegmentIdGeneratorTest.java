@@ -0,0 +1,85 @@
+package io.jopen.springboot.plugin.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author maxuefeng
+ * @since 2020/3/28
+ */
+public class SegmentIdGeneratorTest {
+
+    /**
+     * 内存中的号段存储  每次分配延迟1ms
+     */
+    private static final class MemorySegmentStore implements SegmentStore {
+        private final AtomicLong max = new AtomicLong();
+        private final AtomicInteger allocations = new AtomicInteger();
+
+        @Override
+        public long allocate(String tag, int step) {
+            allocations.incrementAndGet();
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return max.addAndGet(step);
+        }
+    }
+
+    @Test
+    public void uniqueUnderContention() throws InterruptedException {
+        MemorySegmentStore store = new MemorySegmentStore();
+        SegmentIdGenerator generator = new SegmentIdGenerator(store, "test", 1000, 10);
+        int threads = 32;
+        int perThread = 20000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    if (i % 100 == 0) {
+                        for (long id : generator.nextIds(150)) {
+                            ids.add(id);
+                        }
+                    }
+                    ids.add(generator.nextId());
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        int total = threads * (perThread + perThread / 100 * 150);
+        Assert.assertEquals(total, ids.size());
+        // 所有ID都在已分配的号段内
+        Assert.assertTrue(ids.stream().allMatch(id -> id > 0 && id <= store.max.get()));
+    }
+
+    @Test
+    public void increasingInThread() {
+        MemorySegmentStore store = new MemorySegmentStore();
+        SegmentIdGenerator generator = new SegmentIdGenerator(store, "test", 100);
+        // 单线程时号段依次使用  没有跳过的ID
+        for (int i = 1; i <= 1000; i++) {
+            Assert.assertEquals(i, generator.nextId());
+        }
+        Assert.assertTrue(store.allocations.get() >= 10);
+    }
+}
@@ -0,0 +1,123 @@
+package io.jopen.springboot.plugin.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author maxuefeng
+ * @since 2020/3/28
+ */
+public class SequenceGeneratorTest {
+
+    @Test
+    public void uniqueUnderContention() throws InterruptedException {
+        SequenceGenerator generator = new SequenceGenerator(1);
+        int threads = 32;
+        int perThread = 20000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    if (i % 100 == 0) {
+                        for (long id : generator.nextIds(50)) {
+                            ids.add(id);
+                        }
+                    }
+                    ids.add(generator.nextId());
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        Assert.assertEquals(threads * (perThread + perThread / 100 * 50), ids.size());
+    }
+
+    @Test
+    public void batchIsIncreasing() {
+        SequenceGenerator generator = new SequenceGenerator(1023);
+        long previous = generator.nextId();
+        // 超过一毫秒的序列号  分多次预留
+        for (long id : generator.nextIds(10000)) {
+            Assert.assertTrue(id > previous);
+            Assert.assertEquals(1023, (id >>> 12) & 1023);
+            previous = id;
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidNodeId() {
+        new SequenceGenerator(1024);
+    }
+
+    /**
+     * 可修改的节点ID租约
+     */
+    static final class MutableNodeIdLease implements NodeIdLease {
+        volatile int nodeId;
+        volatile long expireAt = Long.MAX_VALUE;
+
+        MutableNodeIdLease(int nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        @Override
+        public int getNodeId() {
+            return nodeId;
+        }
+
+        @Override
+        public long getExpireAt() {
+            return expireAt;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void stopsWhenLeaseExpires() {
+        MutableNodeIdLease lease = new MutableNodeIdLease(7);
+        SequenceGenerator generator = new SequenceGenerator(lease);
+        Assert.assertEquals(7, (generator.nextId() >>> 12) & 1023);
+        lease.expireAt = System.currentTimeMillis();
+        try {
+            generator.nextId();
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            // ok
+        }
+        lease.expireAt = System.currentTimeMillis() + 60000;
+        generator.nextIds(10);
+    }
+
+    @Test
+    public void stopsWhenLeasedNodeIdChanges() {
+        MutableNodeIdLease lease = new MutableNodeIdLease(7);
+        SequenceGenerator generator = new SequenceGenerator(lease);
+        generator.nextId();
+        lease.nodeId = 8;
+        try {
+            generator.nextIds(10);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            // ok
+        }
+        Assert.assertEquals(8, (new SequenceGenerator(lease).nextId() >>> 12) & 1023);
+    }
+}
@@ -1,6 +1,7 @@
 package io.jopen.springboot.plugin.encryption.advice;
 
 import io.jopen.springboot.plugin.encryption.annotation.decrypt.AESDecryptBody;
+import io.jopen.springboot.plugin.encryption.annotation.decrypt.AESGCMDecryptBody;
 import io.jopen.springboot.plugin.encryption.annotation.decrypt.DESDecryptBody;
 import io.jopen.springboot.plugin.encryption.annotation.decrypt.DecryptBody;
 import io.jopen.springboot.plugin.encryption.annotation.decrypt.RSADecryptBody;
@@ -11,6 +12,7 @@ import io.jopen.springboot.plugin.encryption.enums.DecryptBodyMethod;
 import io.jopen.springboot.plugin.encryption.exception.DecryptBodyFailException;
 import io.jopen.springboot.plugin.encryption.exception.DecryptMethodNotFoundException;
 import io.jopen.springboot.plugin.encryption.util.AESEncryptUtil;
+import io.jopen.springboot.plugin.encryption.util.AESGCMEncryptUtil;
 import io.jopen.springboot.plugin.encryption.util.CheckUtils;
 import io.jopen.springboot.plugin.encryption.util.DesCipherUtil;
 import io.jopen.springboot.plugin.encryption.util.StringUtils;
@@ -19,15 +21,27 @@ import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpInputMessage;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdvice;
 
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * 请求数据的加密信息解密处理<br>
@@ -43,23 +57,14 @@ public class DecryptRequestBodyAdvice implements RequestBodyAdvice {
     @Autowired
     private EncryptBodyConfig config;
 
+    /**
+     * 控制器方法到解密注解信息的缓存，注解只在首次请求时解析，未标注解密注解的方法缓存为{@link Optional#empty()}
+     */
+    private final ConcurrentMap<Method, Optional<DecryptAnnotationInfoBean>> infoBeanCache = new ConcurrentHashMap<>();
+
     @Override
     public boolean supports(MethodParameter methodParameter, Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
-        Annotation[] annotations = methodParameter.getDeclaringClass().getAnnotations();
-        if(annotations!=null && annotations.length>0){
-            for (Annotation annotation : annotations) {
-                if(annotation instanceof DecryptBody ||
-                        annotation instanceof AESDecryptBody ||
-                        annotation instanceof DESDecryptBody ||
-                        annotation instanceof RSADecryptBody){
-                    return true;
-                }
-            }
-        }
-        return methodParameter.getMethod().isAnnotationPresent(DecryptBody.class) ||
-                methodParameter.getMethod().isAnnotationPresent(AESDecryptBody.class) ||
-                methodParameter.getMethod().isAnnotationPresent(DESDecryptBody.class) ||
-                methodParameter.getMethod().isAnnotationPresent(RSADecryptBody.class);
+        return getInfoBean(methodParameter)!=null;
     }
 
     @Override
@@ -72,6 +77,10 @@ public class DecryptRequestBodyAdvice implements RequestBodyAdvice {
         if(inputMessage.getBody()==null){
             return inputMessage;
         }
+        DecryptAnnotationInfoBean infoBean = this.getInfoBean(parameter);
+        if(infoBean!=null && (infoBean.isRaw() || (config.isStreaming() && isCipherMethod(infoBean.getDecryptBodyMethod())))){
+            return streamDecrypt(inputMessage, infoBean);
+        }
         String body;
         try {
             body = IOUtils.toString(inputMessage.getBody(),config.getEncoding());
@@ -85,14 +94,8 @@ public class DecryptRequestBodyAdvice implements RequestBodyAdvice {
                     " (请求正文为NULL或为空字符串，因此解密失败。)");
         }
         String decryptBody = null;
-        DecryptAnnotationInfoBean methodAnnotation = this.getMethodAnnotation(parameter);
-        if(methodAnnotation!=null){
-            decryptBody = switchDecrypt(body,methodAnnotation);
-        }else{
-            DecryptAnnotationInfoBean classAnnotation = this.getClassAnnotation(parameter.getDeclaringClass());
-            if(classAnnotation!=null){
-                decryptBody = switchDecrypt(body,classAnnotation);
-            }
+        if(infoBean!=null){
+            decryptBody = switchDecrypt(body,infoBean);
         }
         if(decryptBody==null){
             throw new DecryptBodyFailException("Decryption error, " +
@@ -109,6 +112,144 @@ public class DecryptRequestBodyAdvice implements RequestBodyAdvice {
         }
     }
 
+    /**
+     * 获取控制器方法的解密注解信息，方法注解优先，密钥已按配置解析
+     * @param methodParameter 控制器方法参数
+     * @return 解密注解信息，未标注解密注解时返回null
+     */
+    private DecryptAnnotationInfoBean getInfoBean(MethodParameter methodParameter){
+        return infoBeanCache.computeIfAbsent(methodParameter.getMethod(), method -> {
+            DecryptAnnotationInfoBean infoBean = getMethodAnnotation(methodParameter);
+            if(infoBean==null){
+                infoBean = getClassAnnotation(methodParameter.getDeclaringClass());
+            }
+            if(infoBean==null && (methodParameter.hasMethodAnnotation(RSADecryptBody.class) ||
+                    methodParameter.getDeclaringClass().isAnnotationPresent(RSADecryptBody.class))){
+                // 暂不支持RSA解密，交由switchDecrypt抛出异常
+                infoBean = DecryptAnnotationInfoBean.builder().decryptBodyMethod(DecryptBodyMethod.RSA).build();
+            }
+            if(infoBean!=null){
+                infoBean.setKey(resolveKey(infoBean));
+            }
+            return Optional.ofNullable(infoBean);
+        }).orElse(null);
+    }
+
+    /**
+     * 配置的密钥优先，其次为注解上的密钥
+     * @param infoBean 解密注解信息
+     * @return 实际使用的密钥，RSA返回注解上的密钥
+     */
+    private String resolveKey(DecryptAnnotationInfoBean infoBean){
+        String key = infoBean.getKey();
+        DecryptBodyMethod method = infoBean.getDecryptBodyMethod();
+        if(method == DecryptBodyMethod.DES){
+            return CheckUtils.checkAndGetKey(config.getDesKey(),key,"DES-KEY");
+        }
+        if(method == DecryptBodyMethod.AES){
+            return CheckUtils.checkAndGetKey(config.getAesKey(),key,"AES-KEY");
+        }
+        if(method == DecryptBodyMethod.AES_GCM){
+            return CheckUtils.checkAndGetKey(config.getAesGcmKey(),key,"AES-GCM-KEY");
+        }
+        return key;
+    }
+
+    private static boolean isCipherMethod(DecryptBodyMethod method){
+        return method == DecryptBodyMethod.AES || method == DecryptBodyMethod.DES || method == DecryptBodyMethod.AES_GCM;
+    }
+
+    /**
+     * 流式解密：请求体 -> Base64 -> {@link CipherInputStream} -> Jackson反序列化，不产生中间字符串
+     * <p>AES-GCM先读取nonce，raw模式不经过Base64；JDK的GCM解密需要校验认证标签后才输出明文，因此会在内部缓存密文</p>
+     * @param inputMessage 请求
+     * @param infoBean 解密信息
+     * @return 解密后的请求
+     */
+    private HttpInputMessage streamDecrypt(HttpInputMessage inputMessage, DecryptAnnotationInfoBean infoBean) throws IOException {
+        InputStream source = inputMessage.getBody();
+        if(!infoBean.isRaw()){
+            source = Base64.getMimeDecoder().wrap(source);
+        }
+        Cipher cipher;
+        String key = infoBean.getKey();
+        if(infoBean.getDecryptBodyMethod() == DecryptBodyMethod.AES_GCM){
+            byte[] nonce = new byte[AESGCMEncryptUtil.NONCE_LENGTH];
+            try {
+                new DataInputStream(source).readFully(nonce);
+            }catch (EOFException e){
+                throw new DecryptBodyFailException("The request body is too short to contain a nonce. (请求正文长度不足)");
+            }
+            cipher = AESGCMEncryptUtil.cipher(Cipher.DECRYPT_MODE, key, nonce);
+        }else if(infoBean.getDecryptBodyMethod() == DecryptBodyMethod.DES){
+            cipher = DesCipherUtil.cipher(Cipher.DECRYPT_MODE, key);
+        }else{
+            cipher = AESEncryptUtil.cipher(Cipher.DECRYPT_MODE, key);
+        }
+        // 解密后长度与密文不同
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(inputMessage.getHeaders());
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        InputStream body = new DecryptFailTranslatingInputStream(new CipherInputStream(source, cipher));
+        return new DecryptHttpInputMessage(body, headers);
+    }
+
+    /**
+     * <p>流式解密的认证标签校验失败或填充错误在读取到末尾时才会出现，{@link CipherInputStream}将其包装为{@link IOException}，
+     * 经过消息转换器后变为{@link org.springframework.http.converter.HttpMessageNotReadableException}</p>
+     * <p>此处还原为{@link DecryptBodyFailException}，与整体解密的异常保持一致</p>
+     */
+    private static final class DecryptFailTranslatingInputStream extends FilterInputStream {
+
+        private DecryptFailTranslatingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            }catch (IOException e){
+                throw translate(e);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return super.read(b, off, len);
+            }catch (IOException e){
+                throw translate(e);
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            try {
+                return super.skip(n);
+            }catch (IOException e){
+                throw translate(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            }catch (IOException e){
+                throw translate(e);
+            }
+        }
+
+        private static IOException translate(IOException e) {
+            if(e.getCause() instanceof GeneralSecurityException){
+                throw new DecryptBodyFailException("Decryption error, the request body has been tampered with or the key is wrong." +
+                        " (解密错误，请求正文被篡改或密钥错误。)");
+            }
+            return e;
+        }
+    }
+
     @Override
     public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
         return body;
@@ -139,6 +280,14 @@ public class DecryptRequestBodyAdvice implements RequestBodyAdvice {
                     .key(methodParameter.getMethodAnnotation(AESDecryptBody.class).otherKey())
                     .build();
         }
+        if(methodParameter.getMethod().isAnnotationPresent(AESGCMDecryptBody.class)){
+            AESGCMDecryptBody aesgcmDecryptBody = methodParameter.getMethodAnnotation(AESGCMDecryptBody.class);
+            return DecryptAnnotationInfoBean.builder()
+                    .decryptBodyMethod(DecryptBodyMethod.AES_GCM)
+                    .key(aesgcmDecryptBody.otherKey())
+                    .raw(aesgcmDecryptBody.raw())
+                    .build();
+        }
         return null;
     }
 
@@ -170,6 +319,13 @@ public class DecryptRequestBodyAdvice implements RequestBodyAdvice {
                             .key(((AESDecryptBody) annotation).otherKey())
                             .build();
                 }
+                if(annotation instanceof AESGCMDecryptBody){
+                    return DecryptAnnotationInfoBean.builder()
+                            .decryptBodyMethod(DecryptBodyMethod.AES_GCM)
+                            .key(((AESGCMDecryptBody) annotation).otherKey())
+                            .raw(((AESGCMDecryptBody) annotation).raw())
+                            .build();
+                }
             }
         }
         return null;
@@ -187,13 +343,20 @@ public class DecryptRequestBodyAdvice implements RequestBodyAdvice {
         if(method==null) throw new DecryptMethodNotFoundException();
         String key = infoBean.getKey();
         if(method == DecryptBodyMethod.DES){
-            key = CheckUtils.checkAndGetKey(config.getDesKey(),key,"DES-KEY");
             return DesCipherUtil.decrypt(formatStringBody,key);
         }
         if(method == DecryptBodyMethod.AES){
-            key = CheckUtils.checkAndGetKey(config.getAesKey(),key,"AES-KEY");
             return AESEncryptUtil.decrypt(formatStringBody,key);
         }
+        if(method == DecryptBodyMethod.AES_GCM){
+            try {
+                return AESGCMEncryptUtil.decrypt(formatStringBody,key);
+            }catch (RuntimeException e){
+                // 认证标签校验失败或Base64格式错误，与AES一致按解密错误处理
+                log.debug("AES-GCM decrypt failed", e);
+                return null;
+            }
+        }
         throw new DecryptBodyFailException();
     }
 }
@@ -18,9 +18,19 @@ import org.springframework.http.MediaType;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 
+import javax.crypto.Cipher;
+import javax.crypto.CipherOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
 /**
@@ -38,6 +48,11 @@ public class EncryptResponseBodyAdvice implements ResponseBodyAdvice {
 
     private final EncryptBodyConfig config;
 
+    /**
+     * 控制器方法到加密注解信息的缓存，注解只在首次请求时解析，未标注加密注解的方法缓存为{@link Optional#empty()}
+     */
+    private final ConcurrentMap<Method, Optional<EncryptAnnotationInfoBean>> infoBeanCache = new ConcurrentHashMap<>();
+
     @Autowired
     public EncryptResponseBodyAdvice(ObjectMapper objectMapper, EncryptBodyConfig config) {
         this.objectMapper = objectMapper;
@@ -47,25 +62,7 @@ public class EncryptResponseBodyAdvice implements ResponseBodyAdvice {
 
     @Override
     public boolean supports(MethodParameter returnType, Class converterType) {
-        Annotation[] annotations = returnType.getDeclaringClass().getAnnotations();
-        if(annotations!=null && annotations.length>0){
-            for (Annotation annotation : annotations) {
-                if(annotation instanceof EncryptBody ||
-                    annotation instanceof AESEncryptBody ||
-                    annotation instanceof DESEncryptBody ||
-                    annotation instanceof RSAEncryptBody ||
-                    annotation instanceof MD5EncryptBody ||
-                    annotation instanceof SHAEncryptBody){
-                    return true;
-                }
-            }
-        }
-        return returnType.getMethod().isAnnotationPresent(EncryptBody.class) ||
-                returnType.getMethod().isAnnotationPresent(AESEncryptBody.class) ||
-                returnType.getMethod().isAnnotationPresent(DESEncryptBody.class) ||
-                returnType.getMethod().isAnnotationPresent(RSAEncryptBody.class) ||
-                returnType.getMethod().isAnnotationPresent(MD5EncryptBody.class) ||
-                returnType.getMethod().isAnnotationPresent(SHAEncryptBody.class);
+        return getInfoBean(returnType)!=null;
     }
 
     @Override
@@ -73,21 +70,105 @@ public class EncryptResponseBodyAdvice implements ResponseBodyAdvice {
                                   Class selectedConverterType, ServerHttpRequest request, ServerHttpResponse response) {
         if(body==null) return null;
         response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+        EncryptAnnotationInfoBean infoBean = getInfoBean(returnType);
+        if(infoBean==null){
+            throw new EncryptBodyFailException();
+        }
+        if(infoBean.isRaw() || (config.isStreaming() && isCipherMethod(infoBean.getEncryptBodyMethod()))){
+            streamEncrypt(body, infoBean, response);
+            // 已直接写入响应体，返回null后不再经过HttpMessageConverter
+            return null;
+        }
         String str = null;
         try {
             str = objectMapper.writeValueAsString(body);
         } catch (JsonProcessingException e) {
             e.printStackTrace();
         }
-        EncryptAnnotationInfoBean classAnnotation = getClassAnnotation(returnType.getDeclaringClass());
-        if(classAnnotation!=null){
-            return switchEncrypt(str, classAnnotation);
+        return switchEncrypt(str, infoBean);
+    }
+
+    /**
+     * 获取控制器方法的加密注解信息，类注解优先，密钥已按配置解析
+     * @param returnType 控制器方法返回值
+     * @return 加密注解信息，未标注加密注解时返回null
+     */
+    private EncryptAnnotationInfoBean getInfoBean(MethodParameter returnType){
+        return infoBeanCache.computeIfAbsent(returnType.getMethod(), method -> {
+            EncryptAnnotationInfoBean infoBean = getClassAnnotation(returnType.getDeclaringClass());
+            if(infoBean==null){
+                infoBean = getMethodAnnotation(returnType);
+            }
+            if(infoBean==null && (returnType.hasMethodAnnotation(RSAEncryptBody.class) ||
+                    returnType.getDeclaringClass().isAnnotationPresent(RSAEncryptBody.class))){
+                // 暂不支持RSA加密，交由switchEncrypt抛出异常，避免明文输出
+                infoBean = EncryptAnnotationInfoBean.builder().encryptBodyMethod(EncryptBodyMethod.RSA).build();
+            }
+            if(infoBean!=null){
+                infoBean.setKey(resolveKey(infoBean));
+            }
+            return Optional.ofNullable(infoBean);
+        }).orElse(null);
+    }
+
+    /**
+     * 配置的密钥优先，其次为注解上的密钥
+     * @param infoBean 加密注解信息
+     * @return 实际使用的密钥，MD5/SHA/RSA返回注解上的密钥
+     */
+    private String resolveKey(EncryptAnnotationInfoBean infoBean){
+        String key = infoBean.getKey();
+        EncryptBodyMethod method = infoBean.getEncryptBodyMethod();
+        if(method == EncryptBodyMethod.DES){
+            return CheckUtils.checkAndGetKey(config.getDesKey(),key,"DES-KEY");
+        }
+        if(method == EncryptBodyMethod.AES){
+            return CheckUtils.checkAndGetKey(config.getAesKey(),key,"AES-KEY");
         }
-        EncryptAnnotationInfoBean methodAnnotation = getMethodAnnotation(returnType);
-        if(methodAnnotation!=null){
-            return switchEncrypt(str, methodAnnotation);
+        if(method == EncryptBodyMethod.AES_GCM){
+            return CheckUtils.checkAndGetKey(config.getAesGcmKey(),key,"AES-GCM-KEY");
+        }
+        return key;
+    }
+
+    private static boolean isCipherMethod(EncryptBodyMethod method){
+        return method == EncryptBodyMethod.AES || method == EncryptBodyMethod.DES || method == EncryptBodyMethod.AES_GCM;
+    }
+
+    /**
+     * 流式加密：Jackson序列化 -> {@link CipherOutputStream} -> Base64 -> 响应体，不产生中间字符串
+     * <p>AES-GCM先写入nonce，raw模式不经过Base64</p>
+     * @param body 响应数据
+     * @param infoBean 加密信息
+     * @param response 响应
+     */
+    private void streamEncrypt(Object body, EncryptAnnotationInfoBean infoBean, ServerHttpResponse response){
+        if(infoBean.isRaw()){
+            response.getHeaders().setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        }
+        String key = infoBean.getKey();
+        // 关闭CipherOutputStream时写入最后一个分组和Base64填充，响应流本身由容器关闭
+        try {
+            OutputStream target = StreamUtils.nonClosing(response.getBody());
+            if(!infoBean.isRaw()){
+                target = Base64.getEncoder().wrap(target);
+            }
+            Cipher cipher;
+            if(infoBean.getEncryptBodyMethod() == EncryptBodyMethod.AES_GCM){
+                byte[] nonce = AESGCMEncryptUtil.nonce();
+                target.write(nonce);
+                cipher = AESGCMEncryptUtil.cipher(Cipher.ENCRYPT_MODE, key, nonce);
+            }else if(infoBean.getEncryptBodyMethod() == EncryptBodyMethod.DES){
+                cipher = DesCipherUtil.cipher(Cipher.ENCRYPT_MODE, key);
+            }else{
+                cipher = AESEncryptUtil.cipher(Cipher.ENCRYPT_MODE, key);
+            }
+            try (OutputStream out = new CipherOutputStream(target, cipher)) {
+                objectMapper.writeValue(out, body);
+            }
+        } catch (IOException e) {
+            throw new EncryptBodyFailException(e.getMessage());
         }
-        throw new EncryptBodyFailException();
     }
 
     /**
@@ -127,6 +208,14 @@ public class EncryptResponseBodyAdvice implements ResponseBodyAdvice {
                     .key(methodParameter.getMethodAnnotation(AESEncryptBody.class).otherKey())
                     .build();
         }
+        if(methodParameter.getMethod().isAnnotationPresent(AESGCMEncryptBody.class)){
+            AESGCMEncryptBody aesgcmEncryptBody = methodParameter.getMethodAnnotation(AESGCMEncryptBody.class);
+            return EncryptAnnotationInfoBean.builder()
+                    .encryptBodyMethod(EncryptBodyMethod.AES_GCM)
+                    .key(aesgcmEncryptBody.otherKey())
+                    .raw(aesgcmEncryptBody.raw())
+                    .build();
+        }
         return null;
     }
 
@@ -170,6 +259,13 @@ public class EncryptResponseBodyAdvice implements ResponseBodyAdvice {
                             .key(((AESEncryptBody) annotation).otherKey())
                             .build();
                 }
+                if(annotation instanceof AESGCMEncryptBody){
+                    return EncryptAnnotationInfoBean.builder()
+                            .encryptBodyMethod(EncryptBodyMethod.AES_GCM)
+                            .key(((AESGCMEncryptBody) annotation).otherKey())
+                            .raw(((AESGCMEncryptBody) annotation).raw())
+                            .build();
+                }
             }
         }
         return null;
@@ -197,13 +293,14 @@ public class EncryptResponseBodyAdvice implements ResponseBodyAdvice {
         }
         String key = infoBean.getKey();
         if(method == EncryptBodyMethod.DES){
-            key = CheckUtils.checkAndGetKey(config.getDesKey(),key,"DES-KEY");
             return DesCipherUtil.encrypt(formatStringBody,key);
         }
         if(method == EncryptBodyMethod.AES){
-            key = CheckUtils.checkAndGetKey(config.getAesKey(),key,"AES-KEY");
             return AESEncryptUtil.encrypt(formatStringBody,key);
         }
+        if(method == EncryptBodyMethod.AES_GCM){
+            return AESGCMEncryptUtil.encrypt(formatStringBody,key);
+        }
         throw new EncryptBodyFailException();
     }
 
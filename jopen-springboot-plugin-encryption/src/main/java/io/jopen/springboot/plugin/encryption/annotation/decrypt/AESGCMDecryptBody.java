@@ -0,0 +1,22 @@
+package io.jopen.springboot.plugin.encryption.annotation.decrypt;
+
+import java.lang.annotation.*;
+
+/**
+ * <p>AES-GCM解密，密钥为Base64编码的16/24/32字节原始密钥</p>
+ * @see DecryptBody
+ * @see io.jopen.springboot.plugin.encryption.util.AESGCMEncryptUtil
+ */
+@Target(value = {ElementType.METHOD,ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface AESGCMDecryptBody {
+
+    String otherKey() default "";
+
+    /**
+     * 请求体为二进制密文，默认为Base64文本
+     */
+    boolean raw() default false;
+
+}
@@ -0,0 +1,22 @@
+package io.jopen.springboot.plugin.encryption.annotation.encrypt;
+
+import java.lang.annotation.*;
+
+/**
+ * <p>AES-GCM加密，密钥为Base64编码的16/24/32字节原始密钥</p>
+ * @see EncryptBody
+ * @see io.jopen.springboot.plugin.encryption.util.AESGCMEncryptUtil
+ */
+@Target(value = {ElementType.METHOD,ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface AESGCMEncryptBody {
+
+    String otherKey() default "";
+
+    /**
+     * 直接输出二进制密文（application/octet-stream），默认输出Base64文本
+     */
+    boolean raw() default false;
+
+}
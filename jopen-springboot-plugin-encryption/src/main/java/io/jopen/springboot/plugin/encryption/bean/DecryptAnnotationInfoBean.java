@@ -19,4 +19,9 @@ public class DecryptAnnotationInfoBean {
 
     private String key;
 
+    /**
+     * 请求体为二进制密文，仅AES-GCM支持
+     */
+    private boolean raw;
+
 }
@@ -22,4 +22,9 @@ public class EncryptAnnotationInfoBean {
 
     private SHAEncryptType shaEncryptType;
 
+    /**
+     * 直接输出二进制密文，仅AES-GCM支持
+     */
+    private boolean raw;
+
 }
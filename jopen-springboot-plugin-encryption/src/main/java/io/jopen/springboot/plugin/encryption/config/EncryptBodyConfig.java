@@ -12,6 +12,8 @@ import org.springframework.context.annotation.Configuration;
  *      body:
  *       aes-key: 12345678 # AES加密秘钥
  *       des-key: 12345678 # DES加密秘钥
+ *       aes-gcm-key: MDEyMzQ1Njc4OWFiY2RlZg== # AES-GCM加密秘钥，Base64编码的16/24/32字节
+ *       streaming: false # AES/DES流式加解密，密文使用Base64而非Hex
  * </pre>
  */
 @ConfigurationProperties(prefix = "encrypt.body")
@@ -23,8 +25,16 @@ public class EncryptBodyConfig {
 
     private String desKey;
 
+    private String aesGcmKey;
+
     private String encoding = "UTF-8";
 
+    /**
+     * <p>AES/DES流式加解密，请求体和响应体不再整体转换为字符串，内存占用与报文大小无关</p>
+     * <p>开启后密文使用Base64编码而非Hex编码，客户端需要同步调整</p>
+     */
+    private boolean streaming = false;
+
 
 
 }
@@ -5,6 +5,11 @@ package io.jopen.springboot.plugin.encryption.enums;
  */
 public enum DecryptBodyMethod {
 
-    DES,AES,RSA
+    DES,AES,RSA,
+
+    /**
+     * 带认证的AES-GCM解密
+     */
+    AES_GCM
 
 }
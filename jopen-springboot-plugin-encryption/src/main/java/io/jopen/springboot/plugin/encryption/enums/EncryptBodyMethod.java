@@ -5,6 +5,11 @@ package io.jopen.springboot.plugin.encryption.enums;
  */
 public enum EncryptBodyMethod {
 
-    MD5,DES,AES,SHA,RSA
+    MD5,DES,AES,SHA,RSA,
+
+    /**
+     * 带认证的AES-GCM加密
+     */
+    AES_GCM
 
 }
@@ -4,13 +4,33 @@ import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * <p>AES加密处理工具类</p>
+ * <p>密钥派生结果按密钥缓存，{@link Cipher}每个线程复用一个实例，每次请求只做加解密本身</p>
  */
 public class AESEncryptUtil {
 
+    /**
+     * 密钥到派生结果的缓存，密钥来自配置和注解，数量有限
+     */
+    private static final ConcurrentMap<String, SecretKeySpec> KEYS = new ConcurrentHashMap<>();
+
+    /**
+     * {@link Cipher}不是线程安全的，每个线程复用一个实例
+     */
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     /**
      * AES加密
      * @param content  字符串内容
@@ -38,15 +58,8 @@ public class AESEncryptUtil {
      */
     private static String aes(String content, String password, int type) {
         try {
-            KeyGenerator generator = KeyGenerator.getInstance("AES");
-            SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
-            random.setSeed(password.getBytes());
-            generator.init(128, random);
-            SecretKey secretKey = generator.generateKey();
-            byte[] enCodeFormat = secretKey.getEncoded();
-            SecretKeySpec key = new SecretKeySpec(enCodeFormat, "AES");
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(type, key);
+            Cipher cipher = CIPHER.get();
+            cipher.init(type, key(password));
             if (type == Cipher.ENCRYPT_MODE) {
                 byte[] byteContent = content.getBytes("utf-8");
                 return Hex2Util.parseByte2HexStr(cipher.doFinal(byteContent));
@@ -59,4 +72,45 @@ public class AESEncryptUtil {
         }
         return null;
     }
+
+    /**
+     * 流式加解密使用，每个流独占一个{@link Cipher}
+     * @param type     加密：{@link Cipher#ENCRYPT_MODE}，解密：{@link Cipher#DECRYPT_MODE}
+     * @param password 密钥
+     * @return 已初始化的{@link Cipher}
+     */
+    public static Cipher cipher(int type, String password) {
+        try {
+            Cipher cipher = Cipher.getInstance("AES");
+            cipher.init(type, key(password));
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES cipher init failed", e);
+        }
+    }
+
+    /**
+     * @param password 密钥
+     * @return 派生的AES密钥，同一密钥只派生一次
+     */
+    static SecretKeySpec key(String password) {
+        return KEYS.computeIfAbsent(password, AESEncryptUtil::deriveKey);
+    }
+
+    /**
+     * 以密钥为种子的SHA1PRNG生成128位AES密钥，与之前的密文保持兼容
+     * @param password 密钥
+     */
+    private static SecretKeySpec deriveKey(String password) {
+        try {
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
+            random.setSeed(password.getBytes());
+            generator.init(128, random);
+            SecretKey secretKey = generator.generateKey();
+            return new SecretKeySpec(secretKey.getEncoded(), "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES key derivation failed", e);
+        }
+    }
 }
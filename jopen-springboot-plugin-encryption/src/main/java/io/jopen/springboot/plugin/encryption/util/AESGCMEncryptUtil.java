@@ -0,0 +1,132 @@
+package io.jopen.springboot.plugin.encryption.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>AES-GCM加密处理工具类</p>
+ * <p>带认证的加密，密文被篡改时解密失败；JDK实现可使用AES-NI指令加速</p>
+ * <p>密文格式：12字节随机nonce + 密文 + 16字节认证标签，每条消息使用新的nonce</p>
+ * <p>密钥为Base64编码的16/24/32字节原始密钥</p>
+ */
+public class AESGCMEncryptUtil {
+
+    /**
+     * nonce长度（字节）
+     */
+    public static final int NONCE_LENGTH = 12;
+
+    /**
+     * 认证标签长度（位）
+     */
+    private static final int TAG_LENGTH = 128;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * 密钥到{@link SecretKeySpec}的缓存，密钥来自配置和注解，数量有限
+     */
+    private static final ConcurrentMap<String, SecretKeySpec> KEYS = new ConcurrentHashMap<>();
+
+    /**
+     * {@link Cipher}不是线程安全的，每个线程复用一个实例，每次加解密使用新的nonce重新初始化
+     */
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(AESGCMEncryptUtil::newCipher);
+
+    private AESGCMEncryptUtil() {
+    }
+
+    /**
+     * AES-GCM加密
+     * @param content 字符串内容
+     * @param key     Base64编码的密钥
+     * @return Base64编码的nonce + 密文
+     */
+    public static String encrypt(String content, String key) {
+        byte[] nonce = nonce();
+        try {
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, key(key), new GCMParameterSpec(TAG_LENGTH, nonce));
+            byte[] plain = content.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer out = ByteBuffer.allocate(NONCE_LENGTH + cipher.getOutputSize(plain.length));
+            out.put(nonce);
+            cipher.doFinal(ByteBuffer.wrap(plain), out);
+            return Base64.getEncoder().encodeToString(out.array());
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("encrypt failed", e);
+        }
+    }
+
+    /**
+     * AES-GCM解密
+     * @param content Base64编码的nonce + 密文
+     * @param key     Base64编码的密钥
+     * @return 解密后的字符串
+     */
+    public static String decrypt(String content, String key) {
+        byte[] bytes = Base64.getMimeDecoder().decode(content);
+        if (bytes.length < NONCE_LENGTH) {
+            throw new IllegalArgumentException("content is too short");
+        }
+        try {
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.DECRYPT_MODE, key(key), new GCMParameterSpec(TAG_LENGTH, bytes, 0, NONCE_LENGTH));
+            byte[] plain = cipher.doFinal(bytes, NONCE_LENGTH, bytes.length - NONCE_LENGTH);
+            return new String(plain, StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("decrypt failed", e);
+        }
+    }
+
+    /**
+     * @return 新的随机nonce
+     */
+    public static byte[] nonce() {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        RANDOM.nextBytes(nonce);
+        return nonce;
+    }
+
+    /**
+     * 流式加解密使用，每个流独占一个{@link Cipher}
+     * @param mode  加密：{@link Cipher#ENCRYPT_MODE}，解密：{@link Cipher#DECRYPT_MODE}
+     * @param key   Base64编码的密钥
+     * @param nonce 加密时为{@link #nonce()}，解密时为密文开头的nonce
+     * @return 已初始化的{@link Cipher}
+     */
+    public static Cipher cipher(int mode, String key, byte[] nonce) {
+        Cipher cipher = newCipher();
+        try {
+            cipher.init(mode, key(key), new GCMParameterSpec(TAG_LENGTH, nonce));
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("cipher init failed", e);
+        }
+    }
+
+    private static SecretKeySpec key(String key) {
+        return KEYS.computeIfAbsent(key, k -> {
+            byte[] raw = Base64.getDecoder().decode(k);
+            if (raw.length != 16 && raw.length != 24 && raw.length != 32) {
+                throw new IllegalArgumentException("AES-GCM key must be 16, 24 or 32 bytes after Base64 decoding");
+            }
+            return new SecretKeySpec(raw, "AES");
+        });
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
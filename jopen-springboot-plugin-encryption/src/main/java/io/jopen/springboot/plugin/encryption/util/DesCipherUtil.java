@@ -11,11 +11,31 @@ import java.security.NoSuchProviderException;
 import java.security.Security;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * <p>DES加密处理工具类</p>
+ * <p>密钥按配置缓存，{@link Cipher}每个线程复用一个实例，每次请求只做加解密本身</p>
  */
 public class DesCipherUtil  {
 
+    /**
+     * 密钥到{@link SecretKey}的缓存，密钥来自配置和注解，数量有限
+     */
+    private static final ConcurrentMap<String, SecretKey> KEYS = new ConcurrentHashMap<>();
+
+    /**
+     * {@link Cipher}不是线程安全的，每个线程复用一个实例
+     */
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("DES/ECB/PKCS7Padding", "BC");
+        } catch (NoSuchAlgorithmException | NoSuchProviderException | NoSuchPaddingException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     private DesCipherUtil() {
     }
 
@@ -38,17 +58,12 @@ public class DesCipherUtil  {
         }
 
         try {
-            DESKeySpec desKeySpec = new DESKeySpec(key.getBytes());
-            SecretKeyFactory secretKeyFactory = SecretKeyFactory.getInstance("DES");
-            SecretKey secretKey = secretKeyFactory.generateSecret(desKeySpec);
-
-            Cipher cipher = Cipher.getInstance("DES/ECB/PKCS7Padding", "BC");
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey);
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey(key));
             byte[] bytes = cipher.doFinal(encryptText.getBytes(Charset.forName("UTF-8")));
             return Base64.getEncoder().encodeToString(bytes);
 
-        } catch (NoSuchAlgorithmException | InvalidKeyException | InvalidKeySpecException | NoSuchPaddingException
-                | BadPaddingException | NoSuchProviderException | IllegalBlockSizeException e) {
+        } catch (InvalidKeyException | BadPaddingException | IllegalBlockSizeException | IllegalStateException e) {
             throw new RuntimeException("encrypt failed", e);
         }
 
@@ -68,17 +83,49 @@ public class DesCipherUtil  {
         }
 
         try {
-            DESKeySpec desKeySpec = new DESKeySpec(key.getBytes());
-            SecretKeyFactory secretKeyFactory = SecretKeyFactory.getInstance("DES");
-            SecretKey secretKey = secretKeyFactory.generateSecret(desKeySpec);
-
-            Cipher cipher = Cipher.getInstance("DES/ECB/PKCS7Padding", "BC");
-            cipher.init(Cipher.DECRYPT_MODE, secretKey);
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.DECRYPT_MODE, secretKey(key));
             byte[] bytes = cipher.doFinal(Base64.getDecoder().decode(decryptText));
             return new String(bytes, Charset.forName("UTF-8"));
 
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException | NoSuchPaddingException | BadPaddingException | NoSuchProviderException | IllegalBlockSizeException | InvalidKeyException e) {
+        } catch (BadPaddingException | IllegalBlockSizeException | InvalidKeyException | IllegalStateException e) {
             throw new RuntimeException("decrypt failed", e);
         }
     }
+
+    /**
+     * 流式加解密使用，每个流独占一个{@link Cipher}
+     *
+     * @param mode 加密：{@link Cipher#ENCRYPT_MODE}，解密：{@link Cipher#DECRYPT_MODE}
+     * @param key 密钥
+     * @return 已初始化的{@link Cipher}
+     */
+    public static Cipher cipher(int mode, String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must not be null");
+        }
+        try {
+            Cipher cipher = Cipher.getInstance("DES/ECB/PKCS7Padding", "BC");
+            cipher.init(mode, secretKey(key));
+            return cipher;
+        } catch (NoSuchAlgorithmException | NoSuchProviderException | NoSuchPaddingException | InvalidKeyException e) {
+            throw new RuntimeException("cipher init failed", e);
+        }
+    }
+
+    /**
+     * @param key 密钥
+     * @return 同一密钥只生成一次{@link SecretKey}
+     */
+    private static SecretKey secretKey(String key) {
+        return KEYS.computeIfAbsent(key, k -> {
+            try {
+                DESKeySpec desKeySpec = new DESKeySpec(k.getBytes());
+                SecretKeyFactory secretKeyFactory = SecretKeyFactory.getInstance("DES");
+                return secretKeyFactory.generateSecret(desKeySpec);
+            } catch (InvalidKeyException | NoSuchAlgorithmException | InvalidKeySpecException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
 }
@@ -0,0 +1,90 @@
+package io.jopen.springboot.plugin.encryption.advice;
+
+import io.jopen.springboot.plugin.encryption.annotation.decrypt.AESGCMDecryptBody;
+import io.jopen.springboot.plugin.encryption.bean.DecryptHttpInputMessage;
+import io.jopen.springboot.plugin.encryption.config.EncryptBodyConfig;
+import io.jopen.springboot.plugin.encryption.exception.DecryptBodyFailException;
+import io.jopen.springboot.plugin.encryption.util.AESGCMEncryptUtil;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * <p>AES-GCM请求体解密测试</p>
+ */
+public class DecryptRequestBodyAdviceTest {
+
+    private static final String KEY = Base64.getEncoder().encodeToString("0123456789abcdef".getBytes(StandardCharsets.US_ASCII));
+
+    public static class DemoController {
+
+        @AESGCMDecryptBody
+        public void text(@RequestBody String body) {
+        }
+
+        @AESGCMDecryptBody(raw = true)
+        public void raw(@RequestBody String body) {
+        }
+    }
+
+    private DecryptRequestBodyAdvice advice() {
+        EncryptBodyConfig config = new EncryptBodyConfig();
+        config.setAesGcmKey(KEY);
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(EncryptBodyConfig.class, () -> config);
+        context.registerBean(DecryptRequestBodyAdvice.class);
+        context.refresh();
+        return context.getBean(DecryptRequestBodyAdvice.class);
+    }
+
+    private static MethodParameter parameter(String method) throws NoSuchMethodException {
+        return new MethodParameter(DemoController.class.getMethod(method, String.class), 0);
+    }
+
+    private static String read(DecryptRequestBodyAdvice advice, String method, byte[] body) throws Exception {
+        HttpInputMessage message = new DecryptHttpInputMessage(new ByteArrayInputStream(body), new HttpHeaders());
+        HttpInputMessage decrypted = advice.beforeBodyRead(message, parameter(method), String.class, null);
+        return IOUtils.toString(decrypted.getBody(), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] tamperLast(byte[] raw) {
+        byte[] copy = raw.clone();
+        copy[copy.length - 1] ^= 1;
+        return copy;
+    }
+
+    @Test
+    public void decrypt() throws Exception {
+        DecryptRequestBodyAdvice advice = advice();
+        String encrypted = AESGCMEncryptUtil.encrypt("{\"amount\":100}", KEY);
+        Assert.assertEquals("{\"amount\":100}", read(advice, "text", encrypted.getBytes(StandardCharsets.US_ASCII)));
+        Assert.assertEquals("{\"amount\":100}", read(advice, "raw", Base64.getDecoder().decode(encrypted)));
+    }
+
+    @Test(expected = DecryptBodyFailException.class)
+    public void tamperedTextBodyIsRejected() throws Exception {
+        byte[] raw = Base64.getDecoder().decode(AESGCMEncryptUtil.encrypt("{\"amount\":100}", KEY));
+        read(advice(), "text", Base64.getEncoder().encode(tamperLast(raw)));
+    }
+
+    @Test(expected = DecryptBodyFailException.class)
+    public void tamperedRawBodyIsRejected() throws Exception {
+        byte[] raw = Base64.getDecoder().decode(AESGCMEncryptUtil.encrypt("{\"amount\":100}", KEY));
+        // 流式解密在读取到末尾校验认证标签时失败
+        read(advice(), "raw", tamperLast(raw));
+    }
+
+    @Test(expected = DecryptBodyFailException.class)
+    public void truncatedRawBodyIsRejected() throws Exception {
+        read(advice(), "raw", new byte[AESGCMEncryptUtil.NONCE_LENGTH - 1]);
+    }
+}
@@ -0,0 +1,133 @@
+package io.jopen.springboot.plugin.encryption.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * <p>{@link AESGCMEncryptUtil}测试</p>
+ */
+public class AESGCMEncryptUtilTest {
+
+    private static final String KEY = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII));
+
+    private static final String OTHER_KEY = Base64.getEncoder().encodeToString("fedcba9876543210".getBytes(StandardCharsets.US_ASCII));
+
+    private static String tamper(String content, int index) {
+        byte[] bytes = Base64.getDecoder().decode(content);
+        int i = index < 0 ? bytes.length + index : index;
+        bytes[i] ^= 1;
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    /**
+     * 流式加密得到的二进制密文：nonce + 密文 + 认证标签
+     */
+    private static byte[] streamEncrypt(String content) throws IOException {
+        byte[] nonce = AESGCMEncryptUtil.nonce();
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        raw.write(nonce);
+        try (CipherOutputStream out = new CipherOutputStream(raw, AESGCMEncryptUtil.cipher(Cipher.ENCRYPT_MODE, KEY, nonce))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return raw.toByteArray();
+    }
+
+    private static String streamDecrypt(byte[] raw) throws IOException {
+        InputStream source = new ByteArrayInputStream(raw);
+        byte[] nonce = new byte[AESGCMEncryptUtil.NONCE_LENGTH];
+        new DataInputStream(source).readFully(nonce);
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        try (InputStream in = new CipherInputStream(source, AESGCMEncryptUtil.cipher(Cipher.DECRYPT_MODE, KEY, nonce))) {
+            byte[] buffer = new byte[256];
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                plain.write(buffer, 0, n);
+            }
+        }
+        return new String(plain.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void roundTrip() {
+        for (String content : new String[]{"", "{\"name\":\"jopen\"}", "中文内容", new String(new char[10000]).replace('\0', 'x')}) {
+            Assert.assertEquals(content, AESGCMEncryptUtil.decrypt(AESGCMEncryptUtil.encrypt(content, KEY), KEY));
+        }
+    }
+
+    @Test
+    public void ciphertextFraming() {
+        byte[] bytes = Base64.getDecoder().decode(AESGCMEncryptUtil.encrypt("abc", KEY));
+        // nonce + 密文 + 16字节认证标签
+        Assert.assertEquals(AESGCMEncryptUtil.NONCE_LENGTH + 3 + 16, bytes.length);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void tamperedCiphertextIsRejected() {
+        String encrypted = AESGCMEncryptUtil.encrypt("{\"amount\":100}", KEY);
+        AESGCMEncryptUtil.decrypt(tamper(encrypted, AESGCMEncryptUtil.NONCE_LENGTH + 2), KEY);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void tamperedTagIsRejected() {
+        String encrypted = AESGCMEncryptUtil.encrypt("{\"amount\":100}", KEY);
+        AESGCMEncryptUtil.decrypt(tamper(encrypted, -1), KEY);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void tamperedNonceIsRejected() {
+        String encrypted = AESGCMEncryptUtil.encrypt("{\"amount\":100}", KEY);
+        AESGCMEncryptUtil.decrypt(tamper(encrypted, 0), KEY);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void wrongKeyIsRejected() {
+        AESGCMEncryptUtil.decrypt(AESGCMEncryptUtil.encrypt("{\"amount\":100}", KEY), OTHER_KEY);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedContentIsRejected() {
+        AESGCMEncryptUtil.decrypt(Base64.getEncoder().encodeToString(new byte[AESGCMEncryptUtil.NONCE_LENGTH - 1]), KEY);
+    }
+
+    @Test
+    public void nonceIsUnique() {
+        Set<String> nonces = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            String encrypted = AESGCMEncryptUtil.encrypt("same content", KEY);
+            byte[] nonce = Arrays.copyOf(Base64.getDecoder().decode(encrypted), AESGCMEncryptUtil.NONCE_LENGTH);
+            Assert.assertTrue(nonces.add(Base64.getEncoder().encodeToString(nonce)));
+        }
+    }
+
+    @Test
+    public void rawAndBase64Framing() throws IOException {
+        // 流式二进制密文经过Base64编码后与整体解密互通
+        byte[] raw = streamEncrypt("{\"name\":\"jopen\"}");
+        Assert.assertEquals("{\"name\":\"jopen\"}", streamDecrypt(raw));
+        Assert.assertEquals("{\"name\":\"jopen\"}", AESGCMEncryptUtil.decrypt(Base64.getEncoder().encodeToString(raw), KEY));
+
+        // 整体加密的Base64密文解码后与流式解密互通
+        byte[] decoded = Base64.getDecoder().decode(AESGCMEncryptUtil.encrypt("中文内容", KEY));
+        Assert.assertEquals("中文内容", streamDecrypt(decoded));
+    }
+
+    @Test(expected = IOException.class)
+    public void tamperedStreamIsRejected() throws IOException {
+        byte[] raw = streamEncrypt("{\"amount\":100}");
+        raw[raw.length - 1] ^= 1;
+        streamDecrypt(raw);
+    }
+}
@@ -41,4 +41,11 @@ public @interface ApiIdempotent {
      * @return
      */
     TokenLocation idempotentTokenLocation() default TokenLocation.HEADER;
+
+    /**
+     * 重复请求的处理方式
+     *
+     * @return 默认拒绝重复请求
+     */
+    IdempotentMode mode() default IdempotentMode.REJECT;
 }
@@ -0,0 +1,129 @@
+package io.jopen.springboot.plugin.idempotency;
+
+import com.google.common.base.Ticker;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地已消费Token过滤器
+ * <p>
+ * 1 Token在Redis中消费后写入当前节点的{@link BloomFilter}  重放的请求在本地直接拒绝  不再访问Redis
+ * 2 过滤器按周期轮换  保留当前和上一个周期  Token在本地被记住一到两个周期
+ * 3 存在误判率{@link ConsumedTokenFilter#FPP}  极少数首次使用的Token会被误判为重复请求  默认不开启
+ *
+ * @author maxuefeng
+ * @see EnableJopenIdempotent#consumedTokenFilterSize()
+ * @since 2020/2/27
+ */
+public final class ConsumedTokenFilter {
+
+    /**
+     * 误判率
+     */
+    static final double FPP = 0.00001;
+
+    /**
+     * 每个周期预计写入的Token数量  小于等于0时不开启
+     */
+    private final long expectedInsertions;
+
+    /**
+     * 轮换周期 单位为Ms
+     */
+    private final long window;
+
+    private final Ticker ticker;
+
+    private volatile Generation generation;
+
+    /**
+     * @param expectedInsertions 每个周期预计写入的Token数量  小于等于0时不开启
+     * @param window             轮换周期 单位为Ms
+     */
+    public ConsumedTokenFilter(long expectedInsertions, long window) {
+        this(expectedInsertions, window, Ticker.systemTicker());
+    }
+
+    /**
+     * @param expectedInsertions 每个周期预计写入的Token数量  小于等于0时不开启
+     * @param window             轮换周期 单位为Ms
+     * @param ticker             计时器  测试时可以替换
+     */
+    ConsumedTokenFilter(long expectedInsertions, long window, @NonNull Ticker ticker) {
+        this.expectedInsertions = expectedInsertions;
+        this.window = window;
+        this.ticker = ticker;
+        if (expectedInsertions > 0) {
+            this.generation = new Generation(this.create(), null, this.now() + window);
+        }
+    }
+
+    /**
+     * @return 是否开启
+     */
+    public boolean isEnabled() {
+        return this.expectedInsertions > 0;
+    }
+
+    /**
+     * @param token 幂等Token
+     * @return 是否可能已被消费  返回false时一定未在当前节点消费过
+     */
+    public boolean mightBeConsumed(@NonNull String token) {
+        if (!this.isEnabled()) {
+            return false;
+        }
+        Generation g = this.generation(this.now());
+        return g.current.mightContain(token) || (g.previous != null && g.previous.mightContain(token));
+    }
+
+    /**
+     * @param token 已在Redis中消费或不存在的幂等Token
+     */
+    public void markConsumed(@NonNull String token) {
+        if (this.isEnabled()) {
+            this.generation(this.now()).current.put(token);
+        }
+    }
+
+    private Generation generation(long now) {
+        Generation g = this.generation;
+        if (now < g.rotateAt) {
+            return g;
+        }
+        synchronized (this) {
+            g = this.generation;
+            if (now >= g.rotateAt) {
+                g = new Generation(this.create(), g.current, now + window);
+                this.generation = g;
+            }
+            return g;
+        }
+    }
+
+    private long now() {
+        return TimeUnit.NANOSECONDS.toMillis(ticker.read());
+    }
+
+    private BloomFilter<CharSequence> create() {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, FPP);
+    }
+
+    private static final class Generation {
+        private final BloomFilter<CharSequence> current;
+        @Nullable
+        private final BloomFilter<CharSequence> previous;
+        private final long rotateAt;
+
+        private Generation(BloomFilter<CharSequence> current, @Nullable BloomFilter<CharSequence> previous, long rotateAt) {
+            this.current = current;
+            this.previous = previous;
+            this.rotateAt = rotateAt;
+        }
+    }
+}
@@ -16,7 +16,9 @@ import java.util.function.Supplier;
 // 导入外部的对象注入
 @Import({TokenIdempotentInterceptor.class,
         IdempotentPluginConfiguration.class,
-        DefaultIdempotentTokenFunctionImpl.class
+        DefaultIdempotentTokenFunctionImpl.class,
+        // WebFlux应用中生效  需要配置spring.main.web-application-type=reactive
+        ReactiveIdempotentPluginConfiguration.class
 })
 public @interface EnableJopenIdempotent {
 
@@ -51,5 +53,71 @@ public @interface EnableJopenIdempotent {
      */
     TokenLocation idempotentTokenLocation() default TokenLocation.HEADER;
 
-    
+    /**
+     * Token在Redis中的Key前缀  {@link IdempotentTokenIssuer}写入和拦截器校验时使用同一个前缀
+     * 默认为空  Token本身即为Key  与自行写入Token的调用方兼容
+     * 配置前缀(如"idempotent:token:")后自行写入的Token也需要带上此前缀  否则请求被判定为重复请求
+     *
+     * @return 默认为空
+     * @see IdempotentTokenIssuer
+     */
+    String tokenKeyPrefix() default IdempotentTokenIssuer.DEFAULT_TOKEN_KEY_PREFIX;
+
+    /**
+     * 本地已消费Token过滤器每个周期预计写入的Token数量
+     * 开启后重放的请求在本地直接拒绝  存在极低的误判率  首次使用的Token可能被误判为重复请求
+     *
+     * @return 默认为0(不开启)
+     * @see ConsumedTokenFilter
+     */
+    long consumedTokenFilterSize() default 0;
+
+    /**
+     * 本地已消费Token过滤器的轮换周期 单位为秒
+     *
+     * @return 默认5分钟
+     * @see ConsumedTokenFilter
+     */
+    int consumedTokenFilterWindow() default 300;
+
+    /**
+     * 每批预生成并写入Redis的Token数量
+     *
+     * @return 默认每批128个
+     * @see IdempotentTokenIssuer
+     */
+    int issueBatchSize() default 128;
+
+    /**
+     * 发放的Token在Redis中的有效期 单位为秒
+     *
+     * @return 默认30分钟
+     * @see IdempotentTokenIssuer
+     */
+    int issueTokenTtl() default 1800;
+
+    /**
+     * {@link IdempotentMode#REPLAY}模式下首次请求的响应在Redis中的保留时间 单位为秒
+     *
+     * @return 默认1小时
+     * @see ResponseReplayStore
+     */
+    int replayTtl() default 3600;
+
+    /**
+     * {@link IdempotentMode#REPLAY}模式下处理中标记的有效期 单位为秒
+     * 首次请求所在节点宕机时  超过此时间后重复请求不再等待
+     *
+     * @return 默认60秒
+     * @see ResponseReplayStore
+     */
+    int replayInFlightTtl() default 60;
+
+    /**
+     * {@link IdempotentMode#REPLAY}模式下重复请求等待首次请求处理完成的最长时间 单位为Ms
+     *
+     * @return 默认5秒
+     * @see ResponseReplayStore
+     */
+    long replayWaitTimeout() default 5000;
 }
@@ -0,0 +1,26 @@
+package io.jopen.springboot.plugin.idempotency;
+
+/**
+ * 重复请求的处理方式
+ *
+ * @author maxuefeng
+ * @see ApiIdempotent#mode()
+ * @since 2020/2/27
+ */
+public enum IdempotentMode {
+
+    /**
+     * 重复请求抛出{@link RepeatRequestException}
+     */
+    REJECT,
+
+    /**
+     * 首次请求的响应状态码和响应体写入Redis  重复请求直接重放  不再执行Controller
+     * 首次请求处理中时重复请求等待处理结果
+     * <p>
+     * 仅Servlet应用生效  WebFlux应用中按{@link IdempotentMode#REJECT}处理
+     *
+     * @see ResponseReplayStore
+     */
+    REPLAY
+}
@@ -3,10 +3,12 @@ package io.jopen.springboot.plugin.idempotency;
 import com.google.common.base.Strings;
 import com.google.common.base.Verify;
 import com.google.common.collect.ImmutableMap;
-import io.jopen.springboot.plugin.common.IDUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.ImportAware;
+import org.springframework.core.Ordered;
 import org.springframework.core.annotation.AnnotationAttributes;
 import org.springframework.core.type.AnnotationMetadata;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -38,6 +40,31 @@ public class IdempotentPluginConfiguration implements ImportAware, WebMvcConfigu
      */
     private DefaultIdempotentTokenFunctionImpl defaultIdempotentTokenFunctionImpl;
 
+    /**
+     * 本地已消费Token过滤器
+     */
+    private ConsumedTokenFilter consumedTokenFilter;
+
+    /**
+     * 每批生成的Token数量
+     */
+    private int issueBatchSize;
+
+    /**
+     * Token有效期 单位为秒
+     */
+    private int issueTokenTtl;
+
+    /**
+     * Token在Redis中的Key前缀
+     */
+    private String tokenKeyPrefix;
+
+    /**
+     * {@link IdempotentMode#REPLAY}模式的响应存储
+     */
+    private ResponseReplayStore responseReplayStore;
+
     @Autowired
     public IdempotentPluginConfiguration(RedisTemplate<String, Object> redisTemplate,
                                          TokenIdempotentInterceptor tokenIdempotentInterceptor,
@@ -48,15 +75,57 @@ public class IdempotentPluginConfiguration implements ImportAware, WebMvcConfigu
         this.defaultIdempotentTokenFunctionImpl = defaultIdempotentTokenFunctionImpl;
     }
 
+    /**
+     * 从{@link IdempotentTokenIssuer}发放Token  Key前缀和有效期与拦截器一致
+     *
+     * @return Token
+     * @deprecated 直接注入{@link IdempotentTokenIssuer}并调用{@link IdempotentTokenIssuer#issue()}
+     */
     // @RequestMapping(value = "/getIdempotentToken", produces = {MediaType.APPLICATION_JSON_VALUE})
     @Deprecated
     public ImmutableMap<String, Object> getIdempotentToken() {
-        String idempotentToken = IDUtil.id();
-        redisTemplate.opsForValue().set(idempotentToken, "1");
-        redisTemplate.expire(idempotentToken, 5, TimeUnit.SECONDS);
-        return ImmutableMap.of("idempotentToken", idempotentToken);
+        return ImmutableMap.of("idempotentToken", idempotentTokenIssuer().issue());
     }
 
+    /**
+     * 幂等Token发放  开发者在页面渲染或下单前调用{@link IdempotentTokenIssuer#issue()}获取Token
+     *
+     * @return {@link IdempotentTokenIssuer}
+     */
+    @Bean
+    public IdempotentTokenIssuer idempotentTokenIssuer() {
+        return new IdempotentTokenIssuer(this.redisTemplate, this.issueBatchSize, TimeUnit.SECONDS.toMillis(this.issueTokenTtl),
+                this.tokenKeyPrefix);
+    }
+
+
+    /**
+     * @return 本地已消费Token过滤器  {@link EnableJopenIdempotent#consumedTokenFilterSize()}小于等于0时不开启
+     */
+    @Bean
+    public ConsumedTokenFilter consumedTokenFilter() {
+        return this.consumedTokenFilter;
+    }
+
+    /**
+     * @return {@link IdempotentMode#REPLAY}模式的响应存储
+     */
+    @Bean
+    public ResponseReplayStore responseReplayStore() {
+        return this.responseReplayStore;
+    }
+
+    /**
+     * 最靠近Servlet的位置包装响应  记录的是Controller写出的原始响应体
+     *
+     * @return {@link ReplayResponseFilter}
+     */
+    @Bean
+    public FilterRegistrationBean<ReplayResponseFilter> replayResponseFilter() {
+        FilterRegistrationBean<ReplayResponseFilter> registration = new FilterRegistrationBean<>(new ReplayResponseFilter());
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE);
+        return registration;
+    }
 
     /**
      * @param registry
@@ -107,10 +176,27 @@ public class IdempotentPluginConfiguration implements ImportAware, WebMvcConfigu
         String[] includePathPatterns = enableIdempotent.getStringArray("includePath");
         // excludePath
         String[] excludePathPatterns = enableIdempotent.getStringArray("excludePath");
+        // 本地已消费Token过滤器
+        long consumedTokenFilterSize = enableIdempotent.getNumber("consumedTokenFilterSize");
+        int consumedTokenFilterWindow = enableIdempotent.getNumber("consumedTokenFilterWindow");
+        this.consumedTokenFilter = new ConsumedTokenFilter(consumedTokenFilterSize, TimeUnit.SECONDS.toMillis(consumedTokenFilterWindow));
+        // Token发放
+        this.issueBatchSize = enableIdempotent.getNumber("issueBatchSize");
+        this.issueTokenTtl = enableIdempotent.getNumber("issueTokenTtl");
+        this.tokenKeyPrefix = enableIdempotent.getString("tokenKeyPrefix");
+        // 响应重放
+        int replayTtl = enableIdempotent.getNumber("replayTtl");
+        int replayInFlightTtl = enableIdempotent.getNumber("replayInFlightTtl");
+        long replayWaitTimeout = enableIdempotent.getNumber("replayWaitTimeout");
+        this.responseReplayStore = new ResponseReplayStore(this.redisTemplate, TimeUnit.SECONDS.toMillis(replayTtl),
+                TimeUnit.SECONDS.toMillis(replayInFlightTtl), replayWaitTimeout, this.tokenKeyPrefix);
 
         this.tokenIdempotentInterceptor.setOrder(order);
         this.tokenIdempotentInterceptor.setIncludePathPatterns(includePathPatterns);
         this.tokenIdempotentInterceptor.setExcludePathPatterns(excludePathPatterns);
+        this.tokenIdempotentInterceptor.setConsumedTokenFilter(this.consumedTokenFilter);
+        this.tokenIdempotentInterceptor.setResponseReplayStore(this.responseReplayStore);
+        this.tokenIdempotentInterceptor.setTokenKeyPrefix(this.tokenKeyPrefix);
         this.defaultIdempotentTokenFunctionImpl.setTokenKey(idempotentTokenKey);
         this.defaultIdempotentTokenFunctionImpl.setTokenLocation(tokenLocation);
     }
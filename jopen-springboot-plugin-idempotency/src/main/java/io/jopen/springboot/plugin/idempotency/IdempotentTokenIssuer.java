@@ -0,0 +1,203 @@
+package io.jopen.springboot.plugin.idempotency;
+
+import com.google.common.base.Throwables;
+import com.google.common.base.Verify;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 幂等Token发放
+ * <p>
+ * 1 Token为{@link SecureRandom}生成的128位随机数  不可猜测  在Redis中的Key为{@link EnableJopenIdempotent#tokenKeyPrefix()}加Token
+ * 2 Token批量生成  整批通过Pipeline写入Redis并设置过期时间  只有一次网络往返
+ * 3 写入成功的Token放入本地池  {@link IdempotentTokenIssuer#issue()}直接从本地池中取出  不访问Redis
+ * 4 本地池为空时只有一个线程写入下一批  写入Redis时不持有锁  其他线程等待写入完成
+ * 5 剩余有效期不足一半的批次不再发放  保证客户端拿到的Token至少还有一半的有效期
+ *
+ * @author maxuefeng
+ * @see TokenIdempotentInterceptor
+ * @see EnableJopenIdempotent#issueBatchSize()
+ * @since 2020/2/27
+ */
+public final class IdempotentTokenIssuer {
+
+    /**
+     * 默认的Token在Redis中的Key前缀  为空时Token本身即为Key  与自行写入Token的调用方兼容
+     */
+    public static final String DEFAULT_TOKEN_KEY_PREFIX = "";
+
+    /**
+     * Token的随机字节数
+     */
+    private static final int TOKEN_BYTES = 16;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 每批生成的Token数量
+     */
+    private final int batchSize;
+
+    /**
+     * Token在Redis中的有效期 单位为Ms
+     */
+    private final long ttl;
+
+    /**
+     * Token在Redis中的Key前缀
+     */
+    private final String tokenKeyPrefix;
+
+    private volatile Batch batch = new Batch(new ArrayList<>(), 0L);
+
+    /**
+     * 正在写入Redis的下一批  由持有this锁的线程创建和清除
+     */
+    private CompletableFuture<Batch> pending;
+
+    /**
+     * @param redisTemplate Redis模板  与{@link TokenIdempotentInterceptor}使用同一个
+     * @param batchSize     每批生成的Token数量
+     * @param ttl           Token在Redis中的有效期 单位为Ms
+     */
+    public IdempotentTokenIssuer(@NonNull RedisTemplate<String, Object> redisTemplate, int batchSize, long ttl) {
+        this(redisTemplate, batchSize, ttl, DEFAULT_TOKEN_KEY_PREFIX);
+    }
+
+    /**
+     * @param redisTemplate  Redis模板  与{@link TokenIdempotentInterceptor}使用同一个
+     * @param batchSize      每批生成的Token数量
+     * @param ttl            Token在Redis中的有效期 单位为Ms
+     * @param tokenKeyPrefix Token在Redis中的Key前缀  与校验Token时使用的前缀一致
+     */
+    public IdempotentTokenIssuer(@NonNull RedisTemplate<String, Object> redisTemplate, int batchSize, long ttl,
+                                 @NonNull String tokenKeyPrefix) {
+        Verify.verify(batchSize > 0, "batchSize must be gt zero");
+        Verify.verify(ttl > 0L, "ttl must be gt zero");
+        this.redisTemplate = redisTemplate;
+        this.batchSize = batchSize;
+        this.ttl = ttl;
+        this.tokenKeyPrefix = tokenKeyPrefix;
+    }
+
+    /**
+     * 发放一个幂等Token  本地池为空时同步生成下一批
+     *
+     * @return 已写入Redis的幂等Token
+     */
+    @NonNull
+    public String issue() {
+        for (; ; ) {
+            Batch current = this.batch;
+            if (current.usableUntil > System.currentTimeMillis()) {
+                String token = current.tokens.poll();
+                if (token != null) {
+                    return token;
+                }
+            }
+            CompletableFuture<Batch> next;
+            boolean generating = false;
+            synchronized (this) {
+                // 等待锁期间其他线程可能已经完成生成
+                if (this.batch != current) {
+                    continue;
+                }
+                if (this.pending == null) {
+                    this.pending = new CompletableFuture<>();
+                    generating = true;
+                }
+                next = this.pending;
+            }
+            if (generating) {
+                this.generate(next);
+            } else {
+                try {
+                    next.join();
+                } catch (CompletionException e) {
+                    Throwables.throwIfUnchecked(e.getCause());
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param tokenKeyPrefix Key前缀
+     * @param token          幂等Token
+     * @return Token在Redis中的Key
+     */
+    @NonNull
+    static String tokenKey(@NonNull String tokenKeyPrefix, @NonNull String token) {
+        return tokenKeyPrefix.isEmpty() ? token : tokenKeyPrefix + token;
+    }
+
+    /**
+     * 生成一批Token并通过Pipeline写入Redis  完成后替换当前批次
+     */
+    private void generate(CompletableFuture<Batch> next) {
+        try {
+            Batch generated = this.generate();
+            this.batch = generated;
+            next.complete(generated);
+        } catch (RuntimeException | Error e) {
+            next.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                this.pending = null;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Batch generate() {
+        List<String> tokens = new ArrayList<>(batchSize);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        byte[] bytes = new byte[TOKEN_BYTES];
+        for (int i = 0; i < batchSize; i++) {
+            RANDOM.nextBytes(bytes);
+            tokens.add(encoder.encodeToString(bytes));
+        }
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        byte[] value = ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize("1");
+        Expiration expiration = Expiration.milliseconds(ttl);
+
+        long now = System.currentTimeMillis();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String token : tokens) {
+                connection.set(keySerializer.serialize(tokenKey(tokenKeyPrefix, token)), value, expiration, RedisStringCommands.SetOption.upsert());
+            }
+            return null;
+        });
+        return new Batch(tokens, now + ttl / 2);
+    }
+
+    private static final class Batch {
+        private final Queue<String> tokens;
+
+        /**
+         * 超过此时间的批次不再发放
+         */
+        private final long usableUntil;
+
+        private Batch(List<String> tokens, long usableUntil) {
+            this.tokens = new ConcurrentLinkedQueue<>(tokens);
+            this.usableUntil = usableUntil;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package io.jopen.springboot.plugin.idempotency;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportAware;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+
+/**
+ * WebFlux应用中注册{@link ReactiveTokenIdempotentFilter}  Servlet应用中不生效
+ * <p>
+ * 插件依赖spring-boot-starter-web  类路径中同时存在Spring MVC和WebFlux时SpringBoot默认创建Servlet应用
+ * WebFlux应用需要配置{@code spring.main.web-application-type=reactive}  否则此配置不会生效
+ * <p>
+ * 与{@link IdempotentPluginConfiguration}读取同一个{@link EnableJopenIdempotent}注解
+ *
+ * @author maxuefeng
+ * @see ReactiveTokenIdempotentFilter
+ * @since 2020/2/26
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveIdempotentPluginConfiguration implements ImportAware {
+
+    private int order;
+
+    private String[] includePathPatterns;
+
+    private String[] excludePathPatterns;
+
+    private String tokenKeyPrefix;
+
+    @Bean
+    public ReactiveTokenIdempotentFilter reactiveTokenIdempotentFilter(ReactiveRedisTemplate<String, Object> reactiveRedisTemplate,
+                                                                       DefaultIdempotentTokenFunctionImpl defaultIdempotentTokenFunctionImpl,
+                                                                       ConsumedTokenFilter consumedTokenFilter) {
+        ReactiveTokenIdempotentFilter filter = new ReactiveTokenIdempotentFilter(
+                reactiveRedisTemplate, defaultIdempotentTokenFunctionImpl, consumedTokenFilter);
+        filter.setOrder(this.order);
+        filter.setPathPatterns(this.includePathPatterns);
+        filter.setExcludePathPatterns(this.excludePathPatterns);
+        filter.setTokenKeyPrefix(this.tokenKeyPrefix);
+        return filter;
+    }
+
+    @Override
+    public void setImportMetadata(AnnotationMetadata importMetadata) {
+        AnnotationAttributes enableIdempotent = AnnotationAttributes
+                .fromMap(importMetadata.getAnnotationAttributes(EnableJopenIdempotent.class.getName(), false));
+
+        if (enableIdempotent == null) {
+            throw new IllegalArgumentException(
+                    "@EnableJopenIdempotent is not present on importing class " + importMetadata.getClassName());
+        }
+        this.order = enableIdempotent.getNumber("order");
+        this.includePathPatterns = enableIdempotent.getStringArray("includePath");
+        this.excludePathPatterns = enableIdempotent.getStringArray("excludePath");
+        this.tokenKeyPrefix = enableIdempotent.getString("tokenKeyPrefix");
+    }
+}
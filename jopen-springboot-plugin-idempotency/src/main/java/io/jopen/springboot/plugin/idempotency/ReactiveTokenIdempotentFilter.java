@@ -0,0 +1,103 @@
+package io.jopen.springboot.plugin.idempotency;
+
+import com.google.common.base.Strings;
+import com.google.common.base.VerifyException;
+import io.jopen.springboot.plugin.annotation.cache.BaseWebFilter;
+import io.jopen.springboot.plugin.annotation.cache.HandlerMetadata;
+import io.jopen.springboot.plugin.common.tuple.Tuple2;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * 幂等性校验 {@link TokenIdempotentInterceptor}的WebFlux版本
+ * <p>
+ * 直接以DEL的返回值判断Token是否存在  检查和删除在一次网络往返中原子完成
+ * 开启{@link ConsumedTokenFilter}时重放的请求在本地拒绝
+ * {@link IdempotentMode#REPLAY}暂不支持  按{@link IdempotentMode#REJECT}处理
+ *
+ * @author maxuefeng
+ * @see TokenIdempotentInterceptor
+ * @see ReactiveIdempotentPluginConfiguration
+ * @since 2020/2/26
+ */
+public class ReactiveTokenIdempotentFilter extends BaseWebFilter {
+
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+
+    /**
+     * 默认的策略
+     *
+     * @see IdempotentTokenFunction
+     */
+    private final DefaultIdempotentTokenFunctionImpl defaultIdempotentTokenFunctionImpl;
+
+    /**
+     * 本地已消费Token过滤器
+     */
+    private final ConsumedTokenFilter consumedTokenFilter;
+
+    /**
+     * Token在Redis中的Key前缀
+     *
+     * @see EnableJopenIdempotent#tokenKeyPrefix()
+     */
+    private String tokenKeyPrefix = IdempotentTokenIssuer.DEFAULT_TOKEN_KEY_PREFIX;
+
+    public ReactiveTokenIdempotentFilter(@NonNull ReactiveRedisTemplate<String, Object> reactiveRedisTemplate,
+                                         @NonNull DefaultIdempotentTokenFunctionImpl defaultIdempotentTokenFunctionImpl,
+                                         @NonNull ConsumedTokenFilter consumedTokenFilter) {
+        super(ApiIdempotent.class);
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.defaultIdempotentTokenFunctionImpl = defaultIdempotentTokenFunctionImpl;
+        this.consumedTokenFilter = consumedTokenFilter;
+    }
+
+    public void setTokenKeyPrefix(@NonNull String tokenKeyPrefix) {
+        this.tokenKeyPrefix = tokenKeyPrefix;
+    }
+
+    @Override
+    protected @NonNull Mono<Void> filter(@NonNull ServerWebExchange exchange,
+                                         @NonNull WebFilterChain chain,
+                                         @NonNull HandlerMetadata handlerMetadata) {
+        ApiIdempotent apiIdempotent = handlerMetadata.getAnnotation(ApiIdempotent.class);
+        if (apiIdempotent == null) {
+            return chain.filter(exchange);
+        }
+        // Token的Key和位置每个方法只解析一次
+        Tuple2<String, TokenLocation> tokenConfig = handlerMetadata.getAttribute(TokenIdempotentInterceptor.TOKEN_CONFIG_ATTRIBUTE,
+                m -> TokenIdempotentInterceptor.resolveTokenConfig(apiIdempotent, this.defaultIdempotentTokenFunctionImpl));
+
+        String tokenValue = this.getTokenValue(exchange.getRequest(), tokenConfig.getF1(), tokenConfig.getF2());
+        if (Strings.isNullOrEmpty(tokenValue)) {
+            return Mono.error(new VerifyException("请求缺失幂等性参数"));
+        }
+        // 本地已记录的Token直接拒绝
+        if (consumedTokenFilter.mightBeConsumed(tokenValue)) {
+            return Mono.error(new RepeatRequestException("重复请求"));
+        }
+        return reactiveRedisTemplate.delete(IdempotentTokenIssuer.tokenKey(tokenKeyPrefix, tokenValue))
+                .doOnNext(deleted -> consumedTokenFilter.markConsumed(tokenValue))
+                .flatMap(deleted -> deleted != null && deleted > 0 ? chain.filter(exchange) :
+                        Mono.<Void>error(new RepeatRequestException("重复请求")));
+    }
+
+    private String getTokenValue(ServerHttpRequest request, String idempotentTokenKey, TokenLocation tokenLocation) {
+        switch (tokenLocation) {
+            case HEADER:
+                return request.getHeaders().getFirst(idempotentTokenKey);
+            case COOKIE:
+                HttpCookie cookie = request.getCookies().getFirst(idempotentTokenKey);
+                return cookie == null ? null : cookie.getValue();
+            case URL_PARAM:
+                return request.getQueryParams().getFirst(idempotentTokenKey);
+            default:
+                throw new RepeatRequestException("TokenLocation value error");
+        }
+    }
+}
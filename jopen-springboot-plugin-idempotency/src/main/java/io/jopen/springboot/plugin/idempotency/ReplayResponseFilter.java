@@ -0,0 +1,150 @@
+package io.jopen.springboot.plugin.idempotency;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * 包装响应  供{@link IdempotentMode#REPLAY}模式记录首次请求的响应体
+ * <p>
+ * 只有{@link TokenIdempotentInterceptor}调用{@link RecordingResponse#startRecording()}后才复制响应体
+ * 其他请求仅多一层包装  不产生额外的内存复制
+ *
+ * @author maxuefeng
+ * @see ResponseReplayStore
+ * @since 2020/2/27
+ */
+public class ReplayResponseFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        filterChain.doFilter(request, new RecordingResponse(response));
+    }
+
+    /**
+     * 按需记录响应体的{@link HttpServletResponse}
+     */
+    static final class RecordingResponse extends HttpServletResponseWrapper {
+
+        @Nullable
+        private ByteArrayOutputStream recorded;
+
+        @Nullable
+        private ServletOutputStream outputStream;
+
+        @Nullable
+        private PrintWriter writer;
+
+        RecordingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        /**
+         * 开始记录  须在获取输出流之前调用
+         */
+        void startRecording() {
+            this.recorded = new ByteArrayOutputStream();
+        }
+
+        /**
+         * @return 已记录的响应体
+         */
+        byte[] getRecorded() {
+            if (writer != null) {
+                writer.flush();
+            }
+            return recorded == null ? new byte[0] : recorded.toByteArray();
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (recorded == null) {
+                return super.getOutputStream();
+            }
+            if (outputStream == null) {
+                outputStream = new TeeOutputStream(super.getOutputStream(), recorded);
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (recorded == null) {
+                return super.getWriter();
+            }
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(this.getOutputStream(), this.getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            super.flushBuffer();
+        }
+    }
+
+    /**
+     * 同时写入响应和记录缓冲区
+     */
+    private static final class TeeOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        private final ByteArrayOutputStream copy;
+
+        private TeeOutputStream(ServletOutputStream delegate, ByteArrayOutputStream copy) {
+            this.delegate = delegate;
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            copy.write(b);
+        }
+
+        @Override
+        public void write(byte @NonNull [] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            copy.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package io.jopen.springboot.plugin.idempotency;
+
+import com.google.common.base.Strings;
+import com.google.common.base.Verify;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link IdempotentMode#REPLAY}模式下首次请求的响应存储
+ * <p>
+ * 1 删除Token和写入处理中标记在同一个Lua脚本中完成  并发的重复请求只有一个能成为首次请求
+ * 2 首次请求完成后响应状态码 ContentType 响应体以二进制写入Redis  不经过{@link RedisTemplate}的Value序列化器
+ * 3 重复请求轮询处理中标记  直到首次请求完成或等待超时
+ * 4 5xx响应不保存  删除处理中标记并重新写入Token  客户端可以使用同一个Token重试
+ * 5 重放不校验调用方  依赖{@link IdempotentTokenIssuer}发放的Token不可猜测  Token不应在调用方之间共享
+ *
+ * @author maxuefeng
+ * @see TokenIdempotentInterceptor
+ * @see ReplayResponseFilter
+ * @since 2020/2/27
+ */
+public final class ResponseReplayStore {
+
+    static final String REPLAY_PREFIX = "idempotent:replay:";
+
+    /**
+     * 标记响应头  重放的响应携带此响应头
+     */
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final byte IN_FLIGHT = 0;
+
+    private static final byte COMPLETED = 1;
+
+    /**
+     * KEYS[1] Token的Key  KEYS[2] 重放Key  ARGV[1] 处理中标记  ARGV[2] 处理中标记有效期
+     */
+    private static final byte[] CONSUME_SCRIPT = ("if redis.call('DEL', KEYS[1]) == 1 then " +
+            "redis.call('SET', KEYS[2], ARGV[1], 'PX', ARGV[2]) " +
+            "return 1 " +
+            "end " +
+            "return 0").getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * KEYS[1] Token的Key  KEYS[2] 重放Key  ARGV[1] Token的值  ARGV[2] Token有效期
+     */
+    private static final byte[] RELEASE_SCRIPT = ("if redis.call('DEL', KEYS[2]) == 1 then " +
+            "redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+            "return 1 " +
+            "end " +
+            "return 0").getBytes(StandardCharsets.UTF_8);
+
+    private static final long MIN_POLL_INTERVAL = 20L;
+
+    private static final long MAX_POLL_INTERVAL = 200L;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 响应保留时间 单位为Ms
+     */
+    private final long ttl;
+
+    /**
+     * 处理中标记有效期 单位为Ms
+     */
+    private final long inFlightTtl;
+
+    /**
+     * 重复请求最长等待时间 单位为Ms
+     */
+    private final long waitTimeout;
+
+    /**
+     * Token在Redis中的Key前缀
+     */
+    private final String tokenKeyPrefix;
+
+    public ResponseReplayStore(@NonNull RedisTemplate<String, Object> redisTemplate, long ttl, long inFlightTtl, long waitTimeout) {
+        this(redisTemplate, ttl, inFlightTtl, waitTimeout, IdempotentTokenIssuer.DEFAULT_TOKEN_KEY_PREFIX);
+    }
+
+    /**
+     * @param tokenKeyPrefix Token在Redis中的Key前缀  与{@link IdempotentTokenIssuer}一致
+     */
+    public ResponseReplayStore(@NonNull RedisTemplate<String, Object> redisTemplate, long ttl, long inFlightTtl, long waitTimeout,
+                               @NonNull String tokenKeyPrefix) {
+        Verify.verify(ttl > 0L, "ttl must be gt zero");
+        Verify.verify(inFlightTtl > 0L, "inFlightTtl must be gt zero");
+        this.redisTemplate = redisTemplate;
+        this.ttl = ttl;
+        this.inFlightTtl = inFlightTtl;
+        this.waitTimeout = waitTimeout;
+        this.tokenKeyPrefix = tokenKeyPrefix;
+    }
+
+    /**
+     * 消费Token并写入处理中标记
+     *
+     * @param token 幂等Token
+     * @return 是否为首次请求
+     */
+    public boolean consume(@NonNull String token) {
+        byte[] tokenKey = this.serializeKey(IdempotentTokenIssuer.tokenKey(tokenKeyPrefix, token));
+        byte[] replayKey = this.serializeKey(REPLAY_PREFIX + token);
+        byte[] marker = {IN_FLIGHT};
+        byte[] px = String.valueOf(inFlightTtl).getBytes(StandardCharsets.UTF_8);
+        Long consumed = redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.eval(CONSUME_SCRIPT, ReturnType.INTEGER, 2, tokenKey, replayKey, marker, px));
+        return consumed != null && consumed == 1L;
+    }
+
+    /**
+     * 等待首次请求的响应
+     *
+     * @param token 幂等Token
+     * @return 首次请求的响应
+     * @throws RepeatRequestException Token不存在或响应已过期  或等待超时
+     */
+    @NonNull
+    public Replay await(@NonNull String token) {
+        byte[] replayKey = this.serializeKey(REPLAY_PREFIX + token);
+        long deadline = System.currentTimeMillis() + waitTimeout;
+        long interval = MIN_POLL_INTERVAL;
+        for (; ; ) {
+            byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(replayKey));
+            if (value == null || value.length == 0) {
+                throw new RepeatRequestException("重复请求");
+            }
+            if (value[0] == COMPLETED) {
+                return Replay.decode(value);
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0L) {
+                throw new RepeatRequestException("请求处理中");
+            }
+            try {
+                Thread.sleep(Math.min(interval, remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RepeatRequestException("请求处理中");
+            }
+            interval = Math.min(interval << 1, MAX_POLL_INTERVAL);
+        }
+    }
+
+    /**
+     * 保存首次请求的响应  覆盖处理中标记
+     *
+     * @param token       幂等Token
+     * @param status      响应状态码
+     * @param contentType 响应ContentType
+     * @param body        响应体
+     */
+    public void complete(@NonNull String token, int status, @Nullable String contentType, byte @NonNull [] body) {
+        byte[] replayKey = this.serializeKey(REPLAY_PREFIX + token);
+        byte[] value = new Replay(status, contentType, body).encode();
+        Expiration expiration = Expiration.milliseconds(ttl);
+        redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                connection.set(replayKey, value, expiration, RedisStringCommands.SetOption.upsert()));
+    }
+
+    /**
+     * 首次请求未能正常完成时删除处理中标记并重新写入Token  客户端可以使用同一个Token重试
+     * 等待中的重复请求收到{@link RepeatRequestException}
+     *
+     * @param token 幂等Token
+     */
+    public void release(@NonNull String token) {
+        byte[] tokenKey = this.serializeKey(IdempotentTokenIssuer.tokenKey(tokenKeyPrefix, token));
+        byte[] replayKey = this.serializeKey(REPLAY_PREFIX + token);
+        byte[] value = "1".getBytes(StandardCharsets.UTF_8);
+        byte[] px = String.valueOf(ttl).getBytes(StandardCharsets.UTF_8);
+        redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.eval(RELEASE_SCRIPT, ReturnType.INTEGER, 2, tokenKey, replayKey, value, px));
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] serializeKey(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+
+    /**
+     * 首次请求的响应
+     */
+    public static final class Replay {
+        private final int status;
+        @Nullable
+        private final String contentType;
+        private final byte[] body;
+
+        Replay(int status, @Nullable String contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        @Nullable
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * @param response 当前请求的响应
+         * @throws IOException 写入响应体失败
+         */
+        public void writeTo(@NonNull HttpServletResponse response) throws IOException {
+            response.setStatus(status);
+            if (contentType != null) {
+                response.setContentType(contentType);
+            }
+            response.setHeader(REPLAYED_HEADER, "true");
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+
+        byte[] encode() {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length + 64);
+            try (DataOutputStream out = new DataOutputStream(buffer)) {
+                out.writeByte(COMPLETED);
+                out.writeInt(status);
+                out.writeUTF(Strings.nullToEmpty(contentType));
+                out.writeInt(body.length);
+                out.write(body);
+            } catch (IOException e) {
+                // ByteArrayOutputStream不会抛出IOException
+                throw new UncheckedIOException(e);
+            }
+            return buffer.toByteArray();
+        }
+
+        static Replay decode(byte[] value) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(value))) {
+                in.readByte();
+                int status = in.readInt();
+                String contentType = Strings.emptyToNull(in.readUTF());
+                byte[] body = new byte[in.readInt()];
+                in.readFully(body);
+                return new Replay(status, contentType, body);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -2,14 +2,19 @@ package io.jopen.springboot.plugin.idempotency;
 
 import com.google.common.base.Strings;
 import io.jopen.springboot.plugin.annotation.cache.BaseInterceptor;
+import io.jopen.springboot.plugin.annotation.cache.HandlerMetadata;
+import io.jopen.springboot.plugin.common.tuple.Tuple2;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.util.WebUtils;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -62,12 +67,53 @@ public class TokenIdempotentInterceptor extends BaseInterceptor {
         return excludePathPatterns;
     }
 
+    public void setConsumedTokenFilter(@NonNull ConsumedTokenFilter consumedTokenFilter) {
+        this.consumedTokenFilter = consumedTokenFilter;
+    }
+
     public void setExcludePathPatterns(String[] excludePathPatterns) {
         this.excludePathPatterns = excludePathPatterns;
     }
 
+    public void setResponseReplayStore(@NonNull ResponseReplayStore responseReplayStore) {
+        this.responseReplayStore = responseReplayStore;
+    }
+
+    public void setTokenKeyPrefix(@NonNull String tokenKeyPrefix) {
+        this.tokenKeyPrefix = tokenKeyPrefix;
+    }
+
     private RedisTemplate<String, Object> redisTemplate;
 
+    /**
+     * 本地已消费Token过滤器
+     *
+     * @see EnableJopenIdempotent#consumedTokenFilterSize()
+     */
+    private ConsumedTokenFilter consumedTokenFilter = new ConsumedTokenFilter(0, 0);
+
+    /**
+     * {@link IdempotentMode#REPLAY}模式的响应存储
+     */
+    private ResponseReplayStore responseReplayStore;
+
+    /**
+     * Token在Redis中的Key前缀
+     *
+     * @see EnableJopenIdempotent#tokenKeyPrefix()
+     */
+    private String tokenKeyPrefix = IdempotentTokenIssuer.DEFAULT_TOKEN_KEY_PREFIX;
+
+    /**
+     * {@link HandlerMetadata#getAttribute(String, java.util.function.Function)} Token的Key和位置
+     */
+    static final String TOKEN_CONFIG_ATTRIBUTE = TokenIdempotentInterceptor.class.getName() + ".tokenConfig";
+
+    /**
+     * 首次请求的Token  {@link TokenIdempotentInterceptor#afterCompletion}据此保存响应
+     */
+    private static final String REPLAY_TOKEN_ATTRIBUTE = TokenIdempotentInterceptor.class.getName() + ".replayToken";
+
 
     // Order
     // redis IO多路复用的意思只是acceptor是单线程的 而handler任然是多线程
@@ -75,28 +121,23 @@ public class TokenIdempotentInterceptor extends BaseInterceptor {
     public TokenIdempotentInterceptor(@NonNull RedisTemplate<String, Object> redisTemplate,
                                       @NonNull DefaultIdempotentTokenFunctionImpl defaultIdempotentTokenFunctionImpl
     ) {
+        super(ApiIdempotent.class);
         this.redisTemplate = redisTemplate;
         this.defaultIdempotentTokenFunctionImpl = defaultIdempotentTokenFunctionImpl;
     }
 
     @Override
-    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
         // 获取注解
-        ApiIdempotent apiIdempotent = super.getApiServiceAnnotation(ApiIdempotent.class, handler);
+        HandlerMetadata handlerMetadata = super.getHandlerMetadata(handler);
+        if (handlerMetadata == null) return true;
+        ApiIdempotent apiIdempotent = handlerMetadata.getAnnotation(ApiIdempotent.class);
         if (apiIdempotent == null) return true;
 
-        // 使用全局配置
-        String idempotentTokenKey;
-        TokenLocation tokenLocation;
-        if (apiIdempotent.usingGlobalConfig()) {
-            idempotentTokenKey = this.defaultIdempotentTokenFunctionImpl.setupTokenKey();
-            tokenLocation = this.defaultIdempotentTokenFunctionImpl.setupTokenLocation();
-        } else {
-            idempotentTokenKey = apiIdempotent.idempotentTokenKey();
-            tokenLocation = apiIdempotent.idempotentTokenLocation();
-        }
-        com.google.common.base.Verify.verify(!Strings.isNullOrEmpty(idempotentTokenKey), "idempotentTokenKey require non null");
-        com.google.common.base.Verify.verify(tokenLocation != null, "tokenLocation require non null");
+        // Token的Key和位置每个方法只解析一次
+        Tuple2<String, TokenLocation> tokenConfig = handlerMetadata.getAttribute(TOKEN_CONFIG_ATTRIBUTE, m -> resolveTokenConfig(apiIdempotent, this.defaultIdempotentTokenFunctionImpl));
+        String idempotentTokenKey = tokenConfig.getF1();
+        TokenLocation tokenLocation = tokenConfig.getF2();
 
         //
         String tokenValue = null;
@@ -118,11 +159,80 @@ public class TokenIdempotentInterceptor extends BaseInterceptor {
             throw new RepeatRequestException("TokenLocation value error");
         }
         com.google.common.base.Verify.verify(!Strings.isNullOrEmpty(tokenValue), "请求缺失幂等性参数");
-        boolean hasKey = redisTemplate.hasKey(tokenValue);
-        if (hasKey) {
-            redisTemplate.delete(tokenValue);
+        // 重放模式  重复请求需要拿到首次请求的响应  不经过本地已消费Token过滤器
+        if (IdempotentMode.REPLAY.equals(apiIdempotent.mode()) && responseReplayStore != null) {
+            ReplayResponseFilter.RecordingResponse recordingResponse =
+                    WebUtils.getNativeResponse(response, ReplayResponseFilter.RecordingResponse.class);
+            if (recordingResponse != null) {
+                return this.replay(request, response, recordingResponse, tokenValue);
+            }
+        }
+        // 本地已记录的Token直接拒绝
+        if (consumedTokenFilter.mightBeConsumed(tokenValue)) {
+            throw new RepeatRequestException("重复请求");
+        }
+        // 以DEL的返回值判断Token是否存在  检查和删除在一次网络往返中原子完成  并发的重复请求只有一个能删除成功
+        Boolean consumed = redisTemplate.delete(IdempotentTokenIssuer.tokenKey(tokenKeyPrefix, tokenValue));
+        consumedTokenFilter.markConsumed(tokenValue);
+        if (Boolean.TRUE.equals(consumed)) {
             return true;
         }
         throw new RepeatRequestException("重复请求");
     }
+
+    /**
+     * 首次请求记录响应体  重复请求重放首次请求的响应
+     *
+     * @return 是否继续执行Controller
+     */
+    private boolean replay(HttpServletRequest request, HttpServletResponse response,
+                           ReplayResponseFilter.RecordingResponse recordingResponse, String tokenValue) throws IOException {
+        if (responseReplayStore.consume(tokenValue)) {
+            recordingResponse.startRecording();
+            request.setAttribute(REPLAY_TOKEN_ATTRIBUTE, tokenValue);
+            return true;
+        }
+        responseReplayStore.await(tokenValue).writeTo(response);
+        return false;
+    }
+
+    /**
+     * 首次请求完成后保存响应  未处理的异常或5xx响应则释放Token  客户端可以重试
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object tokenValue = request.getAttribute(REPLAY_TOKEN_ATTRIBUTE);
+        if (tokenValue == null) return;
+        ReplayResponseFilter.RecordingResponse recordingResponse =
+                WebUtils.getNativeResponse(response, ReplayResponseFilter.RecordingResponse.class);
+        // 5xx响应不保存
+        boolean serverError = HttpStatus.Series.SERVER_ERROR.equals(HttpStatus.Series.resolve(response.getStatus()));
+        if (ex != null || recordingResponse == null || serverError) {
+            responseReplayStore.release(tokenValue.toString());
+            return;
+        }
+        responseReplayStore.complete(tokenValue.toString(), response.getStatus(), response.getContentType(), recordingResponse.getRecorded());
+    }
+
+    /**
+     * @param apiIdempotent           幂等注解
+     * @param idempotentTokenFunction 全局配置
+     * @return Token的Key和位置
+     */
+    static Tuple2<String, TokenLocation> resolveTokenConfig(@NonNull ApiIdempotent apiIdempotent,
+                                                            @NonNull IdempotentTokenFunction idempotentTokenFunction) {
+        // 使用全局配置
+        String idempotentTokenKey;
+        TokenLocation tokenLocation;
+        if (apiIdempotent.usingGlobalConfig()) {
+            idempotentTokenKey = idempotentTokenFunction.setupTokenKey();
+            tokenLocation = idempotentTokenFunction.setupTokenLocation();
+        } else {
+            idempotentTokenKey = apiIdempotent.idempotentTokenKey();
+            tokenLocation = apiIdempotent.idempotentTokenLocation();
+        }
+        com.google.common.base.Verify.verify(!Strings.isNullOrEmpty(idempotentTokenKey), "idempotentTokenKey require non null");
+        com.google.common.base.Verify.verify(tokenLocation != null, "tokenLocation require non null");
+        return new Tuple2<>(idempotentTokenKey, tokenLocation);
+    }
 }
@@ -0,0 +1,54 @@
+package io.jopen.springboot.plugin.idempotency;
+
+import com.google.common.base.Ticker;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author maxuefeng
+ * @see ConsumedTokenFilter
+ * @since 2020/2/27
+ */
+public class ConsumedTokenFilterTest {
+
+    @Test
+    public void testMarkConsumed() {
+        ConsumedTokenFilter filter = new ConsumedTokenFilter(1000, 60000);
+        filter.markConsumed("token-1");
+
+        Assert.assertTrue(filter.mightBeConsumed("token-1"));
+        Assert.assertFalse(filter.mightBeConsumed("token-2"));
+    }
+
+    @Test
+    public void testRotate() {
+        AtomicLong nanos = new AtomicLong();
+        ConsumedTokenFilter filter = new ConsumedTokenFilter(1000, 100, new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        });
+        filter.markConsumed("token-1");
+
+        // 进入下一个周期仍然记得上一个周期的Token
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(150));
+        Assert.assertTrue(filter.mightBeConsumed("token-1"));
+
+        // 超过两个周期后被遗忘  交给Redis判断
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        filter.markConsumed("token-2");
+        Assert.assertFalse(filter.mightBeConsumed("token-1"));
+    }
+
+    @Test
+    public void testDisabled() {
+        ConsumedTokenFilter filter = new ConsumedTokenFilter(0, 60000);
+        filter.markConsumed("token-1");
+
+        Assert.assertFalse(filter.mightBeConsumed("token-1"));
+    }
+}
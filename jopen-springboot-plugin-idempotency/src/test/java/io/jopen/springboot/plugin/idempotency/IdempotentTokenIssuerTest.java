@@ -0,0 +1,97 @@
+package io.jopen.springboot.plugin.idempotency;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * @author maxuefeng
+ * @see IdempotentTokenIssuer
+ * @since 2020/2/27
+ */
+public class IdempotentTokenIssuerTest {
+
+    /**
+     * 记录Pipeline次数  不执行写入
+     */
+    private static class CountingRedisTemplate extends RedisTemplate<String, Object> {
+
+        private final AtomicInteger pipelines = new AtomicInteger();
+
+        private volatile long delay;
+
+        private CountingRedisTemplate() {
+            setKeySerializer(RedisSerializer.string());
+            setValueSerializer(RedisSerializer.string());
+        }
+
+        @Override
+        public List<Object> executePipelined(RedisCallback<?> action) {
+            pipelines.incrementAndGet();
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Collections.emptyList();
+        }
+    }
+
+    @Test
+    public void tokensAreRandom() {
+        CountingRedisTemplate redisTemplate = new CountingRedisTemplate();
+        IdempotentTokenIssuer issuer = new IdempotentTokenIssuer(redisTemplate, 64, 60000L);
+        Set<String> tokens = ConcurrentHashMap.newKeySet();
+        Pattern base64Url = Pattern.compile("[A-Za-z0-9_-]{22}");
+        for (int i = 0; i < 640; i++) {
+            String token = issuer.issue();
+            // 128位随机数
+            Assert.assertTrue(token, base64Url.matcher(token).matches());
+            Assert.assertTrue(tokens.add(token));
+        }
+        Assert.assertEquals(10, redisTemplate.pipelines.get());
+        // 默认不带前缀  Token本身即为Key
+        Assert.assertEquals("abc", IdempotentTokenIssuer.tokenKey(IdempotentTokenIssuer.DEFAULT_TOKEN_KEY_PREFIX, "abc"));
+        Assert.assertEquals("idempotent:token:abc", IdempotentTokenIssuer.tokenKey("idempotent:token:", "abc"));
+    }
+
+    @Test
+    public void concurrentIssueGeneratesOneBatch() throws Exception {
+        CountingRedisTemplate redisTemplate = new CountingRedisTemplate();
+        redisTemplate.delay = 100L;
+        IdempotentTokenIssuer issuer = new IdempotentTokenIssuer(redisTemplate, 64, 60000L);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            Future<?>[] futures = new Future<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> {
+                    start.await();
+                    return issuer.issue();
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                Assert.assertNotNull(future.get(5, TimeUnit.SECONDS));
+            }
+            // 写入Redis期间其他线程等待同一批
+            Assert.assertEquals(1, redisTemplate.pipelines.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package io.jopen.springboot.plugin.idempotency;
+
+import io.jopen.springboot.plugin.annotation.cache.HandlerMetadata;
+import io.jopen.springboot.plugin.annotation.cache.HandlerMetadataRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.connection.ReactiveKeyCommands;
+import org.springframework.data.redis.connection.ReactiveRedisConnection;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisCallback;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author maxuefeng
+ * @see ReactiveTokenIdempotentFilter
+ * @since 2020/2/27
+ */
+public class ReactiveTokenIdempotentFilterTest {
+
+    public static class DemoController {
+
+        @ApiIdempotent
+        public void pay() {
+        }
+
+        @ApiIdempotent(usingGlobalConfig = false, idempotentTokenKey = "token", idempotentTokenLocation = TokenLocation.URL_PARAM)
+        public void order() {
+        }
+
+        public void query() {
+        }
+    }
+
+    /**
+     * 只实现DEL的Redis  Key存在时删除并返回1
+     */
+    private static class DeleteOnlyRedisTemplate extends ReactiveRedisTemplate<String, Object> {
+
+        private final Set<String> keys = ConcurrentHashMap.newKeySet();
+
+        private final AtomicInteger deletes = new AtomicInteger();
+
+        private final ReactiveRedisConnection connection;
+
+        private DeleteOnlyRedisTemplate() {
+            super(unsupported(ReactiveRedisConnectionFactory.class),
+                    RedisSerializationContext.<String, Object>newSerializationContext(RedisSerializer.string()).build());
+            ReactiveKeyCommands keyCommands = (ReactiveKeyCommands) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{ReactiveKeyCommands.class}, (proxy, method, args) -> {
+                        if (!"del".equals(method.getName()) || !(args[0] instanceof ByteBuffer)) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        deletes.incrementAndGet();
+                        return Mono.just(keys.remove(StandardCharsets.UTF_8.decode((ByteBuffer) args[0]).toString()) ? 1L : 0L);
+                    });
+            this.connection = (ReactiveRedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{ReactiveRedisConnection.class}, (proxy, method, args) -> {
+                        if (!"keyCommands".equals(method.getName())) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        return keyCommands;
+                    });
+        }
+
+        @Override
+        public <T> Mono<T> createMono(ReactiveRedisCallback<T> callback) {
+            return Mono.from(callback.doInRedis(connection));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T unsupported(Class<T> type) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                throw new UnsupportedOperationException(method.getName());
+            });
+        }
+    }
+
+    private final AtomicInteger passed = new AtomicInteger();
+
+    private final WebFilterChain chain = exchange -> {
+        passed.incrementAndGet();
+        return Mono.empty();
+    };
+
+    private final DeleteOnlyRedisTemplate redisTemplate = new DeleteOnlyRedisTemplate();
+
+    private ReactiveTokenIdempotentFilter filter(ConsumedTokenFilter consumedTokenFilter) {
+        DefaultIdempotentTokenFunctionImpl tokenFunction = new DefaultIdempotentTokenFunctionImpl();
+        tokenFunction.setTokenKey("idempotentToken");
+        tokenFunction.setTokenLocation(TokenLocation.HEADER);
+        return new ReactiveTokenIdempotentFilter(redisTemplate, tokenFunction, consumedTokenFilter);
+    }
+
+    private static HandlerMetadata metadata(String method) throws NoSuchMethodException {
+        return HandlerMetadataRegistry.getInstance().get(new HandlerMethod(new DemoController(), DemoController.class.getMethod(method)));
+    }
+
+    private static MockServerWebExchange withHeader(String token) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/pay").header("idempotentToken", token));
+    }
+
+    private static boolean rejected(Mono<Void> result, Class<? extends RuntimeException> type) {
+        try {
+            result.block();
+            return false;
+        } catch (RuntimeException e) {
+            Assert.assertTrue(type.isInstance(e));
+            return true;
+        }
+    }
+
+    @Test
+    public void tokenIsConsumedOnce() throws NoSuchMethodException {
+        ReactiveTokenIdempotentFilter filter = filter(new ConsumedTokenFilter(0, 60000));
+        redisTemplate.keys.add("token-1");
+
+        Assert.assertFalse(rejected(filter.filter(withHeader("token-1"), chain, metadata("pay")), RepeatRequestException.class));
+        Assert.assertTrue(rejected(filter.filter(withHeader("token-1"), chain, metadata("pay")), RepeatRequestException.class));
+        // 未签发的Token
+        Assert.assertTrue(rejected(filter.filter(withHeader("token-2"), chain, metadata("pay")), RepeatRequestException.class));
+        Assert.assertEquals(1, passed.get());
+    }
+
+    @Test
+    public void methodTokenConfig() throws NoSuchMethodException {
+        ReactiveTokenIdempotentFilter filter = filter(new ConsumedTokenFilter(0, 60000));
+        redisTemplate.keys.add("token-1");
+
+        // 方法上配置从URL参数获取Token  请求头中的Token不生效
+        Assert.assertTrue(rejected(filter.filter(withHeader("token-1"), chain, metadata("order")), com.google.common.base.VerifyException.class));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/order").queryParam("token", "token-1"));
+        Assert.assertFalse(rejected(filter.filter(exchange, chain, metadata("order")), RepeatRequestException.class));
+        Assert.assertEquals(1, passed.get());
+    }
+
+    @Test
+    public void consumedTokenIsRejectedLocally() throws NoSuchMethodException {
+        ReactiveTokenIdempotentFilter filter = filter(new ConsumedTokenFilter(1000, 60000));
+        redisTemplate.keys.add("token-1");
+
+        Assert.assertFalse(rejected(filter.filter(withHeader("token-1"), chain, metadata("pay")), RepeatRequestException.class));
+        Assert.assertTrue(rejected(filter.filter(withHeader("token-1"), chain, metadata("pay")), RepeatRequestException.class));
+        // 重放的请求不再访问Redis
+        Assert.assertEquals(1, redisTemplate.deletes.get());
+    }
+
+    @Test
+    public void withoutApiIdempotentPasses() throws NoSuchMethodException {
+        ReactiveTokenIdempotentFilter filter = filter(new ConsumedTokenFilter(0, 60000));
+        Assert.assertFalse(rejected(filter.filter(withHeader("token-1"), chain, metadata("query")), RepeatRequestException.class));
+        Assert.assertEquals(1, passed.get());
+        Assert.assertEquals(0, redisTemplate.deletes.get());
+    }
+}
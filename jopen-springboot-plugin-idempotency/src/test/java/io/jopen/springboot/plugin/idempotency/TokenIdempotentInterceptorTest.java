@@ -0,0 +1,268 @@
+package io.jopen.springboot.plugin.idempotency;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IdempotentMode#REPLAY}模式
+ *
+ * @author maxuefeng
+ * @see TokenIdempotentInterceptor
+ * @see ResponseReplayStore
+ * @since 2020/2/27
+ */
+public class TokenIdempotentInterceptorTest {
+
+    public static class DemoController {
+
+        @ApiIdempotent(mode = IdempotentMode.REPLAY)
+        public void pay() {
+        }
+    }
+
+    /**
+     * 内存中的Redis  只实现幂等插件用到的命令
+     */
+    private static class MemoryRedisTemplate extends RedisTemplate<String, Object> {
+
+        private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+
+        private final RedisConnection connection = (RedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RedisConnection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "get":
+                            return values.get(key(args[0]));
+                        case "set":
+                            values.put(key(args[0]), (byte[]) args[1]);
+                            return true;
+                        case "del":
+                            long deleted = 0L;
+                            for (byte[] key : (byte[][]) args[0]) {
+                                deleted += values.remove(key(key)) == null ? 0L : 1L;
+                            }
+                            return deleted;
+                        case "eval":
+                            return eval(new String((byte[]) args[0], StandardCharsets.UTF_8), (byte[][]) args[3]);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        private MemoryRedisTemplate() {
+            setKeySerializer(RedisSerializer.string());
+            setValueSerializer(RedisSerializer.string());
+        }
+
+        @Override
+        public <T> T execute(RedisCallback<T> action) {
+            synchronized (values) {
+                return action.doInRedis(connection);
+            }
+        }
+
+        /**
+         * 删除KEYS[1]或KEYS[2]成功后写入另一个Key
+         */
+        private Long eval(String script, byte[][] keysAndArgs) {
+            boolean consume = script.startsWith("if redis.call('DEL', KEYS[1])");
+            String deleteKey = key(keysAndArgs[consume ? 0 : 1]);
+            String setKey = key(keysAndArgs[consume ? 1 : 0]);
+            if (values.remove(deleteKey) == null) {
+                return 0L;
+            }
+            values.put(setKey, keysAndArgs[2]);
+            return 1L;
+        }
+
+        private static String key(Object key) {
+            return new String((byte[]) key, StandardCharsets.UTF_8);
+        }
+    }
+
+    private final MemoryRedisTemplate redisTemplate = new MemoryRedisTemplate();
+
+    private final HandlerMethod handler;
+
+    public TokenIdempotentInterceptorTest() throws NoSuchMethodException {
+        this.handler = new HandlerMethod(new DemoController(), DemoController.class.getMethod("pay"));
+    }
+
+    private TokenIdempotentInterceptor interceptor(long waitTimeout) {
+        return interceptor(waitTimeout, IdempotentTokenIssuer.DEFAULT_TOKEN_KEY_PREFIX);
+    }
+
+    private TokenIdempotentInterceptor interceptor(long waitTimeout, String tokenKeyPrefix) {
+        DefaultIdempotentTokenFunctionImpl tokenFunction = new DefaultIdempotentTokenFunctionImpl();
+        tokenFunction.setTokenKey("idempotentToken");
+        tokenFunction.setTokenLocation(TokenLocation.HEADER);
+        TokenIdempotentInterceptor interceptor = new TokenIdempotentInterceptor(redisTemplate, tokenFunction);
+        interceptor.setResponseReplayStore(new ResponseReplayStore(redisTemplate, 60000L, 60000L, waitTimeout, tokenKeyPrefix));
+        interceptor.setTokenKeyPrefix(tokenKeyPrefix);
+        return interceptor;
+    }
+
+    private void issue(String key) {
+        redisTemplate.values.put(key, "1".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/pay");
+        request.addHeader("idempotentToken", token);
+        return request;
+    }
+
+    /**
+     * 执行一次完整的请求
+     *
+     * @return 执行Controller时返回true
+     */
+    private boolean handle(TokenIdempotentInterceptor interceptor, String token, MockHttpServletResponse response,
+                           int status, String body) throws Exception {
+        MockHttpServletRequest request = request(token);
+        ReplayResponseFilter.RecordingResponse recordingResponse = new ReplayResponseFilter.RecordingResponse(response);
+        if (!interceptor.preHandle(request, recordingResponse, handler)) {
+            return false;
+        }
+        recordingResponse.setStatus(status);
+        recordingResponse.setContentType("text/plain");
+        recordingResponse.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        interceptor.afterCompletion(request, recordingResponse, handler, null);
+        return true;
+    }
+
+    @Test
+    public void repeatRequestIsReplayed() throws Exception {
+        TokenIdempotentInterceptor interceptor = interceptor(1000L);
+        issue("token-1");
+
+        Assert.assertTrue(handle(interceptor, "token-1", new MockHttpServletResponse(), 201, "order-1"));
+
+        MockHttpServletResponse replayed = new MockHttpServletResponse();
+        Assert.assertFalse(handle(interceptor, "token-1", replayed, 200, "order-2"));
+        Assert.assertEquals(201, replayed.getStatus());
+        Assert.assertEquals("text/plain", replayed.getContentType());
+        Assert.assertEquals("order-1", replayed.getContentAsString());
+        Assert.assertEquals("true", replayed.getHeader(ResponseReplayStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    public void serverErrorReleasesToken() throws Exception {
+        TokenIdempotentInterceptor interceptor = interceptor(1000L);
+        issue("token-1");
+
+        Assert.assertTrue(handle(interceptor, "token-1", new MockHttpServletResponse(), 503, "busy"));
+        // 5xx响应不保存  同一个Token可以重试
+        Assert.assertFalse(redisTemplate.values.containsKey(ResponseReplayStore.REPLAY_PREFIX + "token-1"));
+        Assert.assertTrue(handle(interceptor, "token-1", new MockHttpServletResponse(), 200, "order-1"));
+
+        MockHttpServletResponse replayed = new MockHttpServletResponse();
+        Assert.assertFalse(handle(interceptor, "token-1", replayed, 200, "order-2"));
+        Assert.assertEquals("order-1", replayed.getContentAsString());
+    }
+
+    @Test
+    public void exceptionReleasesToken() throws Exception {
+        TokenIdempotentInterceptor interceptor = interceptor(1000L);
+        issue("token-1");
+
+        MockHttpServletRequest request = request("token-1");
+        ReplayResponseFilter.RecordingResponse response = new ReplayResponseFilter.RecordingResponse(new MockHttpServletResponse());
+        Assert.assertTrue(interceptor.preHandle(request, response, handler));
+        interceptor.afterCompletion(request, response, handler, new IllegalStateException());
+
+        Assert.assertTrue(handle(interceptor, "token-1", new MockHttpServletResponse(), 200, "order-1"));
+    }
+
+    @Test(expected = RepeatRequestException.class)
+    public void unknownTokenIsRejected() throws Exception {
+        handle(interceptor(1000L), "token-1", new MockHttpServletResponse(), 200, "order-1");
+    }
+
+    @Test(expected = RepeatRequestException.class)
+    public void inFlightWaitTimesOut() throws Exception {
+        TokenIdempotentInterceptor interceptor = interceptor(100L);
+        issue("token-1");
+
+        // 首次请求处理中
+        Assert.assertTrue(interceptor.preHandle(request("token-1"),
+                new ReplayResponseFilter.RecordingResponse(new MockHttpServletResponse()), handler));
+        handle(interceptor, "token-1", new MockHttpServletResponse(), 200, "order-2");
+    }
+
+    @Test
+    public void inFlightRequestIsAwaited() throws Exception {
+        TokenIdempotentInterceptor interceptor = interceptor(5000L);
+        issue("token-1");
+
+        MockHttpServletRequest request = request("token-1");
+        ReplayResponseFilter.RecordingResponse response = new ReplayResponseFilter.RecordingResponse(new MockHttpServletResponse());
+        Assert.assertTrue(interceptor.preHandle(request, response, handler));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch waiting = new CountDownLatch(1);
+            MockHttpServletResponse replayed = new MockHttpServletResponse();
+            Future<Boolean> repeat = executor.submit(() -> {
+                waiting.countDown();
+                return handle(interceptor, "token-1", replayed, 200, "order-2");
+            });
+            waiting.await();
+            Thread.sleep(50L);
+            Assert.assertFalse(repeat.isDone());
+
+            // 首次请求完成后等待中的重复请求拿到首次请求的响应
+            response.setStatus(200);
+            response.getOutputStream().write("order-1".getBytes(StandardCharsets.UTF_8));
+            interceptor.afterCompletion(request, response, handler, null);
+
+            Assert.assertFalse(repeat.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals("order-1", replayed.getContentAsString());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void bareTokenKeyByDefault() throws Exception {
+        // 自行写入Token的调用方(不带前缀)
+        TokenIdempotentInterceptor interceptor = interceptor(1000L);
+        issue("token-1");
+        Assert.assertTrue(handle(interceptor, "token-1", new MockHttpServletResponse(), 200, "order-1"));
+        Assert.assertFalse(redisTemplate.values.containsKey("token-1"));
+    }
+
+    @Test
+    public void configuredTokenKeyPrefix() throws Exception {
+        TokenIdempotentInterceptor interceptor = interceptor(1000L, "idempotent:token:");
+        issue("idempotent:token:token-1");
+        issue("token-2");
+
+        Assert.assertTrue(handle(interceptor, "token-1", new MockHttpServletResponse(), 200, "order-1"));
+        Assert.assertFalse(redisTemplate.values.containsKey("idempotent:token:token-1"));
+        // 不带前缀的Key不生效
+        try {
+            handle(interceptor, "token-2", new MockHttpServletResponse(), 200, "order-2");
+            Assert.fail();
+        } catch (RepeatRequestException expected) {
+            // ok
+        }
+        Assert.assertTrue(redisTemplate.values.containsKey("token-2"));
+    }
+}
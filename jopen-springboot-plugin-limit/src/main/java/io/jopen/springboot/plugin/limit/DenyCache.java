@@ -0,0 +1,133 @@
+package io.jopen.springboot.plugin.limit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Objects;
+
+/**
+ * 本地拉黑缓存
+ * <p>
+ * 1 {@link Keeper.Info#FORBIDDEN}时写入本地缓存  冻结期内的请求直接在本地拒绝 不再访问Redis
+ * 2 解除拉黑时通过Redis频道{@link DenyCache#CHANNEL}通知所有节点清除本地缓存
+ * 3 缓存容量有上限  超出时淘汰最久未访问的Key  到达解除拉黑时间的Key在访问时清除
+ * 4 容量小于等于0时不缓存  也不订阅解除拉黑通知
+ *
+ * @author maxuefeng
+ * @see Keeper#release(String)
+ * @see EnableJopenLimit#denyCacheSize()
+ * @since 2020/2/24
+ */
+public final class DenyCache implements InitializingBean, DisposableBean {
+
+    /**
+     * 解除拉黑通知频道
+     */
+    public static final String CHANNEL = "jopen.limit.deny.invalidate";
+
+    /**
+     * Key为限流Key  Value为解除拉黑的时间(Ms)
+     */
+    private final Cache<String, Long> deniedKeys;
+
+    /**
+     * 容量大于0时开启
+     */
+    private final boolean enabled;
+
+    /**
+     * 为null时只清除本地缓存  {@link LimitStore.Type#MEMORY}
+     */
+    @Nullable
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Nullable
+    private RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * @param maximumSize   最多缓存的Key数量  小于等于0时不开启
+     * @param redisTemplate Redis模板  为null时不订阅解除拉黑通知
+     */
+    public DenyCache(long maximumSize, @Nullable RedisTemplate<String, Object> redisTemplate) {
+        this.deniedKeys = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(maximumSize, 0L))
+                .build();
+        this.enabled = maximumSize > 0L;
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * @param limitKey 限流Key
+     * @return 是否处于本地缓存的拉黑状态
+     */
+    public boolean isDenied(@NonNull String limitKey) {
+        if (!enabled) {
+            return false;
+        }
+        Long until = deniedKeys.getIfPresent(limitKey);
+        if (until == null) {
+            return false;
+        }
+        if (until <= System.currentTimeMillis()) {
+            deniedKeys.invalidate(limitKey);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param limitKey 限流Key
+     * @param until    解除拉黑的时间(Ms)
+     */
+    public void deny(@NonNull String limitKey, long until) {
+        if (enabled && until > System.currentTimeMillis()) {
+            deniedKeys.put(limitKey, until);
+        }
+    }
+
+    /**
+     * 清除所有节点的本地缓存  当前节点未开启时仍然通知其他节点
+     *
+     * @param limitKey 限流Key
+     */
+    public void invalidate(@NonNull String limitKey) {
+        deniedKeys.invalidate(limitKey);
+        if (redisTemplate != null) {
+            redisTemplate.convertAndSend(CHANNEL, limitKey);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled || redisTemplate == null) {
+            return;
+        }
+        RedisConnectionFactory connectionFactory = Objects.requireNonNull(redisTemplate.getConnectionFactory());
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            Object limitKey = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (limitKey != null) {
+                deniedKeys.invalidate(limitKey.toString());
+            }
+        }, new ChannelTopic(CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+        this.listenerContainer = container;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+}
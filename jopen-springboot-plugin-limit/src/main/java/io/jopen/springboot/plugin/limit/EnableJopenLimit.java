@@ -16,6 +16,8 @@ import java.lang.annotation.*;
         FlowControlInterceptor.class,
         LimitPluginConfiguration.class,
         ScriptConfiguration.class,
+        // WebFlux应用中生效  需要配置spring.main.web-application-type=reactive
+        ReactiveLimitPluginConfiguration.class,
         // 默认拉黑的策略实现
         SimpleKeeperImpl.class})
 public @interface EnableJopenLimit {
@@ -62,4 +64,48 @@ public @interface EnableJopenLimit {
      * @return {@link Keeper}
      */
     Class<? extends Keeper> limitKeeperType() default SimpleKeeperImpl.class;
+
+    /**
+     * 本地令牌桶每次从Redis租借的令牌数量
+     * 大于1时开启两级限流  请求优先在本地令牌桶中扣减  令牌耗尽时才访问Redis
+     * 节点越多 单个窗口内未被消耗的租借额度越多  限流会相对保守
+     *
+     * @return 租借数量  默认为0(不开启本地令牌桶)
+     * @see LocalTokenBucket
+     */
+    int leaseSize() default 0;
+
+    /**
+     * 最多缓存的本地令牌桶数量  每个限流Key一个  超出时淘汰最近最少使用的桶
+     * 被淘汰的桶中未消耗的令牌随之丢弃  不会归还到Redis
+     *
+     * @return 默认缓存100000个
+     * @see EnableJopenLimit#leaseSize()
+     */
+    long localBucketSize() default 100000L;
+
+    /**
+     * 本地令牌桶未被访问多久后淘汰  应不小于{@link Limiting#time()}  否则窗口内剩余的令牌会提前丢弃
+     *
+     * @return 单位为秒  默认为10分钟
+     * @see EnableJopenLimit#leaseSize()
+     */
+    long localBucketIdleTime() default 600L;
+
+    /**
+     * 限流计数存储类型
+     * 单节点部署或压测时可以使用{@link LimitStore.Type#MEMORY}  无需依赖Redis
+     *
+     * @return 默认为Redis
+     * @see LimitStore
+     */
+    LimitStore.Type limitStoreType() default LimitStore.Type.REDIS;
+
+    /**
+     * 本地拉黑缓存最多缓存的Key数量  小于等于0时不开启本地拉黑缓存
+     *
+     * @return 默认缓存10000个Key
+     * @see DenyCache
+     */
+    int denyCacheSize() default 10000;
 }
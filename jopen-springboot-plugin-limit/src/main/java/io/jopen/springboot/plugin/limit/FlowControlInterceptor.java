@@ -1,22 +1,20 @@
 package io.jopen.springboot.plugin.limit;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.jopen.springboot.plugin.annotation.cache.BaseInterceptor;
+import io.jopen.springboot.plugin.annotation.cache.HandlerMetadata;
 import io.jopen.springboot.plugin.common.SpringContainer;
 import org.checkerframework.checker.nullness.qual.NonNull;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.springframework.boot.CommandLineRunner;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Component;
-import org.springframework.web.method.HandlerMethod;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.Collections;
-import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 流量控制 {@link BaseInterceptor}
@@ -29,12 +27,41 @@ import java.util.Optional;
 @Component
 public class FlowControlInterceptor extends BaseInterceptor implements CommandLineRunner {
 
-    @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    /**
+     * 限流计数存储
+     *
+     * @see EnableJopenLimit#limitStoreType()
+     */
+    private LimitStore limitStore;
 
-    @Autowired
-    @Qualifier(value = "limitScript")
-    private DefaultRedisScript<Number> limitScript;
+    /**
+     * 本地拉黑缓存
+     *
+     * @see EnableJopenLimit#denyCacheSize()
+     */
+    private DenyCache denyCache;
+
+    /**
+     * 本地令牌桶  Key为拼接后的限流Key
+     * 长时间未访问的桶自动淘汰 避免海量IP占用内存
+     *
+     * @see LocalTokenBucket
+     */
+    private Cache<String, LocalTokenBucket> localBuckets;
+
+    /**
+     * 最多缓存的本地令牌桶数量
+     *
+     * @see EnableJopenLimit#localBucketSize()
+     */
+    private long localBucketSize = 100000L;
+
+    /**
+     * 本地令牌桶未被访问多久后淘汰 单位为秒
+     *
+     * @see EnableJopenLimit#localBucketIdleTime()
+     */
+    private long localBucketIdleTime = 600L;
 
     /**
      * @see LimitKeyProducer  生产Key的Producer的实现类  开发者自定义
@@ -71,10 +98,26 @@ public class FlowControlInterceptor extends BaseInterceptor implements CommandLi
      */
     private Class<? extends Keeper> limitKeeperType;
 
+    /**
+     * 每次从Redis租借的令牌数量  小于等于1时不启用本地令牌桶 每次请求都访问Redis
+     *
+     * @see EnableJopenLimit#leaseSize()
+     */
+    private int leaseSize;
+
+    /**
+     * {@link HandlerMetadata#getAttribute(String, java.util.function.Function)} 限流Key后缀
+     */
+    private static final String KEY_SUFFIX_ATTRIBUTE = FlowControlInterceptor.class.getName() + ".keySuffix";
+
     /**
      * 限流逻辑执行Function
      */
-    private BiBiFunction<HttpServletRequest, HttpServletResponse, Object, Limiting, Boolean> runLimitFunction;
+    private BiBiFunction<HttpServletRequest, HttpServletResponse, HandlerMetadata, Limiting, Boolean> runLimitFunction;
+
+    public FlowControlInterceptor() {
+        super(Limiting.class);
+    }
 
     public boolean getEnablePullBlack() {
         return this.enablePullBlack;
@@ -108,10 +151,18 @@ public class FlowControlInterceptor extends BaseInterceptor implements CommandLi
         this.excludePathPatterns = excludePathPatterns;
     }
 
+    public LimitKeyProducer getLimitKeyProducer() {
+        return limitKeyProducer;
+    }
+
     public void setLimitKeyProducer(@NonNull LimitKeyProducer limitKeyProducer) {
         this.limitKeyProducer = limitKeyProducer;
     }
 
+    public Class<? extends Keeper> getLimitKeeperType() {
+        return limitKeeperType;
+    }
+
     public void setLimitKeeperType(@NonNull Class<? extends Keeper> limitKeeperType) {
         this.limitKeeperType = limitKeeperType;
     }
@@ -120,6 +171,34 @@ public class FlowControlInterceptor extends BaseInterceptor implements CommandLi
         this.keeper = keeper;
     }
 
+    public void setLimitStore(@NonNull LimitStore limitStore) {
+        this.limitStore = limitStore;
+    }
+
+    public int getLeaseSize() {
+        return leaseSize;
+    }
+
+    public void setLeaseSize(int leaseSize) {
+        this.leaseSize = leaseSize;
+    }
+
+    public long getLocalBucketSize() {
+        return localBucketSize;
+    }
+
+    public void setLocalBucketSize(long localBucketSize) {
+        this.localBucketSize = localBucketSize;
+    }
+
+    public long getLocalBucketIdleTime() {
+        return localBucketIdleTime;
+    }
+
+    public void setLocalBucketIdleTime(long localBucketIdleTime) {
+        this.localBucketIdleTime = localBucketIdleTime;
+    }
+
 
     /**
      * {@link LimitKeyProducer#key(HttpServletRequest)} 此方法需要自定义  根据Request对象来生产key
@@ -127,21 +206,24 @@ public class FlowControlInterceptor extends BaseInterceptor implements CommandLi
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
         // 如果不是映射到方法直接通过
-        if (!(handler instanceof HandlerMethod)) {
+        HandlerMetadata handlerMetadata = super.getHandlerMetadata(handler);
+        if (handlerMetadata == null) {
             return true;
         }
         // 获取限流注解
-        Limiting limiting = super.getApiServiceAnnotation(Limiting.class, handler);
+        Limiting limiting = handlerMetadata.getAnnotation(Limiting.class);
 
         if (limiting != null) {
-            return this.runLimitFunction.apply(request, response, handler, limiting);
+            return this.runLimitFunction.apply(request, response, handlerMetadata, limiting);
         }
         return true;
     }
 
     /**
      * 1 设定{@link Keeper}
-     * 2 组装{@link FlowControlInterceptor#runLimitFunction}
+     * 2 设定{@link LimitStore}和{@link DenyCache}
+     * 3 创建本地令牌桶缓存
+     * 4 组装{@link FlowControlInterceptor#runLimitFunction}
      *
      * @param args
      * @see SimpleKeeperImpl
@@ -149,42 +231,129 @@ public class FlowControlInterceptor extends BaseInterceptor implements CommandLi
     @Override
     public void run(String... args) {
         this.keeper = SpringContainer.getBean(this.limitKeeperType);
+        this.limitStore = SpringContainer.getBean(LimitStore.class);
+        this.denyCache = SpringContainer.getBean(DenyCache.class);
+        this.localBuckets = CacheBuilder.newBuilder()
+                .maximumSize(this.localBucketSize)
+                .expireAfterAccess(this.localBucketIdleTime, TimeUnit.SECONDS)
+                .build();
         if (this.enablePullBlack) {
             this.runLimitFunction =
-                    (request, response, handler, limiting) -> {
+                    (request, response, handlerMetadata, limiting) -> {
                         String limitKey = FlowControlInterceptor.this.limitKeyProducer.key(request);
-                        // 黑名单操作
-                        Keeper.Info info = keeper.solicitingOpinions(limitKey);
-                        if (!info.isAllowAccess) {
-                            throw new LimitException(info.errMsg);
+                        // 本地拉黑缓存命中时直接拒绝
+                        if (denyCache.isDenied(limitKey)) {
+                            throw new LimitException(Keeper.Info.FORBIDDEN.errMsg);
+                        }
+                        // 拉黑参数不为null时 黑名单检查和违规记录与限流计数合并执行
+                        LimitStore.Guard guard = keeper.guard(limitKey);
+                        if (guard == null) {
+                            // 黑名单操作
+                            Keeper.Info info = keeper.solicitingOpinions(limitKey);
+                            if (!info.isAllowAccess) {
+                                this.deny(limitKey, null);
+                                throw new LimitException(info.errMsg);
+                            }
                         }
                         // 拼接key
-                        HandlerMethod handlerMethod = (HandlerMethod) handler;
-                        List<String> keys = Collections.singletonList(limitKey + "-" + handlerMethod.getMethod().getName() + "-" + limiting.key());
+                        String key = limitKey + keySuffix(handlerMetadata, limiting);
 
                         //  统计访问次数
-                        Number r = redisTemplate.execute(limitScript, keys, limiting.count(), limiting.time());
-                        if (r != null && r.intValue() != 0 && r.intValue() <= limiting.count()) {
+                        long r = tryAcquire(key, limiting, guard);
+                        if (r == LimitStore.FORBIDDEN) {
+                            this.deny(limitKey, guard);
+                            throw new LimitException(Keeper.Info.FORBIDDEN.errMsg);
+                        } else if (r > 0) {
                             return true;
                         } else {
-                            // 记录违规操作
-                            keeper.recordViolation(limitKey);
+                            // 记录违规操作  合并执行时已由LimitStore记录  本地令牌桶拒绝时仍需单独记录
+                            if (guard == null || isLeased(limiting)) {
+                                keeper.recordViolation(limitKey);
+                            }
                             throw new LimitException("访问过于频繁，请稍后再试！");
                         }
                     };
         } else {
             this.runLimitFunction =
-                    (request, response, handler, limiting) -> {
+                    (request, response, handlerMetadata, limiting) -> {
                         String limitKey = FlowControlInterceptor.this.limitKeyProducer.key(request);
                         // 拼接key
-                        HandlerMethod handlerMethod = (HandlerMethod) handler;
-                        List<String> keys = Collections.singletonList(limitKey + "-" + handlerMethod.getMethod().getName() + "-" + limiting.key());
+                        String key = limitKey + keySuffix(handlerMetadata, limiting);
 
                         //  统计访问次数
-                        Number r = redisTemplate.execute(limitScript, keys, limiting.count(), limiting.time());
-                        if (r != null && r.intValue() != 0 && r.intValue() <= limiting.count()) return true;
+                        if (tryAcquire(key, limiting, null) > 0) return true;
                         else throw new LimitException("访问过于频繁，请稍后再试！");
                     };
         }
     }
+
+    /**
+     * @param handlerMetadata 处理器元数据
+     * @param limiting        限流注解
+     * @return 限流Key后缀  每个方法只拼接一次
+     */
+    static String keySuffix(@NonNull HandlerMetadata handlerMetadata, @NonNull Limiting limiting) {
+        return handlerMetadata.getAttribute(KEY_SUFFIX_ATTRIBUTE, m -> "-" + m.getMethod().getName() + "-" + limiting.key());
+    }
+
+    /**
+     * 写入本地拉黑缓存  每个节点每个被拉黑的Key只执行一次
+     *
+     * @param limitKey 限流Key
+     * @param guard    拉黑参数  不为null时根据首次违规时间计算解除拉黑的时间
+     */
+    private void deny(String limitKey, LimitStore.@Nullable Guard guard) {
+        long until = System.currentTimeMillis() + keeper.freezingTime();
+        if (guard != null) {
+            ViolationRecord violationRecord = limitStore.getViolation(guard.getViolationKey());
+            if (violationRecord != null) {
+                until = violationRecord.getFirstViolationTime() + guard.getFreezingTime();
+            }
+        }
+        denyCache.deny(limitKey, until);
+    }
+
+    /**
+     * @param limiting 限流注解
+     * @return 是否使用本地令牌桶
+     */
+    private boolean isLeased(Limiting limiting) {
+        return this.leaseSize > 1 && limiting.algorithm() == LimitAlgorithm.FIXED_WINDOW;
+    }
+
+    /**
+     * 获取访问许可
+     * <p>
+     * 未开启本地令牌桶时每次请求执行一次{@link LimitStore#acquire(String, LimitAlgorithm, int, int)}
+     * 开启后优先在本地令牌桶中扣减  令牌耗尽时才执行{@link LimitStore#lease(String, int, int, int)}租借下一块额度
+     *
+     * @param key      限流Key
+     * @param limiting 限流注解
+     * @param guard    拉黑参数  为null时不进行拉黑检查
+     * @return 1表示允许访问  0表示拒绝访问  {@link LimitStore#FORBIDDEN}表示已被拉黑
+     */
+    private long tryAcquire(String key, Limiting limiting, LimitStore.@Nullable Guard guard) {
+        if (!isLeased(limiting)) {
+            long r = guard == null ?
+                    limitStore.acquire(key, limiting.algorithm(), limiting.count(), limiting.time()) :
+                    limitStore.acquire(key, limiting.algorithm(), limiting.count(), limiting.time(), guard);
+            if (r == LimitStore.FORBIDDEN) {
+                return LimitStore.FORBIDDEN;
+            }
+            return r != 0 && r <= limiting.count() ? 1L : 0L;
+        }
+        long now = System.currentTimeMillis();
+        LocalTokenBucket bucket = localBuckets.asMap().computeIfAbsent(key, k -> new LocalTokenBucket());
+        if (bucket.tryConsume(now)) {
+            return 1L;
+        }
+        if (bucket.isExhausted(now)) {
+            return 0L;
+        }
+        // 单次租借不超过窗口总次数
+        int chunk = Math.min(this.leaseSize, limiting.count());
+        return bucket.refill(now, TimeUnit.SECONDS.toMillis(limiting.time()), () -> guard == null ?
+                limitStore.lease(key, limiting.count(), limiting.time(), chunk) :
+                limitStore.lease(key, limiting.count(), limiting.time(), chunk, guard));
+    }
 }
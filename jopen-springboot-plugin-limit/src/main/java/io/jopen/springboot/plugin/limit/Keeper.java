@@ -1,7 +1,9 @@
 package io.jopen.springboot.plugin.limit;
 
 import com.google.common.base.Objects;
+import io.jopen.springboot.plugin.common.SpringContainer;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * @author maxuefeng
@@ -25,6 +27,19 @@ public interface Keeper {
     @NonNull
     Info solicitingOpinions(@NonNull String limitKey);
 
+    /**
+     * 解除拉黑  并清除所有节点的本地拉黑缓存{@link DenyCache}
+     * <p>
+     * 默认删除{@link LimitStore}中{@link Keeper#redisKey(String)}对应的违规记录
+     * 违规记录不在{@link LimitStore}中的Keeper需要重写此方法
+     *
+     * @param limitKey 限流Key
+     */
+    default void release(@NonNull String limitKey) {
+        SpringContainer.getBean(LimitStore.class).removeViolation(redisKey(limitKey));
+        SpringContainer.getBean(DenyCache.class).invalidate(limitKey);
+    }
+
     /**
      * 超过多少次进行拉黑拉黑
      *
@@ -50,6 +65,18 @@ public interface Keeper {
         return "limitKey-" + Objects.hashCode(limitKey);
     }
 
+    /**
+     * 拉黑参数  不为null时{@link FlowControlInterceptor}将拉黑检查和违规记录交给{@link LimitStore}
+     * 与限流计数合并为一次原子操作  不再单独调用{@link Keeper#solicitingOpinions(String)}
+     *
+     * @param limitKey 限流Key
+     * @return 默认返回null  自定义的Keeper仍按原有方式调用
+     * @see SimpleKeeperImpl
+     */
+    default LimitStore.@Nullable Guard guard(@NonNull String limitKey) {
+        return null;
+    }
+
     class Info {
         // 正常状态
         public static final Info NORMAL = new Info(true, null);
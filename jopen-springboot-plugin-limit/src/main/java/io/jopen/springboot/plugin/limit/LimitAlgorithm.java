@@ -0,0 +1,40 @@
+package io.jopen.springboot.plugin.limit;
+
+/**
+ * 限流算法
+ *
+ * @author maxuefeng
+ * @see Limiting#algorithm()
+ * @see ScriptConfiguration
+ * @since 2020/2/21
+ */
+public enum LimitAlgorithm {
+
+    /**
+     * 固定窗口计数  实现最简单  但在窗口边界处最多允许2倍的突发流量
+     *
+     * @see ScriptConfiguration#limitScript()
+     */
+    FIXED_WINDOW,
+
+    /**
+     * 滑动日志  使用有序集合记录窗口内每一次访问的时间  精确但每个Key占用内存与访问次数成正比
+     *
+     * @see ScriptConfiguration#slidingLogScript()
+     */
+    SLIDING_LOG,
+
+    /**
+     * 滑动窗口计数  使用上一个窗口和当前窗口的计数按时间加权估算  每个Key只占用两个计数器
+     *
+     * @see ScriptConfiguration#slidingCounterScript()
+     */
+    SLIDING_COUNTER,
+
+    /**
+     * 通用信元速率算法(Generic Cell Rate Algorithm)  每个Key只存储一个时间戳  流量平滑且无窗口边界突发
+     *
+     * @see ScriptConfiguration#gcraScript()
+     */
+    GCRA
+}
@@ -2,6 +2,7 @@ package io.jopen.springboot.plugin.limit;
 
 import io.jopen.springboot.plugin.common.NetWorkUtil;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -21,6 +22,18 @@ public interface LimitKeyProducer {
      */
     String key(HttpServletRequest request);
 
+    /**
+     * 根据WebFlux请求获取限流Key  使用{@link ReactiveFlowControlFilter}时调用
+     * 默认为客户端IP加请求路径  根据token等其他方式限流时需要与{@link LimitKeyProducer#key(HttpServletRequest)}一起重写
+     *
+     * @param request {@link ServerHttpRequest}
+     * @return 限流Key
+     * @see NetWorkUtil#getIpAddr(ServerHttpRequest)
+     */
+    default String key(ServerHttpRequest request) {
+        return NetWorkUtil.getIpAddr(request) + request.getPath().pathWithinApplication().value();
+    }
+
     /**
      * @see HttpServletRequest#getRemoteAddr()
      */
@@ -30,5 +43,11 @@ public interface LimitKeyProducer {
         public String key(@NonNull HttpServletRequest request) {
             return NetWorkUtil.getIpAddr(request);
         }
+
+        @Override
+        @NonNull
+        public String key(@NonNull ServerHttpRequest request) {
+            return NetWorkUtil.getIpAddr(request);
+        }
     }
 }
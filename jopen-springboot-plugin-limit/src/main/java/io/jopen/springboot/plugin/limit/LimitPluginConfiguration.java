@@ -1,10 +1,13 @@
 package io.jopen.springboot.plugin.limit;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.ImportAware;
 import org.springframework.core.annotation.AnnotationAttributes;
 import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -30,6 +33,16 @@ public class LimitPluginConfiguration implements WebMvcConfigurer, ImportAware {
 
     private FlowControlInterceptor flowControlInterceptor;
 
+    /**
+     * 限流计数存储类型
+     */
+    private LimitStore.Type limitStoreType = LimitStore.Type.REDIS;
+
+    /**
+     * 本地拉黑缓存容量
+     */
+    private int denyCacheSize;
+
     @Autowired
     public LimitPluginConfiguration(FlowControlInterceptor flowControlInterceptor) {
         this.flowControlInterceptor = flowControlInterceptor;
@@ -45,6 +58,38 @@ public class LimitPluginConfiguration implements WebMvcConfigurer, ImportAware {
 
     }
 
+    /**
+     * 根据{@link EnableJopenLimit#limitStoreType()}创建限流计数存储
+     *
+     * @param redisTemplate       Redis模板  {@link LimitStore.Type#MEMORY}时可以不存在
+     * @param scriptConfiguration Lua脚本配置
+     * @return {@link LimitStore}
+     */
+    @Bean
+    public LimitStore limitStore(ObjectProvider<RedisTemplate<String, Object>> redisTemplate,
+                                 ScriptConfiguration scriptConfiguration) {
+        if (this.limitStoreType == LimitStore.Type.MEMORY) {
+            return new MemoryLimitStore();
+        }
+        RedisTemplate<String, Object> template = redisTemplate.getIfAvailable();
+        if (template == null) {
+            throw new IllegalStateException("RedisTemplate is required when limitStoreType is REDIS");
+        }
+        return new RedisLimitStore(template, scriptConfiguration);
+    }
+
+    /**
+     * 本地拉黑缓存  {@link LimitStore.Type#REDIS}时通过Redis频道同步解除拉黑
+     *
+     * @param redisTemplate Redis模板
+     * @return {@link DenyCache}
+     */
+    @Bean
+    public DenyCache denyCache(ObjectProvider<RedisTemplate<String, Object>> redisTemplate) {
+        return new DenyCache(this.denyCacheSize,
+                this.limitStoreType == LimitStore.Type.REDIS ? redisTemplate.getIfAvailable() : null);
+    }
+
     @Override
     public void setImportMetadata(AnnotationMetadata importMetadata) {
         AnnotationAttributes enableLimit = AnnotationAttributes
@@ -74,11 +119,23 @@ public class LimitPluginConfiguration implements WebMvcConfigurer, ImportAware {
         boolean enablePullBlack = enableLimit.getBoolean("enablePullBlack");
         // 拉黑逻辑处理策略
         Class<? extends Keeper> limitKeeperType = enableLimit.getClass("limitKeeperType");
-        
+        // 本地令牌桶租借数量
+        int leaseSize = enableLimit.getNumber("leaseSize");
+        // 本地令牌桶缓存容量和淘汰时间
+        long localBucketSize = enableLimit.getNumber("localBucketSize");
+        long localBucketIdleTime = enableLimit.getNumber("localBucketIdleTime");
+        // 限流计数存储类型
+        this.limitStoreType = enableLimit.getEnum("limitStoreType");
+        // 本地拉黑缓存容量
+        this.denyCacheSize = enableLimit.getNumber("denyCacheSize");
+
         this.flowControlInterceptor.setEnablePullBlack(enablePullBlack);
         this.flowControlInterceptor.setLimitKeeperType(limitKeeperType);
         this.flowControlInterceptor.setPathPatterns(pathPatterns);
         this.flowControlInterceptor.setExcludePathPatterns(excludePathPatterns);
         this.flowControlInterceptor.setOrder(order);
+        this.flowControlInterceptor.setLeaseSize(leaseSize);
+        this.flowControlInterceptor.setLocalBucketSize(localBucketSize);
+        this.flowControlInterceptor.setLocalBucketIdleTime(localBucketIdleTime);
     }
 }
@@ -0,0 +1,149 @@
+package io.jopen.springboot.plugin.limit;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * 限流计数存储
+ * <p>
+ * {@link FlowControlInterceptor}和{@link SimpleKeeperImpl}通过此接口访问计数  不直接依赖存储实现
+ *
+ * @author maxuefeng
+ * @see RedisLimitStore
+ * @see MemoryLimitStore
+ * @see EnableJopenLimit#limitStoreType()
+ * @since 2020/2/22
+ */
+public interface LimitStore {
+
+    /**
+     * 拉黑检查未通过时的返回值
+     *
+     * @see LimitStore#acquire(String, LimitAlgorithm, int, int, Guard)
+     */
+    long FORBIDDEN = -1L;
+
+    /**
+     * 执行一次限流计数
+     *
+     * @param key       限流Key
+     * @param algorithm 限流算法
+     * @param count     窗口内允许的总次数
+     * @param time      窗口时长 单位为秒
+     * @return 大于0表示允许访问  等于0表示拒绝访问
+     */
+    long acquire(@NonNull String key, @NonNull LimitAlgorithm algorithm, int count, int time);
+
+    /**
+     * 按块租借固定窗口额度  与{@link LimitAlgorithm#FIXED_WINDOW}共用同一个计数
+     *
+     * @param key   限流Key
+     * @param count 窗口内允许的总次数
+     * @param time  窗口时长 单位为秒
+     * @param chunk 本次期望租借的令牌数量
+     * @return 长度为2的数组  [0]为获得的令牌数量  [1]为当前窗口剩余时间(Ms)
+     * @see LocalTokenBucket
+     */
+    @NonNull
+    long[] lease(@NonNull String key, int count, int time, int chunk);
+
+    /**
+     * 拉黑检查、限流计数、违规记录合并为一次原子操作
+     *
+     * @param key       限流Key
+     * @param algorithm 限流算法
+     * @param count     窗口内允许的总次数
+     * @param time      窗口时长 单位为秒
+     * @param guard     拉黑参数 {@link Keeper#guard(String)}
+     * @return {@link LimitStore#FORBIDDEN}表示已被拉黑  等于0表示被限流且已记录违规  大于0表示允许访问
+     */
+    long acquire(@NonNull String key, @NonNull LimitAlgorithm algorithm, int count, int time, @NonNull Guard guard);
+
+    /**
+     * 租借前先进行拉黑检查  不记录违规
+     *
+     * @param key   限流Key
+     * @param count 窗口内允许的总次数
+     * @param time  窗口时长 单位为秒
+     * @param chunk 本次期望租借的令牌数量
+     * @param guard 拉黑参数 {@link Keeper#guard(String)}
+     * @return 长度为2的数组  已被拉黑时[0]为{@link LimitStore#FORBIDDEN}
+     */
+    @NonNull
+    long[] lease(@NonNull String key, int count, int time, int chunk, @NonNull Guard guard);
+
+    /**
+     * 记录一次违规操作  首次违规时设置过期时间
+     *
+     * @param key          违规记录Key {@link Keeper#redisKey(String)}
+     * @param freezingTime 过期时间 单位为Ms
+     */
+    void recordViolation(@NonNull String key, long freezingTime);
+
+    /**
+     * @param key 违规记录Key {@link Keeper#redisKey(String)}
+     * @return 违规记录 不存在或已过期返回null
+     */
+    @Nullable
+    ViolationRecord getViolation(@NonNull String key);
+
+    /**
+     * 删除违规记录  即解除拉黑
+     *
+     * @param key 违规记录Key {@link Keeper#redisKey(String)}
+     */
+    void removeViolation(@NonNull String key);
+
+    /**
+     * 拉黑参数
+     */
+    final class Guard {
+
+        /**
+         * 违规记录Key {@link Keeper#redisKey(String)}
+         */
+        private final String violationKey;
+
+        /**
+         * 拉黑阈值 {@link Keeper#exceedViolation()}
+         */
+        private final int exceedViolation;
+
+        /**
+         * 冻结时长 单位为Ms {@link Keeper#freezingTime()}
+         */
+        private final long freezingTime;
+
+        public Guard(@NonNull String violationKey, int exceedViolation, long freezingTime) {
+            this.violationKey = violationKey;
+            this.exceedViolation = exceedViolation;
+            this.freezingTime = freezingTime;
+        }
+
+        public String getViolationKey() {
+            return violationKey;
+        }
+
+        public int getExceedViolation() {
+            return exceedViolation;
+        }
+
+        public long getFreezingTime() {
+            return freezingTime;
+        }
+    }
+
+    /**
+     * 存储类型
+     */
+    enum Type {
+        /**
+         * 基于Redis Lua脚本  适用于集群部署
+         */
+        REDIS,
+        /**
+         * 基于本地内存  适用于单节点部署和压测
+         */
+        MEMORY
+    }
+}
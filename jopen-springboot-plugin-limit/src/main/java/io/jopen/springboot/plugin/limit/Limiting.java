@@ -35,5 +35,12 @@ public @interface Limiting {
      */
     int count() default 100;
 
+    /**
+     * 限流算法
+     * 只有{@link LimitAlgorithm#FIXED_WINDOW}支持本地令牌桶{@link EnableJopenLimit#leaseSize()}
+     *
+     * @return 默认为固定窗口计数
+     */
+    LimitAlgorithm algorithm() default LimitAlgorithm.FIXED_WINDOW;
 
 }
@@ -0,0 +1,103 @@
+package io.jopen.springboot.plugin.limit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地令牌桶
+ * <p>
+ * 每个限流Key在当前节点持有一个令牌桶，令牌从Redis中按块租借{@link LimitStore#lease(String, int, int, int)}
+ * 桶内有令牌且租约未过期时，请求在本地通过CAS扣减令牌，无需访问Redis
+ * 桶内令牌耗尽时再向Redis租借下一块额度，若Redis中额度也已耗尽，则在当前窗口剩余时间内直接本地拒绝
+ *
+ * @author maxuefeng
+ * @see FlowControlInterceptor
+ * @since 2020/2/20
+ */
+final class LocalTokenBucket {
+
+    /**
+     * 剩余令牌数
+     */
+    private final AtomicLong tokens = new AtomicLong();
+
+    /**
+     * 租约过期时间 单位为Ms  先于{@link LocalTokenBucket#tokens}写入
+     */
+    private volatile long expireAt;
+
+    /**
+     * 本地无锁扣减令牌
+     *
+     * @param now 当前时间
+     * @return 是否扣减成功
+     */
+    boolean tryConsume(long now) {
+        for (; ; ) {
+            long current = tokens.get();
+            if (current <= 0 || now >= expireAt) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 当前租约是否已被Redis拒绝(窗口额度已耗尽且窗口未结束)
+     *
+     * @param now 当前时间
+     * @return 是否可以直接本地拒绝
+     */
+    boolean isExhausted(long now) {
+        return tokens.get() <= 0 && now < expireAt;
+    }
+
+    /**
+     * 重新租借令牌  同一个桶同一时刻只允许一个线程访问Redis
+     *
+     * @param now    当前时间
+     * @param window 窗口时长 单位为Ms  租借结果中没有窗口剩余时间时作为租约有效期
+     * @param leaser 租借额度的实现
+     * @return 1表示获取到令牌  0表示额度已耗尽  {@link LimitStore#FORBIDDEN}表示已被拉黑
+     */
+    synchronized long refill(long now, long window, Leaser leaser) {
+        // 等待锁期间其他线程可能已经完成租借
+        if (tryConsume(now)) {
+            return 1L;
+        }
+        if (isExhausted(now)) {
+            return 0L;
+        }
+        long[] lease = leaser.lease();
+        long granted = lease[0];
+        // PTTL返回-1(没有过期时间)或-2(Key不存在)时按整个窗口计算  否则租约立即过期 每次请求都会访问Redis
+        long ttl = lease[1] > 0L ? lease[1] : window;
+
+        this.tokens.set(0L);
+        if (granted == LimitStore.FORBIDDEN) {
+            // 拉黑状态不缓存在令牌桶中  解除拉黑后下一次请求即可重新租借
+            this.expireAt = now;
+            return LimitStore.FORBIDDEN;
+        }
+        this.expireAt = now + ttl;
+        if (granted <= 0) {
+            return 0L;
+        }
+        // 当前请求消耗一个令牌
+        this.tokens.set(granted - 1);
+        return 1L;
+    }
+
+    /**
+     * 从Redis租借额度
+     */
+    @FunctionalInterface
+    interface Leaser {
+
+        /**
+         * @return 长度为2的数组  [0]为获得的令牌数量(已被拉黑时为{@link LimitStore#FORBIDDEN})  [1]为当前窗口剩余时间(Ms)
+         */
+        long[] lease();
+    }
+}
@@ -0,0 +1,309 @@
+package io.jopen.springboot.plugin.limit;
+
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * 基于本地内存的限流计数存储
+ * <p>
+ * 1 同一个Key的读改写通过分段锁{@link Striped}串行化  不同Key之间互不影响
+ * 2 过期计数由{@link TimerWheel}统一清理  请求路径上不做扫描
+ * 3 计数只在当前节点内有效  集群部署请使用{@link RedisLimitStore}
+ *
+ * @author maxuefeng
+ * @see EnableJopenLimit#limitStoreType()
+ * @since 2020/2/22
+ */
+public final class MemoryLimitStore implements LimitStore, DisposableBean {
+
+    /**
+     * 时间轮每个槽位代表的时长 单位为Ms
+     */
+    private static final long TICK_DURATION = 100L;
+
+    /**
+     * 时间轮槽位数量
+     */
+    private static final int TICKS_PER_WHEEL = 512;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Striped<Lock> locks = Striped.lock(Runtime.getRuntime().availableProcessors() * 4);
+
+    private final TimerWheel timerWheel = new TimerWheel(TICK_DURATION, TICKS_PER_WHEEL, System.currentTimeMillis());
+
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("limit-store-ticker-%d").build());
+
+    public MemoryLimitStore() {
+        this.ticker.scheduleWithFixedDelay(() -> timerWheel.advance(System.currentTimeMillis()),
+                TICK_DURATION, TICK_DURATION, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long acquire(@NonNull String key, @NonNull LimitAlgorithm algorithm, int count, int time) {
+        long now = System.currentTimeMillis();
+        long window = time * 1000L;
+        switch (algorithm) {
+            case SLIDING_LOG:
+                return this.slidingLog("rate.limit.log:" + key, count, window, now);
+            case SLIDING_COUNTER:
+                return this.slidingCounter("rate.limit.counter:" + key, count, window, now);
+            case GCRA:
+                return this.gcra("rate.limit.gcra:" + key, count, window, now);
+            case FIXED_WINDOW:
+            default:
+                return this.fixedWindow("rate.limit:" + key, count, window, now, 1)[0];
+        }
+    }
+
+    /**
+     * 本地内存不需要合并网络往返  依次执行拉黑检查、限流计数、违规记录
+     */
+    @Override
+    public long acquire(@NonNull String key, @NonNull LimitAlgorithm algorithm, int count, int time, @NonNull Guard guard) {
+        if (this.isForbidden(guard)) {
+            return FORBIDDEN;
+        }
+        long r = this.acquire(key, algorithm, count, time);
+        if (r == 0L) {
+            this.recordViolation(guard.getViolationKey(), guard.getFreezingTime());
+        }
+        return r;
+    }
+
+    @Override
+    public @NonNull long[] lease(@NonNull String key, int count, int time, int chunk) {
+        return this.fixedWindow("rate.limit:" + key, count, time * 1000L, System.currentTimeMillis(), chunk);
+    }
+
+    @Override
+    public @NonNull long[] lease(@NonNull String key, int count, int time, int chunk, @NonNull Guard guard) {
+        if (this.isForbidden(guard)) {
+            Entry entry = entries.get(guard.getViolationKey());
+            return new long[]{FORBIDDEN, entry == null ? 0L : entry.expireAt - System.currentTimeMillis()};
+        }
+        return this.lease(key, count, time, chunk);
+    }
+
+    @Override
+    public void recordViolation(@NonNull String key, long freezingTime) {
+        long now = System.currentTimeMillis();
+        Lock lock = locks.get(key);
+        lock.lock();
+        try {
+            ViolationEntry entry = this.entry(key, now, now + freezingTime, ViolationEntry::new);
+            if (entry.record == null) {
+                entry.record = new ViolationRecord(now, now, 1);
+            } else {
+                entry.record.setEndViolationTime(now);
+                entry.record.setViolationCount(entry.record.getViolationCount() + 1);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public @Nullable ViolationRecord getViolation(@NonNull String key) {
+        Entry entry = entries.get(key);
+        if (!(entry instanceof ViolationEntry) || entry.expireAt <= System.currentTimeMillis()) {
+            return null;
+        }
+        ViolationRecord record = ((ViolationEntry) entry).record;
+        return record == null ? null :
+                new ViolationRecord(record.getFirstViolationTime(), record.getEndViolationTime(), record.getViolationCount());
+    }
+
+    @Override
+    public void removeViolation(@NonNull String key) {
+        Lock lock = locks.get(key);
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isForbidden(Guard guard) {
+        ViolationRecord record = this.getViolation(guard.getViolationKey());
+        return record != null && record.getViolationCount() >= guard.getExceedViolation();
+    }
+
+    @Override
+    public void destroy() {
+        this.ticker.shutdownNow();
+    }
+
+    /**
+     * 固定窗口计数  与Redis租借脚本语义一致
+     *
+     * @return 长度为2的数组  [0]为获得的令牌数量  [1]为当前窗口剩余时间(Ms)
+     */
+    private long[] fixedWindow(String key, int count, long window, long now, int chunk) {
+        Lock lock = locks.get(key);
+        lock.lock();
+        try {
+            CounterEntry entry = this.entry(key, now, now + window, CounterEntry::new);
+            long granted = Math.min(chunk, count - entry.count);
+            if (granted <= 0) {
+                return new long[]{0L, entry.expireAt - now};
+            }
+            entry.count += granted;
+            return new long[]{granted, entry.expireAt - now};
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long slidingLog(String key, int count, long window, long now) {
+        Lock lock = locks.get(key);
+        lock.lock();
+        try {
+            LogEntry entry = this.entry(key, now, now + window, LogEntry::new);
+            while (!entry.log.isEmpty() && entry.log.peekFirst() <= now - window) {
+                entry.log.pollFirst();
+            }
+            if (entry.log.size() + 1 > count) {
+                return 0L;
+            }
+            entry.log.addLast(now);
+            entry.expireAt = now + window;
+            return entry.log.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long slidingCounter(String key, int count, long window, long now) {
+        Lock lock = locks.get(key);
+        lock.lock();
+        try {
+            long index = now / window;
+            SlidingCounterEntry entry = this.entry(key, now, (index + 2) * window, SlidingCounterEntry::new);
+            if (entry.index != index) {
+                // 窗口前移一格时当前计数变为上一个窗口计数  前移多格时两者都清零
+                entry.previous = entry.index == index - 1 ? entry.current : 0L;
+                entry.current = 0L;
+                entry.index = index;
+            }
+            long estimated = entry.previous * (window - (now - index * window)) / window + entry.current;
+            if (estimated + 1 > count) {
+                return 0L;
+            }
+            entry.current++;
+            entry.expireAt = (index + 2) * window;
+            return estimated + 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long gcra(String key, int count, long period, long now) {
+        Lock lock = locks.get(key);
+        lock.lock();
+        try {
+            GcraEntry entry = this.entry(key, now, now + period, GcraEntry::new);
+            double interval = (double) period / count;
+            double tat = Math.max(entry.tat, now);
+            double newTat = tat + interval;
+            if (newTat - period > now) {
+                return 0L;
+            }
+            entry.tat = newTat;
+            entry.expireAt = (long) Math.ceil(newTat);
+            return 1L;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取或创建计数  调用方需持有对应Key的锁
+     * <p>
+     * 新建的计数立即按expireAt调度过期  即使本次没有计数(如count小于等于0)也不会常驻内存
+     * 过期的计数直接覆盖  时间轮只在持有同一个锁时删除计数  覆盖期间不会被删除
+     * 之后延长过期时间只需修改{@link Entry#expireAt}  时间轮到期时按新的过期时间重新调度
+     *
+     * @param expireAt 新建计数的过期时间
+     */
+    @SuppressWarnings("unchecked")
+    private <E extends Entry> E entry(String key, long now, long expireAt, Supplier<E> supplier) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expireAt <= now) {
+            E created = supplier.get();
+            created.key = key;
+            created.expireAt = expireAt;
+            entries.put(key, created);
+            timerWheel.schedule(created, expireAt);
+            return created;
+        }
+        return (E) entry;
+    }
+
+    /**
+     * 计数基类  字段均在Key对应的锁内修改
+     */
+    private abstract class Entry implements TimerWheel.Expirable {
+        String key;
+        volatile long expireAt;
+
+        @Override
+        public long expireAt() {
+            return expireAt;
+        }
+
+        /**
+         * 在Key对应的锁内检查  避免删除刚被延长的计数
+         */
+        @Override
+        public boolean expire(long now) {
+            Lock lock = locks.get(key);
+            lock.lock();
+            try {
+                if (expireAt > now) {
+                    return false;
+                }
+                entries.remove(key, this);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final class CounterEntry extends Entry {
+        long count;
+    }
+
+    private final class LogEntry extends Entry {
+        final ArrayDeque<Long> log = new ArrayDeque<>();
+    }
+
+    private final class SlidingCounterEntry extends Entry {
+        long index = Long.MIN_VALUE;
+        long previous;
+        long current;
+    }
+
+    private final class GcraEntry extends Entry {
+        double tat;
+    }
+
+    private final class ViolationEntry extends Entry {
+        ViolationRecord record;
+    }
+}
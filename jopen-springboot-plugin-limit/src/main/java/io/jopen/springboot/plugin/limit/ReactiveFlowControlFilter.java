@@ -0,0 +1,128 @@
+package io.jopen.springboot.plugin.limit;
+
+import io.jopen.springboot.plugin.annotation.cache.BaseWebFilter;
+import io.jopen.springboot.plugin.annotation.cache.HandlerMetadata;
+import io.jopen.springboot.plugin.common.SpringContainer;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 流量控制 {@link FlowControlInterceptor}的WebFlux版本
+ * <p>
+ * 1 限流计数通过{@link ReactiveLimitStore}执行  不阻塞事件循环线程
+ * 2 {@link Keeper#guard(String)}为null的自定义Keeper可能阻塞  其调用切换到{@link Schedulers#boundedElastic()}执行
+ * 3 Key生产、拉黑策略等配置与{@link FlowControlInterceptor}共享  均来自{@link EnableJopenLimit}
+ * 4 本地令牌桶{@link EnableJopenLimit#leaseSize()}的租借需要加锁等待  WebFlux下不启用  每次请求执行一次计数
+ *
+ * @author maxuefeng
+ * @see FlowControlInterceptor
+ * @see ReactiveLimitPluginConfiguration
+ * @since 2020/2/26
+ */
+public class ReactiveFlowControlFilter extends BaseWebFilter implements CommandLineRunner {
+
+    private final FlowControlInterceptor flowControlInterceptor;
+
+    private final ReactiveLimitStore limitStore;
+
+    private final DenyCache denyCache;
+
+    private LimitKeyProducer limitKeyProducer;
+
+    private Keeper keeper;
+
+    private boolean enablePullBlack;
+
+    public ReactiveFlowControlFilter(@NonNull FlowControlInterceptor flowControlInterceptor,
+                                     @NonNull ReactiveLimitStore limitStore,
+                                     @NonNull DenyCache denyCache) {
+        super(Limiting.class);
+        this.flowControlInterceptor = flowControlInterceptor;
+        this.limitStore = limitStore;
+        this.denyCache = denyCache;
+    }
+
+    @Override
+    protected @NonNull Mono<Void> filter(@NonNull ServerWebExchange exchange,
+                                         @NonNull WebFilterChain chain,
+                                         @NonNull HandlerMetadata handlerMetadata) {
+        // 获取限流注解
+        Limiting limiting = handlerMetadata.getAnnotation(Limiting.class);
+        if (limiting == null) {
+            return chain.filter(exchange);
+        }
+        String limitKey = this.limitKeyProducer.key(exchange.getRequest());
+        // 拼接key
+        String key = limitKey + FlowControlInterceptor.keySuffix(handlerMetadata, limiting);
+
+        if (!this.enablePullBlack) {
+            return limitStore.acquire(key, limiting.algorithm(), limiting.count(), limiting.time())
+                    .flatMap(r -> this.isAllowed(r, limiting) ? chain.filter(exchange) : Mono.<Void>error(this.limitException()));
+        }
+        // 本地拉黑缓存命中时直接拒绝
+        if (denyCache.isDenied(limitKey)) {
+            return Mono.error(new LimitException(Keeper.Info.FORBIDDEN.errMsg));
+        }
+        LimitStore.Guard guard = keeper.guard(limitKey);
+        if (guard != null) {
+            // 黑名单检查和违规记录与限流计数合并执行
+            return limitStore.acquire(key, limiting.algorithm(), limiting.count(), limiting.time(), guard)
+                    .flatMap(r -> {
+                        if (r == LimitStore.FORBIDDEN) {
+                            return this.deny(limitKey, guard).then(Mono.<Void>error(new LimitException(Keeper.Info.FORBIDDEN.errMsg)));
+                        }
+                        return this.isAllowed(r, limiting) ? chain.filter(exchange) : Mono.<Void>error(this.limitException());
+                    });
+        }
+        // 自定义Keeper  黑名单操作和违规记录在弹性线程池中执行
+        return Mono.fromCallable(() -> keeper.solicitingOpinions(limitKey))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(info -> {
+                    if (!info.isAllowAccess) {
+                        denyCache.deny(limitKey, System.currentTimeMillis() + keeper.freezingTime());
+                        return Mono.<Void>error(new LimitException(info.errMsg));
+                    }
+                    return limitStore.acquire(key, limiting.algorithm(), limiting.count(), limiting.time())
+                            .flatMap(r -> this.isAllowed(r, limiting) ? chain.filter(exchange) :
+                                    Mono.fromRunnable(() -> keeper.recordViolation(limitKey))
+                                            .subscribeOn(Schedulers.boundedElastic())
+                                            .then(Mono.<Void>error(this.limitException())));
+                });
+    }
+
+    /**
+     * 写入本地拉黑缓存  解除拉黑的时间为首次违规时间加冻结时长
+     *
+     * @see FlowControlInterceptor
+     */
+    private Mono<Long> deny(String limitKey, LimitStore.Guard guard) {
+        return limitStore.getViolation(guard.getViolationKey())
+                .map(violationRecord -> violationRecord.getFirstViolationTime() + guard.getFreezingTime())
+                .defaultIfEmpty(System.currentTimeMillis() + guard.getFreezingTime())
+                .doOnNext(until -> denyCache.deny(limitKey, until));
+    }
+
+    private boolean isAllowed(long r, Limiting limiting) {
+        return r > 0 && r <= limiting.count();
+    }
+
+    private LimitException limitException() {
+        return new LimitException("访问过于频繁，请稍后再试！");
+    }
+
+    /**
+     * 读取{@link FlowControlInterceptor}中由{@link EnableJopenLimit}设定的配置
+     *
+     * @param args
+     */
+    @Override
+    public void run(String... args) {
+        this.limitKeyProducer = flowControlInterceptor.getLimitKeyProducer();
+        this.enablePullBlack = flowControlInterceptor.getEnablePullBlack();
+        this.keeper = SpringContainer.getBean(flowControlInterceptor.getLimitKeeperType());
+    }
+}
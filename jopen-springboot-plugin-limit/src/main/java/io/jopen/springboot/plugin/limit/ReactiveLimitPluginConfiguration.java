@@ -0,0 +1,80 @@
+package io.jopen.springboot.plugin.limit;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportAware;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+
+/**
+ * WebFlux应用中注册{@link ReactiveFlowControlFilter}  Servlet应用中不生效
+ * <p>
+ * 插件依赖spring-boot-starter-web  类路径中同时存在Spring MVC和WebFlux时SpringBoot默认创建Servlet应用
+ * WebFlux应用需要配置{@code spring.main.web-application-type=reactive}  否则此配置不会生效
+ * <p>
+ * 与{@link LimitPluginConfiguration}读取同一个{@link EnableJopenLimit}注解
+ *
+ * @author maxuefeng
+ * @see ReactiveFlowControlFilter
+ * @since 2020/2/26
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveLimitPluginConfiguration implements ImportAware {
+
+    private int order;
+
+    private String[] pathPatterns;
+
+    private String[] excludePathPatterns;
+
+    /**
+     * 与{@link LimitStore}对应的响应式计数存储
+     *
+     * @param limitStore            {@link LimitPluginConfiguration#limitStore(ObjectProvider, ScriptConfiguration)}
+     * @param reactiveRedisTemplate 响应式Redis模板  {@link LimitStore.Type#MEMORY}时可以不存在
+     * @param scriptConfiguration   Lua脚本配置
+     * @return {@link ReactiveLimitStore}
+     */
+    @Bean
+    public ReactiveLimitStore reactiveLimitStore(LimitStore limitStore,
+                                                 ObjectProvider<ReactiveRedisTemplate<String, Object>> reactiveRedisTemplate,
+                                                 ScriptConfiguration scriptConfiguration) {
+        if (limitStore instanceof MemoryLimitStore) {
+            return ReactiveLimitStore.of(limitStore);
+        }
+        ReactiveRedisTemplate<String, Object> template = reactiveRedisTemplate.getIfAvailable();
+        if (template == null) {
+            throw new IllegalStateException("ReactiveRedisTemplate is required when limitStoreType is REDIS");
+        }
+        return new ReactiveRedisLimitStore(template, scriptConfiguration);
+    }
+
+    @Bean
+    public ReactiveFlowControlFilter reactiveFlowControlFilter(FlowControlInterceptor flowControlInterceptor,
+                                                               ReactiveLimitStore reactiveLimitStore,
+                                                               DenyCache denyCache) {
+        ReactiveFlowControlFilter filter = new ReactiveFlowControlFilter(flowControlInterceptor, reactiveLimitStore, denyCache);
+        filter.setOrder(this.order);
+        filter.setPathPatterns(this.pathPatterns);
+        filter.setExcludePathPatterns(this.excludePathPatterns);
+        return filter;
+    }
+
+    @Override
+    public void setImportMetadata(AnnotationMetadata importMetadata) {
+        AnnotationAttributes enableLimit = AnnotationAttributes
+                .fromMap(importMetadata.getAnnotationAttributes(EnableJopenLimit.class.getName(), false));
+
+        if (enableLimit == null) {
+            throw new IllegalArgumentException(
+                    "@EnableLimit is not present on importing class " + importMetadata.getClassName());
+        }
+        this.order = enableLimit.getNumber("order");
+        this.pathPatterns = enableLimit.getStringArray("pathPatterns");
+        this.excludePathPatterns = enableLimit.getStringArray("excludePathPattern");
+    }
+}
@@ -0,0 +1,62 @@
+package io.jopen.springboot.plugin.limit;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import reactor.core.publisher.Mono;
+
+/**
+ * 限流计数存储的响应式版本  供{@link ReactiveFlowControlFilter}使用  不阻塞事件循环线程
+ * <p>
+ * 方法语义与{@link LimitStore}中的同名方法一致
+ *
+ * @author maxuefeng
+ * @see LimitStore
+ * @see ReactiveRedisLimitStore
+ * @since 2020/2/26
+ */
+public interface ReactiveLimitStore {
+
+    /**
+     * @see LimitStore#acquire(String, LimitAlgorithm, int, int)
+     */
+    @NonNull
+    Mono<Long> acquire(@NonNull String key, @NonNull LimitAlgorithm algorithm, int count, int time);
+
+    /**
+     * @see LimitStore#acquire(String, LimitAlgorithm, int, int, LimitStore.Guard)
+     */
+    @NonNull
+    Mono<Long> acquire(@NonNull String key, @NonNull LimitAlgorithm algorithm, int count, int time, LimitStore.@NonNull Guard guard);
+
+    /**
+     * @return 违规记录不存在或已过期时为空
+     * @see LimitStore#getViolation(String)
+     */
+    @NonNull
+    Mono<ViolationRecord> getViolation(@NonNull String key);
+
+    /**
+     * 包装本地计数存储  只适用于不阻塞的实现  如{@link MemoryLimitStore}
+     *
+     * @param limitStore 本地计数存储
+     * @return {@link ReactiveLimitStore}
+     */
+    @NonNull
+    static ReactiveLimitStore of(@NonNull LimitStore limitStore) {
+        return new ReactiveLimitStore() {
+            @Override
+            public @NonNull Mono<Long> acquire(@NonNull String key, @NonNull LimitAlgorithm algorithm, int count, int time) {
+                return Mono.fromSupplier(() -> limitStore.acquire(key, algorithm, count, time));
+            }
+
+            @Override
+            public @NonNull Mono<Long> acquire(@NonNull String key, @NonNull LimitAlgorithm algorithm, int count, int time, LimitStore.@NonNull Guard guard) {
+                return Mono.fromSupplier(() -> limitStore.acquire(key, algorithm, count, time, guard));
+            }
+
+            @Override
+            public @NonNull Mono<ViolationRecord> getViolation(@NonNull String key) {
+                return Mono.fromSupplier(() -> limitStore.getViolation(key));
+            }
+        };
+    }
+}
@@ -0,0 +1,80 @@
+package io.jopen.springboot.plugin.limit;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于{@link ReactiveRedisTemplate}的限流计数存储
+ * <p>
+ * 与{@link RedisLimitStore}使用相同的Lua脚本和Key  两者可以在同一个集群中混合部署
+ *
+ * @author maxuefeng
+ * @see RedisLimitStore
+ * @since 2020/2/26
+ */
+public final class ReactiveRedisLimitStore implements ReactiveLimitStore {
+
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+
+    /**
+     * 限流算法对应的Lua脚本
+     */
+    private final Map<LimitAlgorithm, DefaultRedisScript<Number>> limitScripts = new EnumMap<>(LimitAlgorithm.class);
+
+    /**
+     * 限流算法对应的带拉黑逻辑的Lua脚本
+     */
+    private final Map<LimitAlgorithm, DefaultRedisScript<Number>> guardedLimitScripts = new EnumMap<>(LimitAlgorithm.class);
+
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> violationQueryScript;
+
+    public ReactiveRedisLimitStore(@NonNull ReactiveRedisTemplate<String, Object> reactiveRedisTemplate,
+                                   @NonNull ScriptConfiguration scriptConfiguration) {
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.limitScripts.put(LimitAlgorithm.FIXED_WINDOW, scriptConfiguration.limitScript());
+        this.limitScripts.put(LimitAlgorithm.SLIDING_LOG, scriptConfiguration.slidingLogScript());
+        this.limitScripts.put(LimitAlgorithm.SLIDING_COUNTER, scriptConfiguration.slidingCounterScript());
+        this.limitScripts.put(LimitAlgorithm.GCRA, scriptConfiguration.gcraScript());
+        this.limitScripts.forEach((algorithm, script) ->
+                this.guardedLimitScripts.put(algorithm, ScriptConfiguration.guardedLimitScript(script)));
+        this.violationQueryScript = scriptConfiguration.violationQueryScript();
+    }
+
+    @Override
+    public @NonNull Mono<Long> acquire(@NonNull String key, @NonNull LimitAlgorithm algorithm, int count, int time) {
+        return reactiveRedisTemplate.execute(limitScripts.get(algorithm), Collections.singletonList(key), Arrays.asList(count, time))
+                .next()
+                .map(Number::longValue)
+                .defaultIfEmpty(0L);
+    }
+
+    @Override
+    public @NonNull Mono<Long> acquire(@NonNull String key, @NonNull LimitAlgorithm algorithm, int count, int time, LimitStore.@NonNull Guard guard) {
+        List<String> keys = Arrays.asList(key, RedisLimitStore.VIOLATION_PREFIX + guard.getViolationKey());
+        return reactiveRedisTemplate.execute(guardedLimitScripts.get(algorithm), keys,
+                Arrays.asList(count, time, guard.getExceedViolation(), guard.getFreezingTime()))
+                .next()
+                .map(Number::longValue)
+                .defaultIfEmpty(0L);
+    }
+
+    /**
+     * 响应式执行脚本时多值返回结果会被拆分为多个元素  按顺序收集为{违规次数, 首次违规时间, 最后一次违规时间}
+     */
+    @Override
+    public @NonNull Mono<ViolationRecord> getViolation(@NonNull String key) {
+        return reactiveRedisTemplate.execute(violationQueryScript, Collections.singletonList(RedisLimitStore.VIOLATION_PREFIX + key))
+                .collectList()
+                .filter(r -> r.size() >= 3 && ((Number) r.get(0)).intValue() > 0)
+                .map(r -> new ViolationRecord(((Number) r.get(1)).longValue(), ((Number) r.get(2)).longValue(), ((Number) r.get(0)).intValue()));
+    }
+}
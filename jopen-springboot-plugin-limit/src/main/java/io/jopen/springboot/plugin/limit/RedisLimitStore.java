@@ -0,0 +1,119 @@
+package io.jopen.springboot.plugin.limit;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于Redis的限流计数存储  {@link LimitStore}的默认实现
+ * <p>
+ * 违规记录以Hash结构存储  Key前缀为{@link RedisLimitStore#VIOLATION_PREFIX}
+ *
+ * @author maxuefeng
+ * @see ScriptConfiguration
+ * @since 2020/2/22
+ */
+public final class RedisLimitStore implements LimitStore {
+
+    /**
+     * 违规记录Key前缀  与旧版本Java序列化的违规记录区分
+     */
+    static final String VIOLATION_PREFIX = "rate.violation:";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 限流算法对应的Lua脚本
+     */
+    private final Map<LimitAlgorithm, DefaultRedisScript<Number>> limitScripts = new EnumMap<>(LimitAlgorithm.class);
+
+    /**
+     * 限流算法对应的带拉黑逻辑的Lua脚本
+     */
+    private final Map<LimitAlgorithm, DefaultRedisScript<Number>> guardedLimitScripts = new EnumMap<>(LimitAlgorithm.class);
+
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> leaseScript;
+
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> guardedLeaseScript;
+
+    private final DefaultRedisScript<Number> violationScript;
+
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> violationQueryScript;
+
+    public RedisLimitStore(@NonNull RedisTemplate<String, Object> redisTemplate,
+                           @NonNull ScriptConfiguration scriptConfiguration) {
+        this.redisTemplate = redisTemplate;
+        this.limitScripts.put(LimitAlgorithm.FIXED_WINDOW, scriptConfiguration.limitScript());
+        this.limitScripts.put(LimitAlgorithm.SLIDING_LOG, scriptConfiguration.slidingLogScript());
+        this.limitScripts.put(LimitAlgorithm.SLIDING_COUNTER, scriptConfiguration.slidingCounterScript());
+        this.limitScripts.put(LimitAlgorithm.GCRA, scriptConfiguration.gcraScript());
+        this.limitScripts.forEach((algorithm, script) ->
+                this.guardedLimitScripts.put(algorithm, ScriptConfiguration.guardedLimitScript(script)));
+        this.leaseScript = scriptConfiguration.leaseScript();
+        this.guardedLeaseScript = ScriptConfiguration.guardedLeaseScript(this.leaseScript);
+        this.violationScript = scriptConfiguration.violationScript();
+        this.violationQueryScript = scriptConfiguration.violationQueryScript();
+    }
+
+    @Override
+    public long acquire(@NonNull String key, @NonNull LimitAlgorithm algorithm, int count, int time) {
+        Number r = redisTemplate.execute(limitScripts.get(algorithm), Collections.singletonList(key), count, time);
+        return r == null ? 0L : r.longValue();
+    }
+
+    @Override
+    public long acquire(@NonNull String key, @NonNull LimitAlgorithm algorithm, int count, int time, @NonNull Guard guard) {
+        List<String> keys = Arrays.asList(key, VIOLATION_PREFIX + guard.getViolationKey());
+        Number r = redisTemplate.execute(guardedLimitScripts.get(algorithm), keys,
+                count, time, guard.getExceedViolation(), guard.getFreezingTime());
+        return r == null ? 0L : r.longValue();
+    }
+
+    @Override
+    public @NonNull long[] lease(@NonNull String key, int count, int time, int chunk) {
+        return toLease(redisTemplate.execute(leaseScript, Collections.singletonList(key), count, time, chunk));
+    }
+
+    @Override
+    public @NonNull long[] lease(@NonNull String key, int count, int time, int chunk, @NonNull Guard guard) {
+        List<String> keys = Arrays.asList(key, VIOLATION_PREFIX + guard.getViolationKey());
+        return toLease(redisTemplate.execute(guardedLeaseScript, keys,
+                count, time, chunk, guard.getExceedViolation(), guard.getFreezingTime()));
+    }
+
+    @Override
+    public void recordViolation(@NonNull String key, long freezingTime) {
+        redisTemplate.execute(violationScript, Collections.singletonList(VIOLATION_PREFIX + key), freezingTime);
+    }
+
+    @Override
+    public @Nullable ViolationRecord getViolation(@NonNull String key) {
+        List<?> r = redisTemplate.execute(violationQueryScript, Collections.singletonList(VIOLATION_PREFIX + key));
+        if (r == null || r.size() < 3 || ((Number) r.get(0)).intValue() == 0) {
+            return null;
+        }
+        return new ViolationRecord(((Number) r.get(1)).longValue(), ((Number) r.get(2)).longValue(), ((Number) r.get(0)).intValue());
+    }
+
+    @Override
+    public void removeViolation(@NonNull String key) {
+        redisTemplate.delete(VIOLATION_PREFIX + key);
+    }
+
+    private static long[] toLease(@Nullable List<?> r) {
+        if (r == null || r.size() < 2) {
+            return new long[]{0L, 0L};
+        }
+        return new long[]{((Number) r.get(0)).longValue(), ((Number) r.get(1)).longValue()};
+    }
+}
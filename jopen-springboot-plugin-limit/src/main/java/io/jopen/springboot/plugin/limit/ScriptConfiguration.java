@@ -4,6 +4,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 
+import java.util.List;
+
 /**
  * @author maxuefeng
  * @since 2020/1/29
@@ -11,6 +13,18 @@ import org.springframework.data.redis.core.script.DefaultRedisScript;
 @Configuration
 public class ScriptConfiguration {
 
+    /**
+     * 违规记录片段  执行后局部变量count为当前违规次数
+     */
+    private static final String VIOLATION_LUA_SCRIPT = "local time = redis.call('time')\n" +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+            "local count = redis.call('hincrby', key, 'count', 1)\n" +
+            "if count == 1 then\n" +
+            "    redis.call('hset', key, 'first', now)\n" +
+            "    redis.call('pexpire', key, FREEZING_TIME)\n" +
+            "end\n" +
+            "redis.call('hset', key, 'last', now)\n";
+
     /**
      * 加载Lua限流脚本
      *
@@ -35,4 +49,247 @@ public class ScriptConfiguration {
         redisScript.setScriptText(limitLuaScript);
         return redisScript;
     }
+
+    /**
+     * 加载Lua租借脚本  与{@link ScriptConfiguration#limitScript()}共用同一个计数Key
+     * <p>
+     * KEYS[1] 限流Key
+     * ARGV[1] 窗口内允许的总次数
+     * ARGV[2] 窗口时长 单位为秒
+     * ARGV[3] 本次期望租借的令牌数量
+     * <p>
+     * 返回值 {实际租借到的令牌数量, 当前窗口剩余时间(Ms)}
+     * 计数Key没有过期时间时(如被外部写入)重新设置为窗口时长  避免窗口永不结束
+     *
+     * @return 脚本包装对象
+     * @see LocalTokenBucket
+     */
+    @Bean(name = "leaseScript")
+    @SuppressWarnings("rawtypes")
+    public DefaultRedisScript<List> leaseScript() {
+
+        DefaultRedisScript<List> redisScript = new DefaultRedisScript<>();
+        redisScript.setResultType(List.class);
+        String leaseLuaScript = "local key = \"rate.limit:\" .. KEYS[1]\n" +
+                "local limit = tonumber(ARGV[1])\n" +
+                "local chunk = tonumber(ARGV[3])\n" +
+                "local current = tonumber(redis.call('get', key) or \"0\")\n" +
+                "local granted = math.max(math.min(chunk, limit - current), 0)\n" +
+                "if granted > 0 then\n" +
+                "    redis.call('incrby', key, granted)\n" +
+                "end\n" +
+                "local ttl = redis.call('pttl', key)\n" +
+                "if ttl < 0 then\n" +
+                "    ttl = tonumber(ARGV[2]) * 1000\n" +
+                "    redis.call('pexpire', key, ttl)\n" +
+                "end\n" +
+                "return {granted, ttl}";
+        redisScript.setScriptText(leaseLuaScript);
+        return redisScript;
+    }
+
+    /**
+     * 加载滑动日志限流脚本
+     * <p>
+     * 使用Redis服务端时间  避免各节点时钟不一致  需要Redis 3.2及以上版本
+     *
+     * @return 脚本包装对象
+     * @see LimitAlgorithm#SLIDING_LOG
+     */
+    @Bean(name = "slidingLogScript")
+    public DefaultRedisScript<Number> slidingLogScript() {
+
+        DefaultRedisScript<Number> redisScript = new DefaultRedisScript<>();
+        redisScript.setResultType(Number.class);
+        String slidingLogLuaScript = "redis.replicate_commands()\n" +
+                "local key = \"rate.limit.log:\" .. KEYS[1]\n" +
+                "local limit = tonumber(ARGV[1])\n" +
+                "local window = tonumber(ARGV[2]) * 1000\n" +
+                "local time = redis.call('time')\n" +
+                "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+                "redis.call('zremrangebyscore', key, 0, now - window)\n" +
+                "local current = redis.call('zcard', key)\n" +
+                "if current + 1 > limit then\n" +
+                "    return 0\n" +
+                "end\n" +
+                "redis.call('zadd', key, now, time[1] .. time[2] .. ':' .. current)\n" +
+                "redis.call('pexpire', key, window)\n" +
+                "return current + 1";
+        redisScript.setScriptText(slidingLogLuaScript);
+        return redisScript;
+    }
+
+    /**
+     * 加载滑动窗口计数限流脚本
+     * <p>
+     * 估算值 = 上一个窗口计数 * 上一个窗口在滑动窗口内的占比 + 当前窗口计数
+     *
+     * @return 脚本包装对象
+     * @see LimitAlgorithm#SLIDING_COUNTER
+     */
+    @Bean(name = "slidingCounterScript")
+    public DefaultRedisScript<Number> slidingCounterScript() {
+
+        DefaultRedisScript<Number> redisScript = new DefaultRedisScript<>();
+        redisScript.setResultType(Number.class);
+        String slidingCounterLuaScript = "redis.replicate_commands()\n" +
+                "local limit = tonumber(ARGV[1])\n" +
+                "local window = tonumber(ARGV[2]) * 1000\n" +
+                "local time = redis.call('time')\n" +
+                "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+                "local index = math.floor(now / window)\n" +
+                "local currentKey = \"rate.limit.counter:{\" .. KEYS[1] .. \"}:\" .. index\n" +
+                "local previousKey = \"rate.limit.counter:{\" .. KEYS[1] .. \"}:\" .. (index - 1)\n" +
+                "local previous = tonumber(redis.call('get', previousKey) or \"0\")\n" +
+                "local current = tonumber(redis.call('get', currentKey) or \"0\")\n" +
+                "local estimated = math.floor(previous * (window - (now - index * window)) / window) + current\n" +
+                "if estimated + 1 > limit then\n" +
+                "    return 0\n" +
+                "end\n" +
+                "if redis.call('incr', currentKey) == 1 then\n" +
+                "    redis.call('pexpire', currentKey, window * 2)\n" +
+                "end\n" +
+                "return estimated + 1";
+        redisScript.setScriptText(slidingCounterLuaScript);
+        return redisScript;
+    }
+
+    /**
+     * 加载GCRA限流脚本
+     * <p>
+     * 每个Key只存储理论到达时间(TAT)  每次请求一次读一次写
+     * 发射间隔 = 窗口时长 / 窗口内允许的总次数   允许的最大突发为窗口内允许的总次数
+     *
+     * @return 脚本包装对象
+     * @see LimitAlgorithm#GCRA
+     */
+    @Bean(name = "gcraScript")
+    public DefaultRedisScript<Number> gcraScript() {
+
+        DefaultRedisScript<Number> redisScript = new DefaultRedisScript<>();
+        redisScript.setResultType(Number.class);
+        String gcraLuaScript = "redis.replicate_commands()\n" +
+                "local key = \"rate.limit.gcra:\" .. KEYS[1]\n" +
+                "local limit = tonumber(ARGV[1])\n" +
+                "local period = tonumber(ARGV[2]) * 1000\n" +
+                "local interval = period / limit\n" +
+                "local time = redis.call('time')\n" +
+                "local now = tonumber(time[1]) * 1000 + tonumber(time[2]) / 1000\n" +
+                "local tat = tonumber(redis.call('get', key) or \"0\")\n" +
+                "if tat < now then\n" +
+                "    tat = now\n" +
+                "end\n" +
+                "local newTat = tat + interval\n" +
+                "if newTat - period > now then\n" +
+                "    return 0\n" +
+                "end\n" +
+                "redis.call('set', key, string.format('%.3f', newTat), 'PX', math.ceil(newTat - now))\n" +
+                "return 1";
+        redisScript.setScriptText(gcraLuaScript);
+        return redisScript;
+    }
+
+    /**
+     * 加载Lua违规记录脚本
+     * <p>
+     * 违规记录存储为Hash  字段count为违规次数 first为首次违规时间 last为最后一次违规时间
+     * 首次违规时设置过期时间  整个过程只有一次网络往返且没有Java对象序列化
+     * <p>
+     * KEYS[1] 违规记录Key
+     * ARGV[1] 过期时间 单位为Ms
+     *
+     * @return 脚本包装对象  返回当前违规次数
+     * @see ViolationRecord
+     */
+    @Bean(name = "violationScript")
+    public DefaultRedisScript<Number> violationScript() {
+
+        DefaultRedisScript<Number> redisScript = new DefaultRedisScript<>();
+        redisScript.setResultType(Number.class);
+        String violationLuaScript = "redis.replicate_commands()\n" +
+                "local key = KEYS[1]\n" +
+                VIOLATION_LUA_SCRIPT.replace("FREEZING_TIME", "ARGV[1]") +
+                "return count";
+        redisScript.setScriptText(violationLuaScript);
+        return redisScript;
+    }
+
+    /**
+     * 加载Lua违规记录查询脚本
+     * <p>
+     * KEYS[1] 违规记录Key
+     *
+     * @return 脚本包装对象  返回{违规次数, 首次违规时间, 最后一次违规时间}
+     * @see ViolationRecord
+     */
+    @Bean(name = "violationQueryScript")
+    @SuppressWarnings("rawtypes")
+    public DefaultRedisScript<List> violationQueryScript() {
+
+        DefaultRedisScript<List> redisScript = new DefaultRedisScript<>();
+        redisScript.setResultType(List.class);
+        String violationQueryLuaScript = "local record = redis.call('hmget', KEYS[1], 'count', 'first', 'last')\n" +
+                "return {tonumber(record[1]) or 0, tonumber(record[2]) or 0, tonumber(record[3]) or 0}";
+        redisScript.setScriptText(violationQueryLuaScript);
+        return redisScript;
+    }
+
+    /**
+     * 在限流脚本外层包装拉黑逻辑  拉黑检查、限流计数、违规记录合并为一次原子操作
+     * <p>
+     * KEYS[1] 限流Key  KEYS[2] 违规记录Key
+     * ARGV 在原脚本参数之后追加  ARGV[#ARGV - 1] 拉黑阈值  ARGV[#ARGV] 冻结时长(Ms)
+     * <p>
+     * 返回值 -1 已被拉黑  0 被限流且已记录违规  大于0 允许访问
+     *
+     * @param limitScript 限流脚本 {@link LimitAlgorithm}
+     * @return 脚本包装对象
+     * @see LimitStore#acquire(String, LimitAlgorithm, int, int, LimitStore.Guard)
+     */
+    static DefaultRedisScript<Number> guardedLimitScript(DefaultRedisScript<Number> limitScript) {
+
+        DefaultRedisScript<Number> redisScript = new DefaultRedisScript<>();
+        redisScript.setResultType(Number.class);
+        String guardedLuaScript = "redis.replicate_commands()\n" +
+                "local function limit()\n" +
+                limitScript.getScriptAsString() + "\n" +
+                "end\n" +
+                "local key = KEYS[2]\n" +
+                "if tonumber(redis.call('hget', key, 'count') or \"0\") >= tonumber(ARGV[#ARGV - 1]) then\n" +
+                "    return -1\n" +
+                "end\n" +
+                "local result = limit()\n" +
+                "if result ~= 0 then\n" +
+                "    return result\n" +
+                "end\n" +
+                VIOLATION_LUA_SCRIPT.replace("FREEZING_TIME", "ARGV[#ARGV]") +
+                "return 0";
+        redisScript.setScriptText(guardedLuaScript);
+        return redisScript;
+    }
+
+    /**
+     * 在租借脚本外层包装拉黑检查  已被拉黑时返回{-1, 冻结剩余时间(Ms)}
+     * <p>
+     * 本地令牌桶模式下大部分拒绝发生在本地  违规记录由{@link Keeper#recordViolation(String)}完成
+     *
+     * @param leaseScript 租借脚本 {@link ScriptConfiguration#leaseScript()}
+     * @return 脚本包装对象
+     * @see LimitStore#lease(String, int, int, int, LimitStore.Guard)
+     */
+    @SuppressWarnings("rawtypes")
+    static DefaultRedisScript<List> guardedLeaseScript(DefaultRedisScript<List> leaseScript) {
+
+        DefaultRedisScript<List> redisScript = new DefaultRedisScript<>();
+        redisScript.setResultType(List.class);
+        String guardedLuaScript = "local function lease()\n" +
+                leaseScript.getScriptAsString() + "\n" +
+                "end\n" +
+                "if tonumber(redis.call('hget', KEYS[2], 'count') or \"0\") >= tonumber(ARGV[#ARGV - 1]) then\n" +
+                "    return {-1, redis.call('pttl', KEYS[2])}\n" +
+                "end\n" +
+                "return lease()";
+        redisScript.setScriptText(guardedLuaScript);
+        return redisScript;
+    }
 }
@@ -0,0 +1,124 @@
+package io.jopen.springboot.plugin.limit;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 哈希时间轮
+ * <p>
+ * 用于{@link MemoryLimitStore}中计数的过期清理  调度和推进均为O(1)
+ * 超出一圈的过期时间通过剩余圈数记录  每次推进只处理当前槽位
+ *
+ * @author maxuefeng
+ * @see MemoryLimitStore
+ * @since 2020/2/22
+ */
+final class TimerWheel {
+
+    /**
+     * 每个槽位代表的时长 单位为Ms
+     */
+    private final long tickDuration;
+
+    private final Queue<Timeout>[] wheel;
+
+    private final int mask;
+
+    /**
+     * 已推进到的刻度
+     */
+    private volatile long currentTick;
+
+    /**
+     * @param tickDuration 每个槽位代表的时长 单位为Ms
+     * @param ticksPerWheel 槽位数量 会向上取整为2的幂
+     * @param startTime    起始时间
+     */
+    @SuppressWarnings("unchecked")
+    TimerWheel(long tickDuration, int ticksPerWheel, long startTime) {
+        int size = Integer.highestOneBit(Math.max(ticksPerWheel, 2) - 1) << 1;
+        this.tickDuration = tickDuration;
+        this.wheel = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            this.wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = size - 1;
+        this.currentTick = startTime / tickDuration;
+    }
+
+    /**
+     * 调度一个过期任务  可以并发调用
+     *
+     * @param target   过期对象
+     * @param deadline 过期时间 单位为Ms
+     */
+    void schedule(Expirable target, long deadline) {
+        // 向上取整  保证槽位被处理时任务一定已经过期
+        long current = this.currentTick;
+        long tick = Math.max(deadline / tickDuration + 1, current + 1);
+        long rounds = (tick - current - 1) / wheel.length;
+        wheel[(int) (tick & mask)].offer(new Timeout(target, rounds));
+    }
+
+    /**
+     * 推进时间轮到指定时间  只能由单个线程调用
+     *
+     * @param now 当前时间
+     */
+    void advance(long now) {
+        long targetTick = now / tickDuration;
+        List<Expirable> delayed = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            Iterator<Timeout> iterator = wheel[(int) (currentTick & mask)].iterator();
+            while (iterator.hasNext()) {
+                Timeout timeout = iterator.next();
+                if (timeout.rounds > 0) {
+                    timeout.rounds--;
+                    continue;
+                }
+                iterator.remove();
+                if (!timeout.target.expire(now)) {
+                    // 过期时间已被延长  当前槽位处理完成后按新的过期时间重新调度
+                    delayed.add(timeout.target);
+                }
+            }
+            for (Expirable target : delayed) {
+                this.schedule(target, target.expireAt());
+            }
+            delayed.clear();
+        }
+    }
+
+    /**
+     * 可过期对象
+     */
+    interface Expirable {
+
+        /**
+         * @return 当前的过期时间 单位为Ms
+         */
+        long expireAt();
+
+        /**
+         * 执行过期逻辑  过期时间的检查和清理需要与过期时间的延长互斥
+         *
+         * @param now 当前时间
+         * @return 是否已过期  返回false时按{@link Expirable#expireAt()}重新调度
+         */
+        boolean expire(long now);
+    }
+
+    private static final class Timeout {
+        private final Expirable target;
+        private long rounds;
+
+        private Timeout(Expirable target, long rounds) {
+            this.target = target;
+            this.rounds = rounds;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package io.jopen.springboot.plugin.limit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * @author maxuefeng
+ * @since 2020/2/24
+ */
+public class DenyCacheTest {
+
+    @Test
+    public void denyAndInvalidate() {
+        DenyCache denyCache = new DenyCache(10, null);
+        denyCache.afterPropertiesSet();
+        denyCache.deny("k", System.currentTimeMillis() + 60000L);
+        Assert.assertTrue(denyCache.isDenied("k"));
+        Assert.assertFalse(denyCache.isDenied("other"));
+        denyCache.invalidate("k");
+        Assert.assertFalse(denyCache.isDenied("k"));
+    }
+
+    @Test
+    public void pastDeadlineIsNotCached() {
+        DenyCache denyCache = new DenyCache(10, null);
+        denyCache.deny("k", System.currentTimeMillis() - 1L);
+        Assert.assertFalse(denyCache.isDenied("k"));
+    }
+
+    @Test
+    public void disabledCacheDoesNotSubscribe() throws Exception {
+        // 没有连接工厂  订阅时会失败
+        DenyCache denyCache = new DenyCache(0, new RedisTemplate<>());
+        denyCache.afterPropertiesSet();
+        denyCache.deny("k", System.currentTimeMillis() + 60000L);
+        Assert.assertFalse(denyCache.isDenied("k"));
+        denyCache.destroy();
+    }
+}
@@ -0,0 +1,85 @@
+package io.jopen.springboot.plugin.limit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author maxuefeng
+ * @since 2020/2/20
+ */
+public class LocalTokenBucketTest {
+
+    private static final long WINDOW = 1000L;
+
+    @Test
+    public void emptyBucketRefusesLocally() {
+        LocalTokenBucket bucket = new LocalTokenBucket();
+        Assert.assertFalse(bucket.tryConsume(0L));
+        Assert.assertFalse(bucket.isExhausted(0L));
+    }
+
+    @Test
+    public void partialLease() {
+        LocalTokenBucket bucket = new LocalTokenBucket();
+        // 期望租借10个  Redis中只剩3个
+        Assert.assertEquals(1L, bucket.refill(0L, WINDOW, () -> new long[]{3L, 800L}));
+        Assert.assertTrue(bucket.tryConsume(1L));
+        Assert.assertTrue(bucket.tryConsume(2L));
+        Assert.assertFalse(bucket.tryConsume(3L));
+    }
+
+    @Test
+    public void exhaustedUntilWindowEnds() {
+        LocalTokenBucket bucket = new LocalTokenBucket();
+        AtomicInteger leases = new AtomicInteger();
+        Assert.assertEquals(0L, bucket.refill(0L, WINDOW, () -> {
+            leases.incrementAndGet();
+            return new long[]{0L, 500L};
+        }));
+        Assert.assertTrue(bucket.isExhausted(499L));
+        // 窗口内不再访问Redis
+        Assert.assertEquals(0L, bucket.refill(499L, WINDOW, () -> {
+            leases.incrementAndGet();
+            return new long[]{5L, 1L};
+        }));
+        Assert.assertEquals(1, leases.get());
+        Assert.assertFalse(bucket.isExhausted(500L));
+    }
+
+    @Test
+    public void refillAfterWindow() {
+        LocalTokenBucket bucket = new LocalTokenBucket();
+        Assert.assertEquals(1L, bucket.refill(0L, WINDOW, () -> new long[]{2L, 100L}));
+        Assert.assertTrue(bucket.tryConsume(50L));
+        // 租约过期后剩余令牌作废
+        Assert.assertEquals(1L, bucket.refill(100L, WINDOW, () -> new long[]{4L, 1000L}));
+        Assert.assertTrue(bucket.tryConsume(101L));
+        Assert.assertTrue(bucket.tryConsume(102L));
+        Assert.assertTrue(bucket.tryConsume(103L));
+        Assert.assertFalse(bucket.tryConsume(104L));
+        Assert.assertFalse(bucket.tryConsume(1100L));
+    }
+
+    @Test
+    public void missingTtlUsesWindow() {
+        LocalTokenBucket bucket = new LocalTokenBucket();
+        // PTTL为-1(没有过期时间)
+        Assert.assertEquals(1L, bucket.refill(0L, WINDOW, () -> new long[]{2L, -1L}));
+        Assert.assertTrue(bucket.tryConsume(999L));
+        // PTTL为-2(Key不存在)
+        LocalTokenBucket exhausted = new LocalTokenBucket();
+        Assert.assertEquals(0L, exhausted.refill(0L, WINDOW, () -> new long[]{0L, -2L}));
+        Assert.assertTrue(exhausted.isExhausted(999L));
+        Assert.assertFalse(exhausted.isExhausted(1000L));
+    }
+
+    @Test
+    public void forbiddenIsNotCached() {
+        LocalTokenBucket bucket = new LocalTokenBucket();
+        Assert.assertEquals(LimitStore.FORBIDDEN, bucket.refill(0L, WINDOW, () -> new long[]{LimitStore.FORBIDDEN, 60000L}));
+        Assert.assertFalse(bucket.isExhausted(0L));
+        Assert.assertEquals(1L, bucket.refill(0L, WINDOW, () -> new long[]{1L, 1000L}));
+    }
+}
@@ -0,0 +1,102 @@
+package io.jopen.springboot.plugin.limit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author maxuefeng
+ * @since 2020/2/22
+ */
+public class MemoryLimitStoreTest {
+
+    @Test
+    public void fixedWindowUnderContention() throws InterruptedException {
+        MemoryLimitStore store = new MemoryLimitStore();
+        int threads = 16;
+        int perThread = 1000;
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    if (store.acquire("k", LimitAlgorithm.FIXED_WINDOW, 5000, 60) > 0) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        Assert.assertEquals(5000, allowed.get());
+        store.destroy();
+    }
+
+    @Test
+    public void leaseSharesFixedWindowCount() {
+        MemoryLimitStore store = new MemoryLimitStore();
+        Assert.assertEquals(1L, store.acquire("k", LimitAlgorithm.FIXED_WINDOW, 10, 60));
+        long[] lease = store.lease("k", 10, 60, 4);
+        Assert.assertEquals(4L, lease[0]);
+        Assert.assertTrue(lease[1] > 0L && lease[1] <= 60000L);
+        Assert.assertEquals(4L, store.lease("k", 10, 60, 4)[0]);
+        // 只剩1个
+        Assert.assertEquals(1L, store.lease("k", 10, 60, 4)[0]);
+        Assert.assertEquals(0L, store.lease("k", 10, 60, 4)[0]);
+        Assert.assertEquals(0L, store.acquire("k", LimitAlgorithm.FIXED_WINDOW, 10, 60));
+        store.destroy();
+    }
+
+    @Test
+    public void emptyWindowStillExpires() {
+        MemoryLimitStore store = new MemoryLimitStore();
+        // 没有额度时也要有过期时间  否则计数常驻内存
+        long[] lease = store.lease("k", 0, 1, 5);
+        Assert.assertEquals(0L, lease[0]);
+        Assert.assertTrue(lease[1] > 0L && lease[1] <= 1000L);
+        store.destroy();
+    }
+
+    @Test
+    public void slidingAlgorithmsHonourCount() {
+        MemoryLimitStore store = new MemoryLimitStore();
+        for (LimitAlgorithm algorithm : new LimitAlgorithm[]{LimitAlgorithm.SLIDING_LOG, LimitAlgorithm.SLIDING_COUNTER, LimitAlgorithm.GCRA}) {
+            for (int i = 0; i < 3; i++) {
+                Assert.assertTrue(store.acquire("k", algorithm, 3, 60) > 0L);
+            }
+            Assert.assertEquals(0L, store.acquire("k", algorithm, 3, 60));
+        }
+        store.destroy();
+    }
+
+    @Test
+    public void guardRecordsViolationAndForbids() {
+        MemoryLimitStore store = new MemoryLimitStore();
+        LimitStore.Guard guard = new LimitStore.Guard("v", 2, 60000L);
+        Assert.assertEquals(1L, store.acquire("k", LimitAlgorithm.FIXED_WINDOW, 1, 60, guard));
+        Assert.assertEquals(0L, store.acquire("k", LimitAlgorithm.FIXED_WINDOW, 1, 60, guard));
+        Assert.assertEquals(0L, store.acquire("k", LimitAlgorithm.FIXED_WINDOW, 1, 60, guard));
+        ViolationRecord record = store.getViolation("v");
+        Assert.assertNotNull(record);
+        Assert.assertEquals(2, record.getViolationCount());
+        Assert.assertEquals(LimitStore.FORBIDDEN, store.acquire("k", LimitAlgorithm.FIXED_WINDOW, 1, 60, guard));
+        Assert.assertEquals(LimitStore.FORBIDDEN, store.lease("k", 1, 60, 1, guard)[0]);
+
+        store.removeViolation("v");
+        Assert.assertNull(store.getViolation("v"));
+        Assert.assertEquals(0L, store.acquire("k", LimitAlgorithm.FIXED_WINDOW, 1, 60, guard));
+        store.destroy();
+    }
+}
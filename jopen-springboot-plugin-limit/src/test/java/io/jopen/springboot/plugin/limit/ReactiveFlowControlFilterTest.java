@@ -0,0 +1,163 @@
+package io.jopen.springboot.plugin.limit;
+
+import io.jopen.springboot.plugin.annotation.cache.HandlerMetadata;
+import io.jopen.springboot.plugin.annotation.cache.HandlerMetadataRegistry;
+import io.jopen.springboot.plugin.common.SpringContainer;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import javax.servlet.http.HttpServletRequest;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author maxuefeng
+ * @see ReactiveFlowControlFilter
+ * @since 2020/2/26
+ */
+public class ReactiveFlowControlFilterTest {
+
+    public static class DemoController {
+
+        @Limiting(count = 2, time = 60)
+        public void limited() {
+        }
+
+        public void open() {
+        }
+    }
+
+    /**
+     * 只实现了Servlet版本  WebFlux下使用默认的IP加路径
+     */
+    public static class ServletOnlyKeyProducer implements LimitKeyProducer {
+        @Override
+        public String key(HttpServletRequest request) {
+            return request.getRemoteAddr();
+        }
+    }
+
+    /**
+     * 违规一次即拉黑
+     */
+    public static class StrictKeeper implements Keeper {
+
+        private final LimitStore limitStore;
+
+        public StrictKeeper(LimitStore limitStore) {
+            this.limitStore = limitStore;
+        }
+
+        @Override
+        public void recordViolation(@NonNull String limitKey) {
+            limitStore.recordViolation(redisKey(limitKey), freezingTime());
+        }
+
+        @Override
+        public @NonNull Info solicitingOpinions(@NonNull String limitKey) {
+            return Info.NORMAL;
+        }
+
+        @Override
+        public LimitStore.Guard guard(@NonNull String limitKey) {
+            return new LimitStore.Guard(redisKey(limitKey), 1, freezingTime());
+        }
+    }
+
+    private final AtomicInteger passed = new AtomicInteger();
+
+    private final WebFilterChain chain = exchange -> {
+        passed.incrementAndGet();
+        return Mono.empty();
+    };
+
+    private final MemoryLimitStore limitStore = new MemoryLimitStore();
+
+    private final DenyCache denyCache = new DenyCache(100, null);
+
+    private ReactiveFlowControlFilter filter(boolean enablePullBlack) {
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("strictKeeper", new StrictKeeper(limitStore));
+        context.refresh();
+        new SpringContainer().setApplicationContext(context);
+
+        FlowControlInterceptor interceptor = new FlowControlInterceptor();
+        interceptor.setLimitKeyProducer(new ServletOnlyKeyProducer());
+        interceptor.setLimitKeeperType(StrictKeeper.class);
+        interceptor.setEnablePullBlack(enablePullBlack);
+        ReactiveFlowControlFilter filter = new ReactiveFlowControlFilter(interceptor, ReactiveLimitStore.of(limitStore), denyCache);
+        filter.run();
+        return filter;
+    }
+
+    private static HandlerMetadata metadata(String method) throws NoSuchMethodException {
+        return HandlerMetadataRegistry.getInstance().get(new HandlerMethod(new DemoController(), DemoController.class.getMethod(method)));
+    }
+
+    private static MockServerWebExchange exchange(String path, String ip) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path).remoteAddress(new InetSocketAddress(ip, 8080)));
+    }
+
+    private static boolean rejected(Mono<Void> result) {
+        try {
+            result.block();
+            return false;
+        } catch (LimitException e) {
+            return true;
+        }
+    }
+
+    @Test
+    public void defaultReactiveKeyIsIpAndPath() {
+        MockServerHttpRequest request = MockServerHttpRequest.get("/api/orders").remoteAddress(new InetSocketAddress("10.0.0.1", 8080)).build();
+        Assert.assertEquals("10.0.0.1/api/orders", new ServletOnlyKeyProducer().key(request));
+        MockServerHttpRequest forwarded = MockServerHttpRequest.get("/api/orders").header("x-forwarded-for", "10.0.0.2").build();
+        Assert.assertEquals("10.0.0.2/api/orders", new ServletOnlyKeyProducer().key(forwarded));
+    }
+
+    @Test
+    public void limitsPerKey() throws NoSuchMethodException {
+        ReactiveFlowControlFilter filter = filter(false);
+        HandlerMetadata limited = metadata("limited");
+        Assert.assertFalse(rejected(filter.filter(exchange("/a", "10.0.0.1"), chain, limited)));
+        Assert.assertFalse(rejected(filter.filter(exchange("/a", "10.0.0.1"), chain, limited)));
+        Assert.assertTrue(rejected(filter.filter(exchange("/a", "10.0.0.1"), chain, limited)));
+        // 其他IP和其他路径各自计数
+        Assert.assertFalse(rejected(filter.filter(exchange("/a", "10.0.0.2"), chain, limited)));
+        Assert.assertFalse(rejected(filter.filter(exchange("/b", "10.0.0.1"), chain, limited)));
+        Assert.assertEquals(4, passed.get());
+    }
+
+    @Test
+    public void withoutLimitingPasses() throws NoSuchMethodException {
+        ReactiveFlowControlFilter filter = filter(true);
+        HandlerMetadata open = metadata("open");
+        for (int i = 0; i < 5; i++) {
+            Assert.assertFalse(rejected(filter.filter(exchange("/open", "10.0.0.1"), chain, open)));
+        }
+        Assert.assertEquals(5, passed.get());
+    }
+
+    @Test
+    public void violationLeadsToDeny() throws NoSuchMethodException {
+        ReactiveFlowControlFilter filter = filter(true);
+        HandlerMetadata limited = metadata("limited");
+        Assert.assertFalse(rejected(filter.filter(exchange("/a", "10.0.0.1"), chain, limited)));
+        Assert.assertFalse(rejected(filter.filter(exchange("/a", "10.0.0.1"), chain, limited)));
+        // 被限流并记录违规
+        Assert.assertTrue(rejected(filter.filter(exchange("/a", "10.0.0.1"), chain, limited)));
+        Assert.assertFalse(denyCache.isDenied("10.0.0.1/a"));
+        // 违规次数达到阈值  写入本地拉黑缓存
+        Assert.assertTrue(rejected(filter.filter(exchange("/a", "10.0.0.1"), chain, limited)));
+        Assert.assertTrue(denyCache.isDenied("10.0.0.1/a"));
+        Assert.assertTrue(rejected(filter.filter(exchange("/a", "10.0.0.1"), chain, limited)));
+        Assert.assertEquals(2, passed.get());
+    }
+}
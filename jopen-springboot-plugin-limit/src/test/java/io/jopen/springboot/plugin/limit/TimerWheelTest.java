@@ -0,0 +1,98 @@
+package io.jopen.springboot.plugin.limit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author maxuefeng
+ * @since 2020/2/22
+ */
+public class TimerWheelTest {
+
+    private static final class Target implements TimerWheel.Expirable {
+        private long expireAt;
+        private int expired;
+
+        private Target(long expireAt) {
+            this.expireAt = expireAt;
+        }
+
+        @Override
+        public long expireAt() {
+            return expireAt;
+        }
+
+        @Override
+        public boolean expire(long now) {
+            if (expireAt > now) {
+                return false;
+            }
+            expired++;
+            return true;
+        }
+    }
+
+    @Test
+    public void expiresAfterDeadline() {
+        TimerWheel wheel = new TimerWheel(10L, 8, 0L);
+        Target target = new Target(25L);
+        wheel.schedule(target, target.expireAt);
+        wheel.advance(29L);
+        Assert.assertEquals(0, target.expired);
+        wheel.advance(30L);
+        Assert.assertEquals(1, target.expired);
+        wheel.advance(1000L);
+        Assert.assertEquals(1, target.expired);
+    }
+
+    @Test
+    public void deadlineBeyondOneRound() {
+        // 一圈为80ms
+        TimerWheel wheel = new TimerWheel(10L, 8, 0L);
+        Target target = new Target(1000L);
+        wheel.schedule(target, target.expireAt);
+        wheel.advance(999L);
+        Assert.assertEquals(0, target.expired);
+        wheel.advance(1010L);
+        Assert.assertEquals(1, target.expired);
+    }
+
+    @Test
+    public void extendedDeadlineIsRescheduled() {
+        TimerWheel wheel = new TimerWheel(10L, 8, 0L);
+        Target target = new Target(25L);
+        wheel.schedule(target, target.expireAt);
+        target.expireAt = 265L;
+        wheel.advance(100L);
+        Assert.assertEquals(0, target.expired);
+        wheel.advance(269L);
+        Assert.assertEquals(0, target.expired);
+        wheel.advance(270L);
+        Assert.assertEquals(1, target.expired);
+    }
+
+    @Test
+    public void pastDeadlineExpiresOnNextTick() {
+        TimerWheel wheel = new TimerWheel(10L, 8, 500L);
+        Target target = new Target(100L);
+        wheel.schedule(target, target.expireAt);
+        wheel.advance(505L);
+        Assert.assertEquals(0, target.expired);
+        wheel.advance(510L);
+        Assert.assertEquals(1, target.expired);
+    }
+
+    @Test
+    public void ticksRoundedUpToPowerOfTwo() {
+        TimerWheel wheel = new TimerWheel(10L, 5, 0L);
+        Target[] targets = new Target[20];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = new Target(i * 10L);
+            wheel.schedule(targets[i], targets[i].expireAt);
+        }
+        wheel.advance(200L);
+        for (Target target : targets) {
+            Assert.assertEquals(1, target.expired);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package io.jopen.springboot.plugin.param.test;
 
+import io.jopen.springboot.plugin.common.FieldAccessors;
 import io.jopen.springboot.plugin.common.ReflectUtil;
 import org.apache.logging.log4j.util.Strings;
 
@@ -7,7 +8,6 @@ import java.lang.annotation.*;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
-import java.util.Objects;
 
 /**
  * 如果当前这个注解加到参数级别上则会校验此方法的部分参数不为空
@@ -117,11 +117,13 @@ public @interface NotNull {
 
                 // 判定所有字段都不可为空
                 else {
-                    // 判断指定字段不可为空
-                    Map<String, Object> filedValues = ReflectUtil.getObjFiledValues(target);
-
                     // 校验所有字段
-                    return filedValues.values().stream().anyMatch(Objects::isNull);
+                    FieldAccessors accessors = FieldAccessors.of(target.getClass());
+                    for (int i = 0; i < accessors.size(); i++) {
+                        if (accessors.get(target, i) == null) {
+                            return true;
+                        }
+                    }
                 }
             }
             return false;
@@ -11,9 +11,8 @@ import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
-import java.util.Arrays;
-import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
 /**
@@ -28,6 +27,8 @@ public class ParameterTestAction {
 
     private Logger L = LoggerFactory.getLogger(ParameterTestAction.class);
 
+    private final ConcurrentMap<Method, ValidationPlan> plans = new ConcurrentHashMap<>();
+
     private Method getMarkMethod(MethodInvocationProceedingJoinPoint p) {
 
         // 获取注解
@@ -48,41 +49,8 @@ public class ParameterTestAction {
             // 获取被注解的方法
             Method method = getMarkMethod((MethodInvocationProceedingJoinPoint) p);
 
-            Object[] args = p.getArgs();
-
-            // 获取方法参数级别的注解
-            Parameter[] parameters = method.getParameters();
-
-            // 判断参数级别是否存在NotNull注解
-            Optional<Parameter> op = Arrays.stream(parameters).filter(pm -> pm.getAnnotation(NotNull.class) != null).findAny();
-
-            // 存在NotNull注解
-            if (op.isPresent()) {
-
-                for (int i = 0; i < parameters.length; i++) {
-
-                    NotNull notNull = parameters[i].getAnnotation(NotNull.class);
-
-                    if (notNull != null) {
-
-                        // 如果需要检验的参数为空
-                        if (NotNull.Util.isEmpty(args[i], notNull.strictly(), notNull.requireFields())) {
-                            throw new NotNull.NullParamException(String.format("Error Param '%s' require not null,Method '%s'", parameters[i].getName(), method.getName()));
-                        }
-                    }
-
-                }
-            }
-
-            // 不存在NotNull注解
-            else {
-                for (int i = 0; i < args.length; i++) {
-                    if (NotNull.Util.isEmpty(args[i], false, new String[]{})) {
-                        String name = method.getParameters()[i].getName();
-                        throw new NotNull.NullParamException(String.format("param '%s' require non null", name));
-                    }
-                }
-            }
+            // 参数校验计划只在首次调用时编译
+            plans.computeIfAbsent(method, ValidationPlan::compile).validate(p.getArgs());
         }
         return p.proceed();
     }
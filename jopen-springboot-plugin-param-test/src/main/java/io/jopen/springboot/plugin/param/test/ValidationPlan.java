@@ -0,0 +1,214 @@
+package io.jopen.springboot.plugin.param.test;
+
+import io.jopen.springboot.plugin.common.FieldAccessors;
+import org.apache.logging.log4j.util.Strings;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个{@link CheckParamNotNull}方法的参数校验计划  每个方法只编译一次
+ * <p>
+ * 1 编译时确定需要校验的参数和异常信息  校验时不再读取参数和注解
+ * 2 参数的类别(字符串 集合 Map 数组 自定义对象)和字段读取函数({@link FieldAccessors})按参数的实际类型缓存
+ * 校验时不做接口类型的instanceof判断(未实现该接口时的判断较慢)  只有字段读取  不创建对象
+ * 3 校验规则与{@link NotNull.Util#isEmpty(Object, boolean, String[])}一致
+ *
+ * @author maxuefeng
+ * @see ParameterTestAction
+ * @since 2020/3/27
+ */
+final class ValidationPlan {
+
+    private final ParamCheck[] checks;
+
+    private ValidationPlan(ParamCheck[] checks) {
+        this.checks = checks;
+    }
+
+    /**
+     * @param method 标注了{@link CheckParamNotNull}的方法
+     * @return 参数校验计划
+     */
+    static ValidationPlan compile(Method method) {
+        Parameter[] parameters = method.getParameters();
+        List<ParamCheck> checks = new ArrayList<>(parameters.length);
+        for (int i = 0; i < parameters.length; i++) {
+            NotNull notNull = parameters[i].getAnnotation(NotNull.class);
+            if (notNull != null) {
+                checks.add(new ParamCheck(i, notNull.strictly(), notNull.requireFields(),
+                        String.format("Error Param '%s' require not null,Method '%s'", parameters[i].getName(), method.getName())));
+            }
+        }
+        // 参数上没有NotNull注解  校验所有参数
+        if (checks.isEmpty()) {
+            for (int i = 0; i < parameters.length; i++) {
+                checks.add(new ParamCheck(i, false, new String[]{},
+                        String.format("param '%s' require non null", parameters[i].getName())));
+            }
+        }
+        return new ValidationPlan(checks.toArray(new ParamCheck[0]));
+    }
+
+    /**
+     * @param args 方法参数
+     * @throws NotNull.NullParamException            参数为空
+     * @throws NotNull.NoSuchFieldOfNotNullException {@link NotNull#requireFields()}中的字段不存在
+     */
+    void validate(Object[] args) throws NotNull.NoSuchFieldOfNotNullException {
+        for (ParamCheck check : checks) {
+            if (check.isEmpty(args[check.index])) {
+                throw new NotNull.NullParamException(check.message);
+            }
+        }
+    }
+
+    /**
+     * 参数的类别  按{@link NotNull.Util#isEmpty(Object, boolean, String[])}的判断顺序
+     */
+    private enum Kind {
+        STRING, COLLECTION, MAP, ARRAY, OBJECT;
+
+        private static Kind of(Class<?> type) {
+            if (type == String.class) return STRING;
+            if (Collection.class.isAssignableFrom(type)) return COLLECTION;
+            if (Map.class.isAssignableFrom(type)) return MAP;
+            if (Object[].class.isAssignableFrom(type)) return ARRAY;
+            return OBJECT;
+        }
+    }
+
+    /**
+     * 一个类型的类别  自定义对象的字段读取函数和requireFields对应的字段下标
+     */
+    private static final class Binding {
+        private final Class<?> type;
+        private final Kind kind;
+
+        /**
+         * 非自定义对象时为null  字符串指定了requireFields时也按字段校验
+         */
+        private final FieldAccessors accessors;
+
+        /**
+         * requireFields对应的字段下标  字段不存在时为-1  校验所有字段或非自定义对象时为null
+         */
+        private final int[] indexes;
+
+        private Binding(Class<?> type, String[] requireFields) {
+            this.type = type;
+            this.kind = Kind.of(type);
+            if (this.kind != Kind.OBJECT && !(this.kind == Kind.STRING && requireFields.length > 0)) {
+                this.accessors = null;
+                this.indexes = null;
+                return;
+            }
+            this.accessors = FieldAccessors.of(type);
+            if (requireFields.length == 0) {
+                this.indexes = null;
+            } else {
+                this.indexes = new int[requireFields.length];
+                for (int i = 0; i < requireFields.length; i++) {
+                    this.indexes[i] = this.accessors.indexOf(requireFields[i]);
+                }
+            }
+        }
+
+        private boolean anyNull(Object target, String[] requireFields) throws NotNull.NoSuchFieldOfNotNullException {
+            if (indexes == null) {
+                for (int i = 0; i < accessors.size(); i++) {
+                    if (accessors.get(target, i) == null) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            for (int i = 0; i < indexes.length; i++) {
+                if (indexes[i] < 0) {
+                    String field = requireFields[i];
+                    throw new NotNull.NoSuchFieldOfNotNullException(String.format("注解NotNull指定的属性[ %s ]错误, 对象 [ %s ] 无属性 [ %s ]", field, target.getClass().getName(), field));
+                }
+                if (accessors.get(target, indexes[i]) == null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 单个参数的校验
+     */
+    private static final class ParamCheck {
+        private final int index;
+        private final boolean strictly;
+        private final String[] requireFields;
+        private final String message;
+
+        /**
+         * 按参数的实际类型缓存
+         */
+        private final ClassValue<Binding> bindings;
+
+        /**
+         * 上一次校验的类型  参数的实际类型通常只有一种  命中时不需要查找{@link #bindings}
+         * {@link Binding}不可变  多线程下无需同步
+         */
+        private Binding lastBinding;
+
+        private ParamCheck(int index, boolean strictly, String[] requireFields, String message) {
+            this.index = index;
+            this.strictly = strictly;
+            this.requireFields = requireFields;
+            this.message = message;
+            this.bindings = new ClassValue<Binding>() {
+                @Override
+                protected Binding computeValue(Class<?> type) {
+                    return new Binding(type, requireFields);
+                }
+            };
+        }
+
+        private boolean isEmpty(Object target) throws NotNull.NoSuchFieldOfNotNullException {
+            if (target == null) {
+                return true;
+            }
+            Binding binding = lastBinding;
+            if (binding == null || binding.type != target.getClass()) {
+                binding = bindings.get(target.getClass());
+                lastBinding = binding;
+            }
+            switch (binding.kind) {
+                case STRING:
+                    String value = (String) target;
+                    if (Strings.isBlank(value) || "null".equals(value)) {
+                        return true;
+                    }
+                    // 与Util一致  非空字符串继续校验requireFields指定的字段
+                    return strictly && binding.accessors != null && binding.anyNull(target, requireFields);
+                case COLLECTION:
+                    return strictly && ((Collection<?>) target).isEmpty();
+                case MAP:
+                    if (!strictly) {
+                        return false;
+                    }
+                    Map<?, ?> m = (Map<?, ?>) target;
+                    if (requireFields.length == 0) {
+                        return m.isEmpty();
+                    }
+                    for (String field : requireFields) {
+                        if (m.get(field) == null) return true;
+                    }
+                    return false;
+                case ARRAY:
+                    return strictly && ((Object[]) target).length == 0;
+                default:
+                    return strictly && binding.anyNull(target, requireFields);
+            }
+        }
+    }
+}
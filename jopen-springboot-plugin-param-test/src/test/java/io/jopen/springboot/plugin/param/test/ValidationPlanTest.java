@@ -0,0 +1,160 @@
+package io.jopen.springboot.plugin.param.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author maxuefeng
+ * @since 2020/3/27
+ */
+public class ValidationPlanTest {
+
+    private static class Bean {
+        private String name;
+        private Integer age;
+
+        private Bean(String name, Integer age) {
+            this.name = name;
+            this.age = age;
+        }
+    }
+
+    private static class SubBean extends Bean {
+        private String extra;
+
+        private SubBean(String name, Integer age, String extra) {
+            super(name, age);
+            this.extra = extra;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class Service {
+
+        void all(Object a, Object b) {
+        }
+
+        void strictly(@NotNull Object a) {
+        }
+
+        void loosely(@NotNull(strictly = false) Object a) {
+        }
+
+        void fields(@NotNull(requireFields = {"name"}) Object a) {
+        }
+
+        void partial(Object a, @NotNull Object b) {
+        }
+
+        void missingField(@NotNull(requireFields = {"nope"}) Object a) {
+        }
+    }
+
+    private static ValidationPlan plan(String name) throws NoSuchMethodException {
+        for (Method method : Service.class.getDeclaredMethods()) {
+            if (method.getName().equals(name)) {
+                return ValidationPlan.compile(method);
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+
+    private static boolean rejected(ValidationPlan plan, Object... args) throws NotNull.NoSuchFieldOfNotNullException {
+        try {
+            plan.validate(args);
+            return false;
+        } catch (NotNull.NullParamException e) {
+            return true;
+        }
+    }
+
+    private static List<Object> samples() {
+        Map<String, Object> named = new HashMap<>();
+        named.put("name", "jack");
+        Map<String, Object> unnamed = new HashMap<>();
+        unnamed.put("age", 18);
+        return Arrays.asList(
+                null, "", " ", "null", "jack",
+                new ArrayList<>(), Collections.singletonList(1),
+                new HashMap<>(), named, unnamed,
+                new Object[0], new Object[]{1}, new String[0],
+                new Bean("jack", 18), new Bean(null, 18), new Bean("jack", null),
+                new SubBean("jack", 18, "x"), new SubBean("jack", 18, null), new SubBean(null, 18, "x"),
+                1, new Object());
+    }
+
+    /**
+     * 与{@link NotNull.Util#isEmpty(Object, boolean, String[])}的结果一致  同一个计划交替校验不同类型的参数
+     */
+    @Test
+    public void matchesUtil() throws Exception {
+        Object[][] cases = {
+                {"strictly", true, new String[]{}},
+                {"loosely", false, new String[]{}},
+                {"fields", true, new String[]{"name"}},
+        };
+        for (Object[] c : cases) {
+            ValidationPlan plan = plan((String) c[0]);
+            for (int round = 0; round < 2; round++) {
+                for (Object sample : samples()) {
+                    // 自定义对象没有name字段时两者都抛出NoSuchFieldOfNotNullException
+                    String expected;
+                    try {
+                        expected = String.valueOf(NotNull.Util.isEmpty(sample, (Boolean) c[1], (String[]) c[2]));
+                    } catch (NotNull.NoSuchFieldOfNotNullException e) {
+                        expected = e.getMessage();
+                    }
+                    String actual;
+                    try {
+                        actual = String.valueOf(rejected(plan, sample));
+                    } catch (NotNull.NoSuchFieldOfNotNullException e) {
+                        actual = e.getMessage();
+                    }
+                    Assert.assertEquals(c[0] + " " + sample, expected, actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void withoutNotNullChecksAllParamsLoosely() throws Exception {
+        ValidationPlan plan = plan("all");
+        Assert.assertFalse(rejected(plan, "a", new ArrayList<>()));
+        Assert.assertFalse(rejected(plan, new Bean(null, null), new HashMap<>()));
+        Assert.assertTrue(rejected(plan, "a", null));
+        Assert.assertTrue(rejected(plan, " ", "b"));
+    }
+
+    @Test
+    public void onlyAnnotatedParamsAreChecked() throws Exception {
+        ValidationPlan plan = plan("partial");
+        Assert.assertFalse(rejected(plan, null, "b"));
+        try {
+            plan.validate(new Object[]{"a", null});
+            Assert.fail();
+        } catch (NotNull.NullParamException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("'partial'"));
+        }
+    }
+
+    @Test
+    public void missingRequireFieldIsReported() throws Exception {
+        ValidationPlan plan = plan("missingField");
+        try {
+            plan.validate(new Object[]{new Bean("jack", 18)});
+            Assert.fail();
+        } catch (NotNull.NoSuchFieldOfNotNullException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("nope"));
+        }
+        // Map不要求字段存在
+        Assert.assertTrue(rejected(plan, new HashMap<>()));
+    }
+}
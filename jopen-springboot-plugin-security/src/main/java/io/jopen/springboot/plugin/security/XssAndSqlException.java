@@ -0,0 +1,19 @@
+package io.jopen.springboot.plugin.security;
+
+import java.io.IOException;
+
+/**
+ * 请求体违反安全规则或超过大小限制
+ * <p>
+ * 流式检测时由请求体的输入流抛出  下游读取请求体失败  如Spring MVC返回400
+ *
+ * @author maxuefeng
+ * @see XssAndSqlFilter#setStreaming(boolean)
+ * @since 2020/3/26
+ */
+public class XssAndSqlException extends IOException {
+
+    public XssAndSqlException(String message) {
+        super(message);
+    }
+}
@@ -1,17 +1,24 @@
 package io.jopen.springboot.plugin.security;
 
 import io.jopen.springboot.plugin.common.json.Json;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Component;
 
 import javax.servlet.*;
 import javax.servlet.annotation.WebFilter;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Locale;
 
 /**
+ * 检测请求参数和POST请求体
+ * <p>
+ * 1 默认缓存请求体后整体检测  {@link #setStreaming(boolean)}开启后在下游读取请求体时分段检测  不缓存请求体
+ * 2 配置{@link #setMaxBodySize(long)}后请求体超过限制时拒绝访问  默认不限制
+ * 3 multipart 二进制等ContentType的请求体不检测也不缓存  上传文件不会被读入内存
+ *
  * @author maxuefeng
  * @since 2020/3/25
  */
@@ -19,6 +26,40 @@ import java.io.PrintWriter;
 @Component
 public class XssAndSqlFilter implements Filter {
 
+    static final String REJECT_MESSAGE = "您所访问的页面请求中有违反安全规则元素存在，拒绝访问!";
+
+    static final String TOO_LARGE_MESSAGE = "请求体超过大小限制，拒绝访问!";
+
+    /**
+     * 默认的请求体最大字节数  不限制
+     */
+    public static final long DEFAULT_MAX_BODY_SIZE = Long.MAX_VALUE;
+
+    /**
+     * 不检测请求体的ContentType前缀
+     */
+    private static final String[] SKIPPED_CONTENT_TYPES = {
+            "multipart/", "application/octet-stream", "image/", "audio/", "video/"
+    };
+
+    /**
+     * 是否流式检测请求体  流式检测时违反安全规则的请求体在下游读取时抛出{@link XssAndSqlException}
+     */
+    private volatile boolean streaming = false;
+
+    private volatile long maxBodySize = DEFAULT_MAX_BODY_SIZE;
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * @param maxBodySize 请求体的最大字节数  小于等于0时不限制
+     */
+    public void setMaxBodySize(long maxBodySize) {
+        this.maxBodySize = maxBodySize > 0 ? maxBodySize : DEFAULT_MAX_BODY_SIZE;
+    }
+
     @Override
     public void destroy() {
     }
@@ -26,35 +67,52 @@ public class XssAndSqlFilter implements Filter {
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
-        String method = "GET";
-        String param;
-        XssAndSqlHttpServletRequestWrapper xssRequest = null;
-        if (request instanceof HttpServletRequest) {
-            method = ((HttpServletRequest) request).getMethod();
-            xssRequest = new XssAndSqlHttpServletRequestWrapper((HttpServletRequest) request);
+        if (!(request instanceof HttpServletRequest)) {
+            chain.doFilter(request, response);
+            return;
         }
-        if ("POST".equalsIgnoreCase(method)) {
-            param = getBodyString(xssRequest.getReader());
-            if (StringUtils.isNotBlank(param)) {
-                if (XssAndSqlHttpServletRequestWrapper.checkXSSAndSql(param)) {
-                    response.setCharacterEncoding("UTF-8");
-                    response.setContentType("application/json;charset=UTF-8");
-                    PrintWriter out = response.getWriter();
-                    out.write(Json.of("code", 0, "msg", "您所访问的页面请求中有违反安全规则元素存在，拒绝访问!").toJSONString());
-                    return;
-                }
-            }
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        XssAndSqlHttpServletRequestWrapper xssRequest;
+        try {
+            xssRequest = new XssAndSqlHttpServletRequestWrapper(httpRequest, this.bodyInspection(httpRequest), maxBodySize);
+        } catch (XssAndSqlException e) {
+            reject(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, TOO_LARGE_MESSAGE);
+            return;
         }
-        if (xssRequest.checkParameter()) {
-            response.setCharacterEncoding("UTF-8");
-            response.setContentType("application/json;charset=UTF-8");
-            PrintWriter out = response.getWriter();
-            out.write(Json.of("code", 0, "msg", "您所访问的页面请求中有违反安全规则元素存在，拒绝访问!").toJSONString());
+        if (xssRequest.checkBody() || xssRequest.checkParameter()) {
+            reject(response, HttpServletResponse.SC_OK, REJECT_MESSAGE);
             return;
         }
         chain.doFilter(xssRequest, response);
     }
 
+    private XssAndSqlHttpServletRequestWrapper.BodyInspection bodyInspection(HttpServletRequest request) {
+        if (!"POST".equalsIgnoreCase(request.getMethod())) {
+            return XssAndSqlHttpServletRequestWrapper.BodyInspection.NONE;
+        }
+        String contentType = request.getContentType();
+        if (contentType != null) {
+            contentType = contentType.toLowerCase(Locale.ROOT);
+            for (String skipped : SKIPPED_CONTENT_TYPES) {
+                if (contentType.startsWith(skipped)) {
+                    return XssAndSqlHttpServletRequestWrapper.BodyInspection.NONE;
+                }
+            }
+        }
+        return streaming ? XssAndSqlHttpServletRequestWrapper.BodyInspection.STREAMING
+                : XssAndSqlHttpServletRequestWrapper.BodyInspection.BUFFERED;
+    }
+
+    private static void reject(ServletResponse response, int status, String message) throws IOException {
+        if (response instanceof HttpServletResponse) {
+            ((HttpServletResponse) response).setStatus(status);
+        }
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType("application/json;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+        out.write(Json.of("code", 0, "msg", message).toJSONString());
+    }
+
     @Override
     public void init(FilterConfig arg0) {
     }
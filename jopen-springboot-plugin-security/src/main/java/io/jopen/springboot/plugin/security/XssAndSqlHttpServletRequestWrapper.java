@@ -2,18 +2,16 @@ package io.jopen.springboot.plugin.security;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.springframework.util.StreamUtils;
 
 import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.*;
 import java.util.*;
-import java.util.regex.Pattern;
 
 /**
  * @author maxuefeng
@@ -22,13 +20,71 @@ import java.util.regex.Pattern;
 public class XssAndSqlHttpServletRequestWrapper  extends HttpServletRequestWrapper {
     HttpServletRequest orgRequest;
     private Map<String, String[]> parameterMap;
-    private final byte[] body; //用于保存读取body中数据
+    private final byte @Nullable [] body; //用于保存读取body中数据
+    private final BodyInspection inspection;
+    private final long maxBodySize;
+    @Nullable
+    private ServletInputStream inspectingInputStream;
 
     public XssAndSqlHttpServletRequestWrapper(HttpServletRequest request) throws IOException{
+        this(request, BodyInspection.BUFFERED, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param inspection  请求体的检测方式
+     * @param maxBodySize 请求体的最大字节数
+     * @throws XssAndSqlException 缓存请求体时超过大小限制
+     */
+    XssAndSqlHttpServletRequestWrapper(HttpServletRequest request, BodyInspection inspection, long maxBodySize) throws IOException {
         super(request);
         orgRequest = request;
+        // 先获取参数  表单请求的参数来自请求体
         parameterMap = request.getParameterMap();
-        body = StreamUtils.copyToByteArray(request.getInputStream());
+        this.inspection = inspection;
+        this.maxBodySize = maxBodySize;
+        body = inspection == BodyInspection.BUFFERED ? readBody(request, maxBodySize) : null;
+    }
+
+    /**
+     * 请求体的检测方式
+     */
+    enum BodyInspection {
+        /**
+         * 不检测  直接读取原始请求体
+         */
+        NONE,
+        /**
+         * 缓存请求体后整体检测
+         */
+        BUFFERED,
+        /**
+         * 下游读取请求体时分段检测  不缓存
+         */
+        STREAMING
+    }
+
+    private static byte[] readBody(HttpServletRequest request, long maxBodySize) throws IOException {
+        long contentLength = request.getContentLengthLong();
+        if (contentLength > maxBodySize) {
+            throw new XssAndSqlException(XssAndSqlFilter.TOO_LARGE_MESSAGE);
+        }
+        InputStream in = request.getInputStream();
+        if (contentLength >= 0 && contentLength <= Integer.MAX_VALUE - 8) {
+            // 长度已知时直接读入数组  避免再复制一次
+            byte[] body = new byte[(int) contentLength];
+            new DataInputStream(in).readFully(body);
+            return body;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            if (out.size() + n > maxBodySize) {
+                throw new XssAndSqlException(XssAndSqlFilter.TOO_LARGE_MESSAGE);
+            }
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
     }
 
     // 重写几个HttpServletRequestWrapper中的方法
@@ -161,128 +217,26 @@ public class XssAndSqlHttpServletRequestWrapper  extends HttpServletRequestWrapp
     /**
      *
      * 防止xss跨脚本攻击（替换，根据实际情况调整）
+     * @see XssAndSqlScanner#strip(String)
      */
-
     public static String stripXSSAndSql(String value) {
-        if (value != null) {
-            // NOTE: It's highly recommended to use the ESAPI library and
-            // uncomment the following line to
-            // avoid encoded attacks.
-            // value = ESAPI.encoder().canonicalize(value);
-            // Avoid null characters
-            /** value = value.replaceAll("", ""); ***/
-            // Avoid anything between script tags
-            Pattern scriptPattern = Pattern.compile(
-                    "<[\r\n| | ]*script[\r\n| | ]*>(.*?)</[\r\n| | ]*script[\r\n| | ]*>", Pattern.CASE_INSENSITIVE);
-            value = scriptPattern.matcher(value).replaceAll("");
-            // Avoid anything in a
-            // src="http://www.yihaomen.com/article/java/..." type of
-            // e-xpression
-            scriptPattern = Pattern.compile("src[\r\n| | ]*=[\r\n| | ]*[\\\"|\\\'](.*?)[\\\"|\\\']",
-                    Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
-            value = scriptPattern.matcher(value).replaceAll("");
-            // Remove any lonesome </script> tag
-            scriptPattern = Pattern.compile("</[\r\n| | ]*script[\r\n| | ]*>", Pattern.CASE_INSENSITIVE);
-            value = scriptPattern.matcher(value).replaceAll("");
-            // Remove any lonesome <script ...> tag
-            scriptPattern = Pattern.compile("<[\r\n| | ]*script(.*?)>",
-                    Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
-            value = scriptPattern.matcher(value).replaceAll("");
-            // Avoid eval(...) expressions
-            scriptPattern = Pattern.compile("eval\\((.*?)\\)",
-                    Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
-            value = scriptPattern.matcher(value).replaceAll("");
-            // Avoid e-xpression(...) expressions
-            scriptPattern = Pattern.compile("e-xpression\\((.*?)\\)",
-                    Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
-            value = scriptPattern.matcher(value).replaceAll("");
-            // Avoid javascript:... expressions
-            scriptPattern = Pattern.compile("javascript[\r\n| | ]*:[\r\n| | ]*", Pattern.CASE_INSENSITIVE);
-            value = scriptPattern.matcher(value).replaceAll("");
-            // Avoid vbscript:... expressions
-            scriptPattern = Pattern.compile("vbscript[\r\n| | ]*:[\r\n| | ]*", Pattern.CASE_INSENSITIVE);
-            value = scriptPattern.matcher(value).replaceAll("");
-            // Avoid onload= expressions
-            scriptPattern = Pattern.compile("onload(.*?)=",
-                    Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
-            value = scriptPattern.matcher(value).replaceAll("");
-        }
-        return value;
+        return XssAndSqlScanner.strip(value);
     }
 
+    /**
+     * @see XssAndSqlScanner#matches(String)
+     */
     public static boolean checkXSSAndSql(String value) {
-        boolean flag = false;
-        if (value != null) {
-            // NOTE: It's highly recommended to use the ESAPI library and
-            // uncomment the following line to
-            // avoid encoded attacks.
-            // value = ESAPI.encoder().canonicalize(value);
-            // Avoid null characters
-            /** value = value.replaceAll("", ""); ***/
-            // Avoid anything between script tags
-            Pattern scriptPattern = Pattern.compile(
-                    "<[\r\n| | ]*script[\r\n| | ]*>(.*?)</[\r\n| | ]*script[\r\n| | ]*>", Pattern.CASE_INSENSITIVE);
-            flag = scriptPattern.matcher(value).find();
-            if (flag) {
-                return flag;
-            }
-            // Avoid anything in a
-            // src="http://www.yihaomen.com/article/java/..." type of
-            // e-xpression
-            scriptPattern = Pattern.compile("src[\r\n| | ]*=[\r\n| | ]*[\\\"|\\\'](.*?)[\\\"|\\\']",
-                    Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
-            flag = scriptPattern.matcher(value).find();
-            if (flag) {
-                return flag;
-            }
-            // Remove any lonesome </script> tag
-            scriptPattern = Pattern.compile("</[\r\n| | ]*script[\r\n| | ]*>", Pattern.CASE_INSENSITIVE);
-            flag = scriptPattern.matcher(value).find();
-            if (flag) {
-                return flag;
-            }
-            // Remove any lonesome <script ...> tag
-            scriptPattern = Pattern.compile("<[\r\n| | ]*script(.*?)>",
-                    Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
-            flag = scriptPattern.matcher(value).find();
-            if (flag) {
-                return flag;
-            }
-            // Avoid eval(...) expressions
-            scriptPattern = Pattern.compile("eval\\((.*?)\\)",
-                    Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
-            flag = scriptPattern.matcher(value).find();
-            if (flag) {
-                return flag;
-            }
-            // Avoid e-xpression(...) expressions
-            scriptPattern = Pattern.compile("e-xpression\\((.*?)\\)",
-                    Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
-            flag = scriptPattern.matcher(value).find();
-            if (flag) {
-                return flag;
-            }
-            // Avoid javascript:... expressions
-            scriptPattern = Pattern.compile("javascript[\r\n| | ]*:[\r\n| | ]*", Pattern.CASE_INSENSITIVE);
-            flag = scriptPattern.matcher(value).find();
-            if (flag) {
-                return flag;
-            }
-            // Avoid vbscript:... expressions
-            scriptPattern = Pattern.compile("vbscript[\r\n| | ]*:[\r\n| | ]*", Pattern.CASE_INSENSITIVE);
-            flag = scriptPattern.matcher(value).find();
-            if (flag) {
-                return flag;
-            }
-            // Avoid onload= expressions
-            scriptPattern = Pattern.compile("onload(.*?)=",
-                    Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
-            flag = scriptPattern.matcher(value).find();
-            if (flag) {
-                return flag;
-            }
-        }
-        return flag;
+        return XssAndSqlScanner.matches(value);
+    }
+
+    /**
+     * 检测已缓存的请求体  流式检测在下游读取请求体时进行
+     *
+     * @return 请求体是否违反安全规则
+     */
+    public final boolean checkBody() {
+        return body != null && new XssAndSqlScanner.Incremental().update(body, 0, body.length);
     }
 
     public final boolean checkParameter() {
@@ -312,31 +266,136 @@ public class XssAndSqlHttpServletRequestWrapper  extends HttpServletRequestWrapp
 
     @Override
     public ServletInputStream getInputStream() throws IOException {
-        final ByteArrayInputStream bais = new ByteArrayInputStream(body);
-        return new ServletInputStream() {
-
-            @Override
-            public int read() throws IOException {
-                return bais.read();
+        if (body != null) {
+            return new BufferedServletInputStream(body);
+        }
+        if (inspection == BodyInspection.STREAMING) {
+            // 原始请求体只能读取一次
+            if (inspectingInputStream == null) {
+                inspectingInputStream = new InspectingServletInputStream(super.getInputStream(), maxBodySize);
             }
+            return inspectingInputStream;
+        }
+        return super.getInputStream();
+    }
+
+    /**
+     * 读取已缓存的请求体
+     */
+    private static final class BufferedServletInputStream extends ServletInputStream {
+
+        private final ByteArrayInputStream bais;
+
+        private BufferedServletInputStream(byte[] body) {
+            this.bais = new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public int read() {
+            return bais.read();
+        }
+
+        @Override
+        public int read(byte @NonNull [] b, int off, int len) {
+            return bais.read(b, off, len);
+        }
+
+        @Override
+        public int available() {
+            return bais.available();
+        }
 
-            @Override
-            public boolean isFinished() {
-                // TODO Auto-generated method stub
-                return false;
+        @Override
+        public boolean isFinished() {
+            return bais.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            try {
+                if (isFinished()) {
+                    readListener.onAllDataRead();
+                } else {
+                    readListener.onDataAvailable();
+                }
+            } catch (IOException e) {
+                readListener.onError(e);
             }
+        }
+    }
+
+    /**
+     * 读取原始请求体的同时分段检测  命中规则或超过大小限制时抛出{@link XssAndSqlException}
+     */
+    private static final class InspectingServletInputStream extends ServletInputStream {
 
-            @Override
-            public boolean isReady() {
-                // TODO Auto-generated method stub
-                return false;
+        private final ServletInputStream delegate;
+
+        private final XssAndSqlScanner.Incremental scanner = new XssAndSqlScanner.Incremental();
+
+        private final byte[] single = new byte[1];
+
+        private final long maxBodySize;
+
+        private long total;
+
+        private InspectingServletInputStream(ServletInputStream delegate, long maxBodySize) {
+            this.delegate = delegate;
+            this.maxBodySize = maxBodySize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b != -1) {
+                single[0] = (byte) b;
+                inspect(single, 0, 1);
             }
+            return b;
+        }
 
-            @Override
-            public void setReadListener(ReadListener arg0) {
-                // TODO Auto-generated method stub
+        @Override
+        public int read(byte @NonNull [] b, int off, int len) throws IOException {
+            int n = delegate.read(b, off, len);
+            if (n > 0) {
+                inspect(b, off, n);
+            }
+            return n;
+        }
 
+        private void inspect(byte[] b, int off, int len) throws IOException {
+            total += len;
+            if (total > maxBodySize) {
+                throw new XssAndSqlException(XssAndSqlFilter.TOO_LARGE_MESSAGE);
             }
-        };
+            if (scanner.update(b, off, len)) {
+                throw new XssAndSqlException(XssAndSqlFilter.REJECT_MESSAGE);
+            }
+        }
+
+        @Override
+        public int available() throws IOException {
+            return delegate.available();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
     }
 }
@@ -0,0 +1,178 @@
+package io.jopen.springboot.plugin.security;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * XSS和SQL注入规则的预编译扫描器
+ * <p>
+ * 1 规则在类加载时编译一次  检测时所有规则合并为一个分支正则  每个值只扫描一遍
+ * 2 每条规则都至少包含{@code < = ( :}之一  不包含这些字符的值直接跳过正则  大部分参数值属于这种情况
+ * 3 清除时先检测  只有命中时才按原有顺序逐条替换  输出与逐条替换的结果一致
+ * 4 {@link Incremental}按读取顺序分段检测请求体  不需要缓存整个请求体
+ *
+ * @author maxuefeng
+ * @see XssAndSqlHttpServletRequestWrapper#checkXSSAndSql(String)
+ * @see XssAndSqlHttpServletRequestWrapper#stripXSSAndSql(String)
+ * @since 2020/3/26
+ */
+final class XssAndSqlScanner {
+
+    /**
+     * 规则中的空白  包含原有写法中的'|'
+     */
+    private static final String BLANK = "[\r\n| ]*";
+
+    /**
+     * 规则原文  清除时按此顺序替换
+     * 不带DOTALL的规则中.不匹配换行  合并时通过内联标记保持各自的语义
+     */
+    private static final String[] RULES = {
+            // <script>...</script>
+            "<" + BLANK + "script" + BLANK + ">(?:.*?)</" + BLANK + "script" + BLANK + ">",
+            // src="..."
+            "(?s:src" + BLANK + "=" + BLANK + "[\"|'](?:.*?)[\"|'])",
+            // 单独的</script>
+            "</" + BLANK + "script" + BLANK + ">",
+            // 单独的<script ...>
+            "(?s:<" + BLANK + "script(?:.*?)>)",
+            // eval(...)
+            "(?s:eval\\((?:.*?)\\))",
+            // e-xpression(...)
+            "(?s:e-xpression\\((?:.*?)\\))",
+            // javascript:
+            "javascript" + BLANK + ":" + BLANK,
+            // vbscript:
+            "vbscript" + BLANK + ":" + BLANK,
+            // onload=
+            "(?s:onload(?:.*?)=)"
+    };
+
+    private static final Pattern[] PATTERNS = new Pattern[RULES.length];
+
+    private static final Pattern COMBINED = Pattern.compile("(?:" + String.join(")|(?:", RULES) + ")",
+            Pattern.CASE_INSENSITIVE);
+
+    static {
+        for (int i = 0; i < RULES.length; i++) {
+            PATTERNS[i] = Pattern.compile(RULES[i], Pattern.CASE_INSENSITIVE);
+        }
+    }
+
+    private XssAndSqlScanner() {
+    }
+
+    /**
+     * @param value 参数值  Header值或请求体
+     * @return 是否命中任意一条规则
+     */
+    static boolean matches(@Nullable String value) {
+        return value != null && mayMatch(value) && COMBINED.matcher(value).find();
+    }
+
+    /**
+     * @param value 参数值  Header值
+     * @return 去除命中规则的内容后的值  未命中时返回原值
+     */
+    static String strip(@Nullable String value) {
+        if (!matches(value)) {
+            return value;
+        }
+        for (Pattern pattern : PATTERNS) {
+            value = pattern.matcher(value).replaceAll("");
+        }
+        return value;
+    }
+
+    /**
+     * 只遍历一遍字符  不包含任何规则必需的字符时不可能命中
+     */
+    private static boolean mayMatch(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            switch (value.charAt(i)) {
+                case '<':
+                case '=':
+                case '(':
+                case ':':
+                    return true;
+                default:
+                    break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 请求体的增量检测
+     * <p>
+     * 1 规则只包含ASCII字符  字节按ISO-8859-1逐个映射为字符  多字节字符被切分在两段之间时不影响检测结果
+     * 2 与之前按行读取请求体的检测一致  忽略换行符
+     * 3 每段与上一段末尾的{@link #TAIL}个字符拼接后检测  跨段的规则前缀不会遗漏
+     * 4 已出现前缀但未出现结尾的规则(如{@code eval(}等待{@code )})记录其结尾字符  之后任何一段出现该字符即命中
+     * 因此每段只扫描一次  与请求体总长度无关
+     * <p>
+     * 规则前缀中的空白超过{@link #TAIL}个字符且恰好跨段时不能识别
+     */
+    static final class Incremental {
+
+        private static final int TAIL = 256;
+
+        /**
+         * 带有任意长度内容的规则前缀  分组依次对应{@link #TERMINATORS}
+         */
+        private static final Pattern PENDING = Pattern.compile(
+                "(src" + BLANK + "=" + BLANK + "[\"|'])|(<" + BLANK + "script)|(eval\\(|e-xpression\\()|(onload)",
+                Pattern.CASE_INSENSITIVE);
+
+        private static final String[] TERMINATORS = {"\"|'", ">", ")", "="};
+
+        private final StringBuilder window = new StringBuilder(TAIL * 2);
+
+        /**
+         * 等待中的规则结尾字符
+         */
+        private String terminators = "";
+
+        private boolean matched;
+
+        /**
+         * @param b   请求体的下一段
+         * @param off 起始位置
+         * @param len 长度
+         * @return 目前为止的请求体是否命中任意一条规则
+         */
+        boolean update(byte[] b, int off, int len) {
+            if (matched) {
+                return true;
+            }
+            window.ensureCapacity(window.length() + len);
+            for (int i = off; i < off + len; i++) {
+                char c = (char) (b[i] & 0xFF);
+                if (c == '\r' || c == '\n') {
+                    continue;
+                }
+                if (terminators.indexOf(c) >= 0) {
+                    return matched = true;
+                }
+                window.append(c);
+            }
+            if (mayMatch(window) && COMBINED.matcher(window).find()) {
+                return matched = true;
+            }
+            Matcher pending = PENDING.matcher(window);
+            while (pending.find()) {
+                for (int group = 1; group <= TERMINATORS.length; group++) {
+                    if (pending.group(group) != null && terminators.indexOf(TERMINATORS[group - 1].charAt(0)) < 0) {
+                        terminators = terminators + TERMINATORS[group - 1];
+                    }
+                }
+            }
+            if (window.length() > TAIL) {
+                window.delete(0, window.length() - TAIL);
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package io.jopen.springboot.plugin.security;
+
+import java.util.regex.Pattern;
+
+/**
+ * 预编译之前逐条检测和替换的规则  与原XssAndSqlHttpServletRequestWrapper#checkXSSAndSql和#stripXSSAndSql一致
+ * 每次调用都重新编译正则  作为{@link XssAndSqlScanner}的对照
+ *
+ * @author maxuefeng
+ * @see XssAndSqlScannerTest
+ * @see XssAndSqlScannerBenchmark
+ * @since 2020/3/26
+ */
+final class LegacyXssAndSqlRules {
+
+    private static final String[] REGEXES = {
+            "<[\r\n| | ]*script[\r\n| | ]*>(.*?)</[\r\n| | ]*script[\r\n| | ]*>",
+            "src[\r\n| | ]*=[\r\n| | ]*[\\\"|\\\'](.*?)[\\\"|\\\']",
+            "</[\r\n| | ]*script[\r\n| | ]*>",
+            "<[\r\n| | ]*script(.*?)>",
+            "eval\\((.*?)\\)",
+            "e-xpression\\((.*?)\\)",
+            "javascript[\r\n| | ]*:[\r\n| | ]*",
+            "vbscript[\r\n| | ]*:[\r\n| | ]*",
+            "onload(.*?)="
+    };
+
+    private static final int DOTALL = Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL;
+
+    private static final int[] FLAGS = {
+            Pattern.CASE_INSENSITIVE,
+            DOTALL,
+            Pattern.CASE_INSENSITIVE,
+            DOTALL,
+            DOTALL,
+            DOTALL,
+            Pattern.CASE_INSENSITIVE,
+            Pattern.CASE_INSENSITIVE,
+            DOTALL
+    };
+
+    private LegacyXssAndSqlRules() {
+    }
+
+    static boolean matches(String value) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i < REGEXES.length; i++) {
+            if (Pattern.compile(REGEXES[i], FLAGS[i]).matcher(value).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String strip(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (int i = 0; i < REGEXES.length; i++) {
+            value = Pattern.compile(REGEXES[i], FLAGS[i]).matcher(value).replaceAll("");
+        }
+        return value;
+    }
+}
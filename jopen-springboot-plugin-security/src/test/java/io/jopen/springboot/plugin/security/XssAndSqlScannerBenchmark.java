@@ -0,0 +1,87 @@
+package io.jopen.springboot.plugin.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link XssAndSqlScanner}与每次编译正则逐条检测和替换({@link LegacyXssAndSqlRules})的对比
+ * <p>
+ * 参数值分为普通短参数 不含规则的长请求体 命中规则的参数
+ * 运行{@link #main(String[])}  或打包后使用JMH命令行
+ *
+ * @author maxuefeng
+ * @see XssAndSqlScanner
+ * @see LegacyXssAndSqlRules
+ * @since 2020/3/26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class XssAndSqlScannerBenchmark {
+
+    @Param({"short", "body", "attack"})
+    public String kind;
+
+    private String value;
+
+    @Setup
+    public void setup() {
+        switch (kind) {
+            case "short":
+                value = "13800138000";
+                break;
+            case "body":
+                StringBuilder body = new StringBuilder("[");
+                for (int i = 0; i < 200; i++) {
+                    body.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"商品").append(i)
+                            .append("\",\"price\":12.30,\"remark\":\"a=b, f(x) 1 < 2\"}");
+                }
+                value = body.append("]").toString();
+                break;
+            default:
+                value = "<img src='x.png' onload=init()><script>eval(document.cookie)</script>";
+                break;
+        }
+    }
+
+    @Benchmark
+    public boolean legacyMatches() {
+        return LegacyXssAndSqlRules.matches(value);
+    }
+
+    @Benchmark
+    public boolean scannerMatches() {
+        return XssAndSqlScanner.matches(value);
+    }
+
+    @Benchmark
+    public String legacyStrip() {
+        return LegacyXssAndSqlRules.strip(value);
+    }
+
+    @Benchmark
+    public String scannerStrip() {
+        return XssAndSqlScanner.strip(value);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(XssAndSqlScannerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,135 @@
+package io.jopen.springboot.plugin.security;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * @author maxuefeng
+ * @see XssAndSqlScanner
+ * @see LegacyXssAndSqlRules
+ * @since 2020/3/26
+ */
+public class XssAndSqlScannerTest {
+
+    private static final String[] SAMPLES = {
+            "", "plain", "a=b", "f(x)", "time 12:30", "1 < 2", "<b>bold</b>",
+            "<script>alert(1)</script>", "< SCRIPT >alert(1)</ script >", "<script>\nalert(1)\n</script>",
+            "<img src='x.png'>", "<img SRC = \"x\nx.png\">", "</script>", "<script type=\"text/javascript\">",
+            "<script\n>", "eval(code)", "EVAL(\ncode\n)", "e-xpression(code)", "javascript:alert(1)",
+            "JavaScript : alert(1)", "vbscript:msgbox", "<body onload=init()>", "onLoad\n=",
+            "x<script>a</script>y<script>b</script>z", "src=\"a\" src='b'", "eval(", "onload", "javascript",
+            "中文<script>alert('中文')</script>中文"
+    };
+
+    @Test
+    public void matchesLikeLegacyRules() {
+        for (String sample : SAMPLES) {
+            Assert.assertEquals(sample, LegacyXssAndSqlRules.matches(sample), XssAndSqlScanner.matches(sample));
+        }
+    }
+
+    @Test
+    public void stripsLikeLegacyRules() {
+        for (String sample : SAMPLES) {
+            Assert.assertEquals(sample, LegacyXssAndSqlRules.strip(sample), XssAndSqlScanner.strip(sample));
+        }
+    }
+
+    @Test
+    public void eachRuleMatches() {
+        Assert.assertTrue(XssAndSqlScanner.matches("<script>alert(1)</script>"));
+        Assert.assertTrue(XssAndSqlScanner.matches("src='x'"));
+        Assert.assertTrue(XssAndSqlScanner.matches("</script>"));
+        Assert.assertTrue(XssAndSqlScanner.matches("<script src=x>"));
+        Assert.assertTrue(XssAndSqlScanner.matches("eval(x)"));
+        Assert.assertTrue(XssAndSqlScanner.matches("e-xpression(x)"));
+        Assert.assertTrue(XssAndSqlScanner.matches("javascript:"));
+        Assert.assertTrue(XssAndSqlScanner.matches("vbscript:"));
+        Assert.assertTrue(XssAndSqlScanner.matches("onload="));
+    }
+
+    @Test
+    public void safeValues() {
+        Assert.assertFalse(XssAndSqlScanner.matches(null));
+        Assert.assertNull(XssAndSqlScanner.strip(null));
+        Assert.assertFalse(XssAndSqlScanner.matches("{\"name\":\"jopen\",\"age\":18}"));
+        String value = "name=jopen&age=18";
+        // 未命中时返回原值
+        Assert.assertSame(value, XssAndSqlScanner.strip(value));
+    }
+
+    /**
+     * 按固定长度分段检测
+     */
+    private static boolean incremental(byte[] body, int chunk) {
+        XssAndSqlScanner.Incremental scanner = new XssAndSqlScanner.Incremental();
+        boolean matched = false;
+        for (int off = 0; off < body.length; off += chunk) {
+            matched = scanner.update(body, off, Math.min(chunk, body.length - off));
+        }
+        return matched;
+    }
+
+    /**
+     * 在任意位置切分为两段检测
+     */
+    private static boolean split(byte[] body, int at) {
+        XssAndSqlScanner.Incremental scanner = new XssAndSqlScanner.Incremental();
+        scanner.update(body, 0, at);
+        return scanner.update(body, at, body.length - at);
+    }
+
+    @Test
+    public void incrementalMatchesAcrossChunkBoundaries() {
+        for (String sample : SAMPLES) {
+            byte[] body = sample.getBytes(StandardCharsets.UTF_8);
+            // 与按行读取后整体检测一致  忽略换行符
+            boolean expected = XssAndSqlScanner.matches(sample.replace("\r", "").replace("\n", ""));
+            for (int at = 0; at <= body.length; at++) {
+                Assert.assertEquals(sample + " split at " + at, expected, split(body, at));
+            }
+            for (int chunk = 1; chunk <= Math.max(1, body.length); chunk++) {
+                Assert.assertEquals(sample + " chunk " + chunk, expected, incremental(body, chunk));
+            }
+        }
+    }
+
+    @Test
+    public void incrementalMatchesRuleLongerThanWindow() {
+        // 前缀和结尾之间的内容远超窗口长度  且分布在多个分段中
+        char[] filler = new char[64 * 1024];
+        Arrays.fill(filler, 'x');
+        String padding = new String(filler);
+        for (String[] rule : new String[][]{{"eval(", ")"}, {"<script", ">"}, {"src='", "'"}, {"onload", "="}, {"e-xpression(", ")"}}) {
+            byte[] body = ("{\"a\":\"" + rule[0] + padding + rule[1] + "\"}").getBytes(StandardCharsets.UTF_8);
+            Assert.assertTrue(rule[0], incremental(body, 1000));
+            Assert.assertTrue(rule[0], incremental(body, 8192));
+            byte[] open = ("{\"a\":\"" + rule[0] + padding + "\"}").getBytes(StandardCharsets.UTF_8);
+            if (!rule[1].equals("'")) {
+                Assert.assertFalse(rule[0], incremental(open, 1000));
+            }
+        }
+    }
+
+    @Test
+    public void incrementalIgnoresSafeBody() {
+        char[] filler = new char[256 * 1024];
+        Arrays.fill(filler, 'y');
+        byte[] body = ("{\"name\":\"" + new String(filler) + "\",\"age\":18}").getBytes(StandardCharsets.UTF_8);
+        Assert.assertFalse(incremental(body, 4096));
+        Assert.assertFalse(incremental(body, 1));
+    }
+
+    @Test
+    public void incrementalMultiByteCharacters() {
+        byte[] body = "中文<script>中文</script>".getBytes(StandardCharsets.UTF_8);
+        for (int at = 0; at <= body.length; at++) {
+            Assert.assertTrue(split(body, at));
+        }
+        Assert.assertFalse(incremental("中文内容：没有脚本".getBytes(StandardCharsets.UTF_8), 1) &&
+                !XssAndSqlScanner.matches("中文内容：没有脚本"));
+    }
+}